@@ -0,0 +1,69 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.cache.UserCache;
+import ro.unibuc.hello.config.UniqueIndexes;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.schedule.ScheduleIndex;
+import ro.unibuc.hello.search.NearbyRideCache;
+import ro.unibuc.hello.search.RouteSearchCache;
+import ro.unibuc.hello.service.BookingTransactions;
+import ro.unibuc.hello.service.OptimisticLockRetry;
+import ro.unibuc.hello.service.ReviewService;
+import ro.unibuc.hello.service.RideBookingService;
+import ro.unibuc.hello.service.RideService;
+
+/**
+ * The services wired the way Spring wires them, on top of InMemoryRepositories, with the caches and indexes
+ * at their application.properties defaults. Expiry is stretched so nothing expires in the middle of a run.
+ */
+final class BenchmarkServices {
+
+    private static final Duration NO_EXPIRY = Duration.ofHours(1);
+
+    final InMemoryRepositories repositories;
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final Clock clock = Clock.systemUTC();
+
+    final UserCache userCache;
+    final ScheduleIndex scheduleIndex;
+    final RouteSearchCache routeSearchCache;
+    final NearbyRideCache nearbyRideCache;
+
+    final RideBookingService rideBookingService;
+    final RideService rideService;
+    final ReviewService reviewService;
+
+    BenchmarkServices(InMemoryRepositories repositories) {
+        this.repositories = repositories;
+
+        userCache = new UserCache(repositories.userRepository, meterRegistry, true, 10_000, NO_EXPIRY, NO_EXPIRY);
+        scheduleIndex = new ScheduleIndex(repositories.rideRepository, repositories.rideBookingRepository, clock,
+                meterRegistry, true, 10_000, NO_EXPIRY);
+        routeSearchCache = new RouteSearchCache(repositories.rideRepository, meterRegistry, true, 10_000, NO_EXPIRY);
+        nearbyRideCache = new NearbyRideCache(repositories.rideRepository, meterRegistry, true, 5_000, 2_000, NO_EXPIRY);
+
+        OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(meterRegistry, 3, 20);
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.empty(), 3, meterRegistry);
+        // as in production once the unique indexes are built, duplicates are left to the insert
+        UniqueIndexes uniqueIndexes = new UniqueIndexes();
+        uniqueIndexes.markBuilt(RideBooking.RIDE_PASSENGER_INDEX);
+        uniqueIndexes.markBuilt(Review.RIDE_REVIEWER_INDEX);
+
+        // UserService is only used by the endpoints that are not benchmarked
+        rideBookingService = new RideBookingService(repositories.rideBookingRepository, userCache,
+                repositories.rideRepository, null, clock, scheduleIndex, optimisticLockRetry, bookingTransactions,
+                routeSearchCache, nearbyRideCache, uniqueIndexes, null, null, null, null, null, null, meterRegistry);
+        rideService = new RideService(repositories.rideRepository, userCache, repositories.vehicleRepository,
+                repositories.rideBookingRepository, rideBookingService, scheduleIndex, optimisticLockRetry,
+                routeSearchCache, nearbyRideCache);
+        reviewService = new ReviewService(repositories.reviewRepository, repositories.rideRepository,
+                repositories.userRepository, userCache, repositories.rideBookingRepository,
+                repositories.driverRatingSummaryRepository, uniqueIndexes, bookingTransactions);
+    }
+}
@@ -0,0 +1,110 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import ro.unibuc.hello.dto.review.DriverRatingSummaryDTO;
+import ro.unibuc.hello.dto.review.ReviewResponseDTO;
+import ro.unibuc.hello.dto.ride.NearbyRideResponseDTO;
+import ro.unibuc.hello.dto.ride.RideRequestDTO;
+import ro.unibuc.hello.dto.ride.RideResponseDTO;
+import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.dto.user.UserResponseDTO;
+import ro.unibuc.hello.enums.Role;
+import ro.unibuc.hello.model.DriverRatingSummary;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+
+/**
+ * The entity to DTO mappers run on every response, and the request to entity mappers run on every write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DtoMappingBenchmark {
+
+    private Ride ride;
+    private GeoResult<Ride> nearbyRide;
+    private RideBooking rideBooking;
+    private Review review;
+    private User user;
+    private DriverRatingSummary ratingSummary;
+    private RideRequestDTO rideRequest;
+
+    @Setup
+    public void setUp() {
+        Instant departureTime = Instant.now().plus(Duration.ofDays(1));
+        ride = new Ride("driver", "Bucuresti", "Brasov", departureTime, departureTime.plus(Duration.ofHours(2)),
+                50, 3, "B-01-ABC");
+        ride.setId("67d767dca086f159e0e3ad60");
+        ride.setStartPoint(new GeoJsonPoint(26.1025, 44.4268));
+        nearbyRide = new GeoResult<>(ride, new Distance(1_250));
+
+        rideBooking = new RideBooking(ride.getId(), "67d767dca086f159e0e3ad65", Instant.now());
+        rideBooking.setPassengerFullName("Andrei Popescu");
+
+        review = new Review("67d767dca086f159e0e3ad65", "driver", ride.getId(), 5, "Punctual driver, smooth ride.");
+        user = new User("Andrei", "Popescu", "andrei.popescu@gmail.com", "0787828282", List.of(Role.PASSENGER));
+
+        ratingSummary = new DriverRatingSummary("driver");
+        ratingSummary.setCount(120);
+        ratingSummary.setSum(540);
+        ratingSummary.getStars().put("4", 60L);
+        ratingSummary.getStars().put("5", 60L);
+
+        rideRequest = new RideRequestDTO("driver", "Bucuresti", "Brasov", departureTime,
+                departureTime.plus(Duration.ofHours(2)), 50, 3, "B-01-ABC");
+        rideRequest.setStartLatitude(44.4268);
+        rideRequest.setStartLongitude(26.1025);
+    }
+
+    @Benchmark
+    public RideResponseDTO rideToDTO() {
+        return RideResponseDTO.toDTO(ride);
+    }
+
+    @Benchmark
+    public NearbyRideResponseDTO nearbyRideToDTO() {
+        return NearbyRideResponseDTO.toDTO(nearbyRide);
+    }
+
+    @Benchmark
+    public RideBookingResponseDTO rideBookingToDTO() {
+        return RideBookingResponseDTO.toDTO(rideBooking);
+    }
+
+    @Benchmark
+    public ReviewResponseDTO reviewToDTO() {
+        return ReviewResponseDTO.toDTO(review);
+    }
+
+    @Benchmark
+    public UserResponseDTO userToDTO() {
+        return UserResponseDTO.toDTO(user);
+    }
+
+    @Benchmark
+    public DriverRatingSummaryDTO driverRatingSummaryToDTO() {
+        return DriverRatingSummaryDTO.toDTO(ratingSummary);
+    }
+
+    @Benchmark
+    public Ride rideRequestToEntity() {
+        return rideRequest.toEntity();
+    }
+}
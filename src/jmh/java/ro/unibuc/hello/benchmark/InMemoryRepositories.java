@@ -0,0 +1,236 @@
+package ro.unibuc.hello.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+
+import ro.unibuc.hello.enums.RideBookingStatus;
+import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.model.DriverRatingSummary;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.DriverRatingSummaryRepository;
+import ro.unibuc.hello.repository.ReviewRepository;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+import ro.unibuc.hello.repository.UserRepository;
+import ro.unibuc.hello.repository.VehicleRepository;
+import ro.unibuc.hello.search.Geohash;
+
+/**
+ * Map-backed stand-ins for the Mongo repositories, so the benchmarks measure the services and not the database.
+ *
+ * Each repository is a dynamic proxy answering only the methods the benchmarked paths call, with the same
+ * semantics as the real query (unique indexes included); any other method throws, so a service change that
+ * starts calling a new query fails the benchmark instead of measuring a no-op.
+ * roundTripNanos stands in for the network: every repository call parks that long before answering, for the
+ * benchmarks whose point is how many queries a path makes rather than what it does with the results.
+ * Nothing here is thread safe, every benchmark thread gets its own instance (Scope.Thread).
+ */
+final class InMemoryRepositories {
+
+    final Map<String, User> users = new HashMap<>();
+    final Map<String, Ride> rides = new HashMap<>();
+    final Set<String> licensePlates = new HashSet<>();
+    // keyed like the unique indexes: (rideId, passengerId) and (rideId, reviewerId)
+    final Map<String, RideBooking> bookings = new HashMap<>();
+    final Map<String, Review> reviews = new HashMap<>();
+    final Map<String, DriverRatingSummary> ratingSummaries = new HashMap<>();
+
+    // 0 answers right away; parkNanos oversleeps by tens of microseconds, so keep it well above that
+    long roundTripNanos;
+
+    private final Map<String, List<RideBooking>> bookingsByRide = new HashMap<>();
+    private final Map<String, List<RideBooking>> bookingsByPassenger = new HashMap<>();
+    private final Map<String, List<Ride>> ridesByDriver = new HashMap<>();
+    private final Map<LocalDate, List<Ride>> ridesByDepartureDay = new HashMap<>();
+
+    final UserRepository userRepository = repository(UserRepository.class, Map.of(
+            "findById", args -> Optional.ofNullable(users.get((String) args[0])),
+            "findAllById", args -> {
+                List<User> found = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    User user = users.get((String) id);
+                    if (user != null) {
+                        found.add(user);
+                    }
+                }
+                return found;
+            },
+            "addRating", args -> users.containsKey((String) args[0]) ? 1L : 0L));
+
+    final RideRepository rideRepository = repository(RideRepository.class, Map.of(
+            "findById", args -> Optional.ofNullable(rides.get((String) args[0])),
+            "save", args -> saveRide((Ride) args[0]),
+            "reserveSeat", args -> changeSeats((String) args[0], -1),
+            "releaseSeat", args -> changeSeats((String) args[0], 1),
+            "existsByIdAndStatus", args -> rides.containsKey((String) args[0])
+                    && rides.get((String) args[0]).getStatus() == args[1],
+            "findActiveByDriverIdArrivingAfter", args -> ridesByDriver.getOrDefault((String) args[0], List.of()).stream()
+                    .filter(ride -> isActive(ride.getStatus()) && ride.getArrivalTime().isAfter((Instant) args[1]))
+                    .toList(),
+            "findBookableNear", args -> findBookableNear((double) args[0], (double) args[1], (double) args[2],
+                    (Instant) args[3], (Instant) args[4], (int) args[5])));
+
+    final RideBookingRepository rideBookingRepository = repository(RideBookingRepository.class, Map.of(
+            "findByRideId", args -> List.copyOf(bookingsByRide.getOrDefault((String) args[0], List.of())),
+            "findPassengerIdsByRideId", args -> List.copyOf(bookingsByRide.getOrDefault((String) args[0], List.of())),
+            "findByRideIdAndPassengerId", args -> Optional.ofNullable(bookings.get(args[0] + "/" + args[1])),
+            "save", args -> saveBooking((RideBooking) args[0]),
+            "findActiveByPassengerIdArrivingAfter", args -> bookingsByPassenger.getOrDefault((String) args[0], List.of())
+                    .stream()
+                    .filter(booking -> booking.getRideBookingStatus() == RideBookingStatus.BOOKED
+                            && booking.getArrivalTime().isAfter((Instant) args[1]))
+                    .toList(),
+            "findActiveByPassengerIdWithoutRideInterval", args -> bookingsByPassenger.getOrDefault((String) args[0], List.of())
+                    .stream()
+                    .filter(booking -> booking.getRideBookingStatus() == RideBookingStatus.BOOKED
+                            && booking.getDepartureTime() == null)
+                    .toList()));
+
+    final VehicleRepository vehicleRepository = repository(VehicleRepository.class, Map.of(
+            "existsByLicensePlate", args -> licensePlates.contains((String) args[0])));
+
+    final ReviewRepository reviewRepository = repository(ReviewRepository.class, Map.of(
+            "save", args -> {
+                Review review = (Review) args[0];
+                if (reviews.putIfAbsent(review.getRideId() + "/" + review.getReviewerId(), review) != null) {
+                    throw new DuplicateKeyException("E11000 duplicate key error collection: reviews index: ride_reviewer_idx");
+                }
+                review.setId(new ObjectId().toHexString());
+                return review;
+            }));
+
+    final DriverRatingSummaryRepository driverRatingSummaryRepository = repository(DriverRatingSummaryRepository.class, Map.of(
+            "findById", args -> Optional.ofNullable(ratingSummaries.get((String) args[0])),
+            "addRating", args -> ratingSummaries.computeIfPresent((String) args[0], (driverId, summary) -> {
+                summary.setCount(summary.getCount() + 1);
+                summary.setSum(summary.getSum() + (int) args[1]);
+                summary.getStars().merge(String.valueOf(args[1]), 1L, Long::sum);
+                return summary;
+            }) != null,
+            "buildForDriver", args -> {
+                DriverRatingSummary built = new DriverRatingSummary((String) args[0]);
+                reviews.values().stream().filter(review -> review.getReviewedId().equals(args[0])).forEach(review -> {
+                    built.setCount(built.getCount() + 1);
+                    built.setSum(built.getSum() + review.getRating());
+                    built.getStars().merge(String.valueOf(review.getRating()), 1L, Long::sum);
+                });
+                return built.getCount() == 0 ? built : ratingSummaries.computeIfAbsent(built.getDriverId(), driverId -> built);
+            }));
+
+    User addUser(String id) {
+        User user = new User("First" + id, "Last" + id, id + "@example.com", id, List.of());
+        user.setId(id);
+        users.put(id, user);
+        return user;
+    }
+
+    Ride addRide(Ride ride) {
+        return saveRide(ride);
+    }
+
+    RideBooking addBooking(RideBooking booking) {
+        return saveBooking(booking);
+    }
+
+    private Ride saveRide(Ride ride) {
+        if (ride.getId() == null) {
+            ride.setId(new ObjectId().toHexString());
+            ridesByDriver.computeIfAbsent(ride.getDriverId(), id -> new ArrayList<>()).add(ride);
+            ridesByDepartureDay.computeIfAbsent(ride.getDepartureTime().atZone(ZoneOffset.UTC).toLocalDate(),
+                    day -> new ArrayList<>()).add(ride);
+        }
+        rides.put(ride.getId(), ride);
+        return ride;
+    }
+
+    // findAndModify stand-in: a seat is only taken from a SCHEDULED ride that still has one
+    private Optional<Ride> changeSeats(String rideId, int seats) {
+        Ride ride = rides.get(rideId);
+        if (ride == null) {
+            return Optional.empty();
+        }
+        if (seats < 0 && (ride.getStatus() != RideStatus.SCHEDULED || ride.getSeatsAvailable() + seats < 0)) {
+            return Optional.empty();
+        }
+        ride.setSeatsAvailable(ride.getSeatsAvailable() + seats);
+        return Optional.of(ride);
+    }
+
+    private RideBooking saveBooking(RideBooking booking) {
+        if (booking.getId() != null) {
+            return booking;
+        }
+        if (bookings.putIfAbsent(booking.getRideId() + "/" + booking.getPassengerId(), booking) != null) {
+            throw new DuplicateKeyException("E11000 duplicate key error collection: ride_passengers index: ride_passenger_idx");
+        }
+        booking.setId(new ObjectId().toHexString());
+        bookingsByRide.computeIfAbsent(booking.getRideId(), id -> new ArrayList<>()).add(booking);
+        bookingsByPassenger.computeIfAbsent(booking.getPassengerId(), id -> new ArrayList<>()).add(booking);
+        return booking;
+    }
+
+    // $geoNear stand-in: an exact scan over the rides departing on the days of the window
+    private List<GeoResult<Ride>> findBookableNear(double latitude, double longitude, double radiusMeters,
+                                                   Instant from, Instant to, int limit) {
+        List<GeoResult<Ride>> found = new ArrayList<>();
+        LocalDate lastDay = to.minusMillis(1).atZone(ZoneOffset.UTC).toLocalDate();
+        for (LocalDate day = from.atZone(ZoneOffset.UTC).toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            for (Ride ride : ridesByDepartureDay.getOrDefault(day, List.of())) {
+                if (ride.getStartPoint() == null || ride.getStatus() != RideStatus.SCHEDULED || ride.getSeatsAvailable() < 1
+                        || ride.getDepartureTime().isBefore(from) || !ride.getDepartureTime().isBefore(to)) {
+                    continue;
+                }
+                double distance = Geohash.distanceMeters(latitude, longitude,
+                        ride.getStartPoint().getY(), ride.getStartPoint().getX());
+                if (distance <= radiusMeters) {
+                    found.add(new GeoResult<>(ride, new Distance(distance)));
+                }
+            }
+        }
+        found.sort(Comparator.comparingDouble(result -> result.getDistance().getValue()));
+        return found.size() > limit ? List.copyOf(found.subList(0, limit)) : found;
+    }
+
+    private static boolean isActive(RideStatus status) {
+        return status == RideStatus.SCHEDULED || status == RideStatus.IN_PROGRESS;
+    }
+
+    private <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> implementation = methods.get(method.getName());
+            if (implementation != null) {
+                if (roundTripNanos > 0) {
+                    LockSupport.parkNanos(roundTripNanos);
+                }
+                return implementation.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> "InMemory" + type.getSimpleName();
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName()
+                        + " is not used by the benchmarked paths");
+            };
+        }));
+    }
+}
@@ -0,0 +1,92 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import ro.unibuc.hello.model.Ride;
+
+/**
+ * RideService.findNearbyRides over a synthetic dataset of up to 1M rides spread evenly over Romania and the
+ * next 7 days (about 1,000 candidates per cached cell and day at 1M). Searches are 10 km around the centers of
+ * the ten largest cities, so after warmup they are answered from the geohash candidate cache; a cache miss
+ * costs one $geoNear in production, which the in-memory scan used here does not stand for: GeoNearLoadTest
+ * times that on a Testcontainers Mongo over the same 1M rides.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class NearbyRideBenchmark {
+
+    private static final double[][] CITY_CENTERS = {
+        {44.4268, 26.1025}, {46.7712, 23.6236}, {45.7489, 21.2087}, {47.1585, 27.6014}, {44.1598, 28.6348},
+        {44.3302, 23.7949}, {45.6427, 25.5887}, {45.4353, 28.0080}, {46.1866, 21.3123}, {44.8565, 24.8692}
+    };
+    private static final int DAYS = 7;
+    private static final int SEARCHES = 4_096;
+    private static final double RADIUS_METERS = 10_000;
+
+    @Param({"100000", "1000000"})
+    public int rides;
+
+    private BenchmarkServices services;
+    private double[] latitudes;
+    private double[] longitudes;
+    private Instant[] froms;
+    private Instant[] tos;
+    private int search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        InMemoryRepositories repositories = new InMemoryRepositories();
+        Instant firstDay = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        long windowMillis = Duration.ofDays(DAYS).toMillis();
+
+        for (int i = 0; i < rides; i++) {
+            Instant departureTime = firstDay.plusMillis((long) (random.nextDouble() * windowMillis));
+            Ride ride = new Ride("driver-" + (i % 10_000), "Start", "End", departureTime,
+                    departureTime.plus(Duration.ofHours(2)), 50, 3, "B-" + (i % 10_000));
+            ride.setStartPoint(new GeoJsonPoint(20.3 + random.nextDouble() * 9.3, 43.7 + random.nextDouble() * 4.5));
+            repositories.addRide(ride);
+        }
+
+        latitudes = new double[SEARCHES];
+        longitudes = new double[SEARCHES];
+        froms = new Instant[SEARCHES];
+        tos = new Instant[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            double[] center = CITY_CENTERS[i % CITY_CENTERS.length];
+            latitudes[i] = center[0] + (random.nextDouble() - 0.5) * 0.1;
+            longitudes[i] = center[1] + (random.nextDouble() - 0.5) * 0.1;
+            froms[i] = firstDay.plus(Duration.ofDays(random.nextInt(DAYS))).plus(Duration.ofHours(6));
+            tos[i] = froms[i].plus(Duration.ofHours(12));
+        }
+
+        services = new BenchmarkServices(repositories);
+        search = 0;
+    }
+
+    @Benchmark
+    public List<GeoResult<Ride>> findNearbyRides() {
+        int i = search;
+        search = (search + 1) % SEARCHES;
+        return services.rideService.findNearbyRides(latitudes[i], longitudes[i], RADIUS_METERS, froms[i], tos[i], 100);
+    }
+}
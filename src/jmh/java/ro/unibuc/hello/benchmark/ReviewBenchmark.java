@@ -0,0 +1,87 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.unibuc.hello.dto.review.ReviewRequestDTO;
+import ro.unibuc.hello.dto.review.ReviewResponseDTO;
+import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+
+/**
+ * ReviewService.createReview with warm caches, passengers reviewing the drivers of completed rides they were on.
+ * Once every passenger has reviewed every ride the stored reviews are dropped and the round starts over,
+ * which costs one map clear every RIDES * PASSENGERS reviews.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ReviewBenchmark {
+
+    private static final int RIDES = 100;
+    private static final int PASSENGERS = 100;
+
+    private InMemoryRepositories repositories;
+    private BenchmarkServices services;
+    private String[] rideIds;
+    private String[] driverIds;
+    private String[] passengerIds;
+    private int reviews;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repositories = new InMemoryRepositories();
+        passengerIds = new String[PASSENGERS];
+        for (int i = 0; i < PASSENGERS; i++) {
+            passengerIds[i] = repositories.addUser("passenger-" + i).getId();
+        }
+
+        rideIds = new String[RIDES];
+        driverIds = new String[RIDES];
+        Instant firstDeparture = Instant.now().minus(Duration.ofDays(30));
+        for (int i = 0; i < RIDES; i++) {
+            driverIds[i] = repositories.addUser("driver-" + i).getId();
+            Instant departureTime = firstDeparture.plus(Duration.ofHours(2L * i));
+            Ride ride = new Ride(driverIds[i], "Bucuresti", "Brasov", departureTime,
+                    departureTime.plus(Duration.ofHours(1)), 50, PASSENGERS, "B-" + i);
+            ride.setStatus(RideStatus.COMPLETED);
+            rideIds[i] = repositories.addRide(ride).getId();
+
+            for (String passengerId : passengerIds) {
+                repositories.addBooking(new RideBooking(rideIds[i], passengerId, departureTime.minus(Duration.ofDays(1))));
+            }
+        }
+
+        services = new BenchmarkServices(repositories);
+        reviews = 0;
+    }
+
+    @Benchmark
+    public ReviewResponseDTO createReview() {
+        if (reviews == RIDES * PASSENGERS) {
+            repositories.reviews.clear();
+            reviews = 0;
+        }
+        int review = reviews++;
+        int ride = review / PASSENGERS;
+
+        ReviewRequestDTO request = new ReviewRequestDTO();
+        request.setRideId(rideIds[ride]);
+        request.setReviewedId(driverIds[ride]);
+        request.setReviewerId(passengerIds[review % PASSENGERS]);
+        request.setRating(1 + review % 5);
+        request.setComment("Punctual driver, smooth ride.");
+        return services.reviewService.createReview(request);
+    }
+}
@@ -0,0 +1,63 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.unibuc.hello.dto.ride.RideRequestDTO;
+import ro.unibuc.hello.dto.ride.RideResponseDTO;
+
+/**
+ * RideService.createRide with warm caches. Drivers take turns, each new ride two hours after the driver's
+ * previous one so none of them overlap; the store is rebuilt before each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RideBenchmark {
+
+    private static final int DRIVERS = 5_000;
+
+    private BenchmarkServices services;
+    private String[] driverIds;
+    private Instant firstDeparture;
+    private long rides;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryRepositories repositories = new InMemoryRepositories();
+        driverIds = new String[DRIVERS];
+        for (int i = 0; i < DRIVERS; i++) {
+            driverIds[i] = repositories.addUser("driver-" + i).getId();
+            repositories.licensePlates.add("B-" + i);
+        }
+
+        services = new BenchmarkServices(repositories);
+        firstDeparture = Instant.now().plus(Duration.ofDays(1));
+        rides = 0;
+    }
+
+    @Benchmark
+    public RideResponseDTO createRide() {
+        long ride = rides++;
+        int driver = (int) (ride % DRIVERS);
+        Instant departureTime = firstDeparture.plus(Duration.ofHours(2 * (ride / DRIVERS)));
+
+        RideRequestDTO request = new RideRequestDTO(driverIds[driver], "Bucuresti", "Brasov", departureTime,
+                departureTime.plus(Duration.ofHours(1)), 50, 3, "B-" + driver);
+        request.setStartLatitude(44.4268);
+        request.setStartLongitude(26.1025);
+        request.setEndLatitude(45.6427);
+        request.setEndLongitude(25.5887);
+        return services.rideService.createRide(request);
+    }
+}
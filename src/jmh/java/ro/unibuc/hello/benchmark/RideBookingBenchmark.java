@@ -0,0 +1,93 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
+import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+
+/**
+ * RideBookingService.createRideBooking with warm caches: the accepted path and the rejected overlapping booking.
+ * Every (passenger, ride) pair is booked at most once per iteration, passengers first so their schedules grow evenly;
+ * the store is rebuilt before each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RideBookingBenchmark {
+
+    private static final int PASSENGERS = 5_000;
+    private static final int RIDES = 10_000;
+
+    private BenchmarkServices services;
+    private String[] passengerIds;
+    private String[] rideIds;
+    private String overlappingRideId;
+    private long bookings;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryRepositories repositories = new InMemoryRepositories();
+        // rides two hours apart never overlap, so every booking is accepted
+        Instant firstDeparture = Instant.now().plus(Duration.ofDays(1));
+        rideIds = new String[RIDES];
+        for (int i = 0; i < RIDES; i++) {
+            Instant departureTime = firstDeparture.plus(Duration.ofHours(2L * i));
+            rideIds[i] = repositories.addRide(new Ride("driver-" + (i % 100), "Bucuresti", "Brasov",
+                    departureTime, departureTime.plus(Duration.ofHours(1)), 50, Integer.MAX_VALUE, "B-" + (i % 100))).getId();
+        }
+        passengerIds = new String[PASSENGERS];
+        for (int i = 0; i < PASSENGERS; i++) {
+            passengerIds[i] = repositories.addUser("passenger-" + i).getId();
+        }
+
+        // the busy passenger is on the first ride, the overlapping one leaves half an hour later
+        repositories.addUser("busy");
+        Ride firstRide = repositories.rides.get(rideIds[0]);
+        RideBooking busyBooking = new RideBooking(firstRide.getId(), "busy", Instant.now());
+        busyBooking.setDepartureTime(firstRide.getDepartureTime());
+        busyBooking.setArrivalTime(firstRide.getArrivalTime());
+        repositories.addBooking(busyBooking);
+        overlappingRideId = repositories.addRide(new Ride("driver-overlap", "Bucuresti", "Sibiu",
+                firstDeparture.plus(Duration.ofMinutes(30)), firstDeparture.plus(Duration.ofMinutes(90)),
+                50, Integer.MAX_VALUE, "B-overlap")).getId();
+
+        services = new BenchmarkServices(repositories);
+        bookings = 0;
+    }
+
+    @Benchmark
+    public RideBookingResponseDTO createRideBooking() {
+        long booking = bookings++;
+        RideBookingRequestDTO request = new RideBookingRequestDTO();
+        request.setPassengerId(passengerIds[(int) (booking % PASSENGERS)]);
+        request.setRideId(rideIds[(int) (booking / PASSENGERS % RIDES)]);
+        return services.rideBookingService.createRideBooking(request);
+    }
+
+    @Benchmark
+    public String rejectOverlappingBooking() {
+        RideBookingRequestDTO request = new RideBookingRequestDTO();
+        request.setPassengerId("busy");
+        request.setRideId(overlappingRideId);
+        try {
+            services.rideBookingService.createRideBooking(request);
+            throw new IllegalStateException("The overlapping booking was accepted");
+        } catch (InvalidRideBookingException e) {
+            return e.getMessage();
+        }
+    }
+}
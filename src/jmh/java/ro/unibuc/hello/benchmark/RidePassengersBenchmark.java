@@ -0,0 +1,89 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+
+/**
+ * RideBookingService.getPassengersByRideId for rides with 1 to 200 passengers, once with the names stored on the
+ * bookings and once for older bookings without them, which are resolved through one batched user lookup.
+ * perPassengerFindById is the lookup it replaced, one findById per booking, as the baseline.
+ *
+ * Sampled, so the results carry p50/p99/p999 per call and not only the mean. With roundTripMicros every repository
+ * call costs a simulated Mongo round trip, which is what separates the two: in memory a findById is nearly free.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RidePassengersBenchmark {
+
+    @Param({"1", "10", "50", "200"})
+    public int passengers;
+
+    @Param({"true", "false"})
+    public boolean storedNames;
+
+    // a same-zone Mongo round trip is a few hundred microseconds
+    @Param({"0", "300"})
+    public int roundTripMicros;
+
+    private InMemoryRepositories repositories;
+    private BenchmarkServices services;
+    private String rideId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repositories = new InMemoryRepositories();
+        Instant departureTime = Instant.now().plus(Duration.ofDays(1));
+        rideId = repositories.addRide(new Ride("driver", "Bucuresti", "Brasov", departureTime,
+                departureTime.plus(Duration.ofHours(2)), 50, 200, "B-01-ABC")).getId();
+
+        for (int i = 0; i < passengers; i++) {
+            User passenger = repositories.addUser("passenger-" + i);
+            RideBooking booking = new RideBooking(rideId, passenger.getId(), Instant.now());
+            if (storedNames) {
+                booking.setPassengerFullName(User.fullName(passenger.getFirstName(), passenger.getLastName()));
+            }
+            repositories.addBooking(booking);
+        }
+
+        services = new BenchmarkServices(repositories);
+        repositories.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    @Benchmark
+    public List<RideBookingResponseDTO> getPassengersByRideId() {
+        return services.rideBookingService.getPassengersByRideId(rideId);
+    }
+
+    // the lookup before the batched one: every booking's passenger read on its own, stored names or not
+    @Benchmark
+    public List<RideBookingResponseDTO> perPassengerFindById() {
+        return repositories.rideBookingRepository.findByRideId(rideId).stream()
+                .map(booking -> {
+                    User passenger = repositories.userRepository.findById(booking.getPassengerId())
+                            .orElseThrow(() -> new EntityNotFoundException("User"));
+                    RideBookingResponseDTO responseDTO = RideBookingResponseDTO.toDTO(booking);
+                    responseDTO.setPassengerFullName(User.fullName(passenger.getFirstName(), passenger.getLastName()));
+                    return responseDTO;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,73 @@
+package ro.unibuc.hello.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+
+/**
+ * The passenger conflict check of createRideBooking, for a commuter with 10 to 10,000 upcoming bookings.
+ * The check is answered from the passenger's cached schedule, so it should stay flat as the history grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ScheduleIndexBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int bookings;
+
+    private BenchmarkServices services;
+    private Instant freeDeparture;
+    private Instant freeArrival;
+    private Instant busyDeparture;
+    private Instant busyArrival;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryRepositories repositories = new InMemoryRepositories();
+        repositories.addUser("commuter");
+
+        // one-hour rides two hours apart, the free slot is the hour between two of them
+        Instant firstDeparture = Instant.now().plus(Duration.ofDays(1));
+        for (int i = 0; i < bookings; i++) {
+            Instant departureTime = firstDeparture.plus(Duration.ofHours(2L * i));
+            Ride ride = repositories.addRide(new Ride("driver", "Bucuresti", "Brasov", departureTime,
+                    departureTime.plus(Duration.ofHours(1)), 50, 3, "B-01-ABC"));
+            RideBooking booking = new RideBooking(ride.getId(), "commuter", Instant.now());
+            booking.setDriverId(ride.getDriverId());
+            booking.setDepartureTime(ride.getDepartureTime());
+            booking.setArrivalTime(ride.getArrivalTime());
+            repositories.addBooking(booking);
+        }
+        Instant middle = firstDeparture.plus(Duration.ofHours(2L * (bookings / 2)));
+        busyDeparture = middle.plus(Duration.ofMinutes(30));
+        busyArrival = busyDeparture.plus(Duration.ofHours(1));
+        freeDeparture = middle.plus(Duration.ofMinutes(65));
+        freeArrival = freeDeparture.plus(Duration.ofMinutes(50));
+
+        services = new BenchmarkServices(repositories);
+    }
+
+    @Benchmark
+    public boolean freeSlot() {
+        return services.scheduleIndex.isPassengerBusy("commuter", freeDeparture, freeArrival);
+    }
+
+    @Benchmark
+    public boolean overlappingSlot() {
+        return services.scheduleIndex.isPassengerBusy("commuter", busyDeparture, busyArrival);
+    }
+}
@@ -0,0 +1,140 @@
+package ro.unibuc.hello.loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.enums.Role;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+import ro.unibuc.hello.repository.UserRepository;
+
+/**
+ * The data the scenarios run against, written straight through the repositories before the first scenario:
+ * scheduled rides on a handful of routes over the next 7 days for search, a few hot rides with many seats for the
+ * booking burst, and completed rides with their passengers for the review storm. Each scenario has its own rides,
+ * so running one doesn't change what the next one sees.
+ */
+final class Dataset {
+
+    record City(String name, double latitude, double longitude) {}
+
+    record Route(City origin, City destination) {}
+
+    // a passenger of a completed ride, who may review its driver once
+    record ReviewablePair(String rideId, String driverId, String passengerId) {}
+
+    static final List<City> CITIES = List.of(
+            new City("Bucharest", 44.4268, 26.1025),
+            new City("Cluj-Napoca", 46.7712, 23.6236),
+            new City("Timisoara", 45.7489, 21.2087),
+            new City("Iasi", 47.1585, 27.6014),
+            new City("Constanta", 44.1598, 28.6348),
+            new City("Brasov", 45.6427, 25.5887),
+            new City("Sibiu", 45.7983, 24.1256),
+            new City("Craiova", 44.3302, 23.7949));
+
+    static final Duration SEARCH_DAYS = Duration.ofDays(7);
+
+    final List<Route> routes = new ArrayList<>();
+    final List<String> passengerIds = new ArrayList<>();
+    final List<String> driverIds = new ArrayList<>();
+    final List<String> scheduledRideIds = new ArrayList<>();
+    final List<String> hotRideIds = new ArrayList<>();
+    final List<String> reviewedDriverIds = new ArrayList<>();
+    final List<ReviewablePair> reviewablePairs = new ArrayList<>();
+    Instant searchFrom;
+
+    static Dataset seed(UserRepository userRepository, RideRepository rideRepository,
+                        RideBookingRepository rideBookingRepository, LoadTestSettings settings) {
+        Dataset dataset = new Dataset();
+        SplittableRandom random = new SplittableRandom(42);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        dataset.searchFrom = now.plus(Duration.ofHours(1));
+
+        for (int i = 0; i < CITIES.size(); i++) {
+            dataset.routes.add(new Route(CITIES.get(i), CITIES.get((i + 1) % CITIES.size())));
+            dataset.routes.add(new Route(CITIES.get(i), CITIES.get((i + 3) % CITIES.size())));
+        }
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < settings.seed("passengers"); i++) {
+            users.add(new User("Passenger", "No" + i, "passenger" + i + "@loadtest.ro", "07" + (10_000_000 + i), List.of(Role.PASSENGER)));
+        }
+        for (int i = 0; i < settings.seed("drivers"); i++) {
+            users.add(new User("Driver", "No" + i, "driver" + i + "@loadtest.ro", "07" + (20_000_000 + i), List.of(Role.DRIVER)));
+        }
+        for (User user : userRepository.saveAll(users)) {
+            (user.getRoles().contains(Role.DRIVER) ? dataset.driverIds : dataset.passengerIds).add(user.getId());
+        }
+
+        // search: spread over the routes and the next 7 days
+        List<Ride> scheduledRides = new ArrayList<>();
+        for (int i = 0; i < settings.seed("scheduled-rides"); i++) {
+            Route route = dataset.routes.get(random.nextInt(dataset.routes.size()));
+            Instant departureTime = dataset.searchFrom.plusSeconds(random.nextLong(SEARCH_DAYS.toSeconds()));
+            scheduledRides.add(ride(dataset.driverIds.get(random.nextInt(dataset.driverIds.size())), route,
+                    departureTime, 4, random));
+        }
+        rideRepository.saveAll(scheduledRides).forEach(ride -> dataset.scheduledRideIds.add(ride.getId()));
+
+        // booking burst: two hours apart, so one passenger can hold a seat on each of them
+        List<Ride> hotRides = new ArrayList<>();
+        for (int i = 0; i < settings.seed("hot-rides"); i++) {
+            hotRides.add(ride(dataset.driverIds.get(i % dataset.driverIds.size()), dataset.routes.get(i % dataset.routes.size()),
+                    now.plus(Duration.ofDays(1)).plus(Duration.ofHours(2L * i)), settings.seed("hot-ride-seats"), random));
+        }
+        rideRepository.saveAll(hotRides).forEach(ride -> dataset.hotRideIds.add(ride.getId()));
+
+        // review storm: completed last month, every passenger of a ride can review its driver once
+        List<Ride> completedRides = new ArrayList<>();
+        for (int i = 0; i < settings.seed("completed-rides"); i++) {
+            Ride ride = ride(dataset.driverIds.get(i % dataset.driverIds.size()), dataset.routes.get(i % dataset.routes.size()),
+                    now.minus(Duration.ofDays(30)).plus(Duration.ofHours(2L * i)), 4, random);
+            ride.setStatus(RideStatus.COMPLETED);
+            completedRides.add(ride);
+        }
+        List<RideBooking> completedBookings = new ArrayList<>();
+        int passengersPerRide = settings.seed("passengers-per-completed-ride");
+        for (Ride ride : rideRepository.saveAll(completedRides)) {
+            if (!dataset.reviewedDriverIds.contains(ride.getDriverId())) {
+                dataset.reviewedDriverIds.add(ride.getDriverId());
+            }
+            for (int p = 0; p < passengersPerRide; p++) {
+                String passengerId = dataset.passengerIds.get(random.nextInt(dataset.passengerIds.size()));
+                RideBooking booking = new RideBooking(ride.getId(), passengerId, ride.getDepartureTime().minus(Duration.ofDays(1)));
+                booking.setDriverId(ride.getDriverId());
+                booking.setDepartureTime(ride.getDepartureTime());
+                booking.setArrivalTime(ride.getArrivalTime());
+                completedBookings.add(booking);
+                dataset.reviewablePairs.add(new ReviewablePair(ride.getId(), ride.getDriverId(), passengerId));
+            }
+        }
+        rideBookingRepository.saveAll(completedBookings);
+
+        return dataset;
+    }
+
+    private static Ride ride(String driverId, Route route, Instant departureTime, int seats, SplittableRandom random) {
+        Ride ride = new Ride(driverId, route.origin().name(), route.destination().name(), departureTime,
+                departureTime.plus(Duration.ofHours(3)), 40 + random.nextInt(60), seats, "LT-" + driverId.substring(18));
+        ride.setStartPoint(near(route.origin(), random));
+        ride.setEndPoint(near(route.destination(), random));
+        return ride;
+    }
+
+    // within about 5 km of the city center; GeoJSON points are (longitude, latitude)
+    static GeoJsonPoint near(City city, SplittableRandom random) {
+        return new GeoJsonPoint(city.longitude() + (random.nextDouble() - 0.5) * 0.12,
+                city.latitude() + (random.nextDouble() - 0.5) * 0.09);
+    }
+}
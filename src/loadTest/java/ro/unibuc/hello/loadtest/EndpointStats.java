@@ -0,0 +1,81 @@
+package ro.unibuc.hello.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * What one endpoint did during the measured part of a scenario. Latencies are in microseconds, from the time
+ * the request was scheduled to be sent, so a stalled server can't hide its queueing delay (coordinated omission).
+ *
+ * Responses are split in three: ok (2xx); rejected (4xx), the business rules saying no, like a full ride or a
+ * second review; and errors (5xx, timeouts, refused connections), which are what the error rate SLO counts.
+ */
+final class EndpointStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder ok = new LongAdder();
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void record(int status, long latencyMicros) {
+        latencies.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+        if (status < 400) {
+            ok.increment();
+        } else if (status < 500) {
+            rejected.computeIfAbsent(String.valueOf(status), key -> new LongAdder()).increment();
+        } else {
+            errors.computeIfAbsent(String.valueOf(status), key -> new LongAdder()).increment();
+        }
+    }
+
+    void recordFailure(Throwable failure, long latencyMicros) {
+        latencies.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+        errors.computeIfAbsent(failure.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long total() {
+        return latencies.getTotalCount();
+    }
+
+    long ok() {
+        return ok.sum();
+    }
+
+    long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    double errorRate() {
+        return total() == 0 ? 0 : (double) errorCount() / total();
+    }
+
+    double p99Millis() {
+        return latencies.getValueAtPercentile(99) / 1000.0;
+    }
+
+    Map<String, Long> rejected() {
+        return snapshot(rejected);
+    }
+
+    Map<String, Long> errors() {
+        return snapshot(errors);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,177 @@
+package ro.unibuc.hello.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+
+import ro.unibuc.hello.loadtest.Dataset.City;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+/**
+ * Times $geoNear itself on a real Mongo, which NearbyRideBenchmark's in-memory repositories can't stand for:
+ * loadtest.geo-near.rides rides (1M by default) spread over Romania and the next 7 days like the benchmark's,
+ * with start_point_2dsphere built by MongoIndexConfig as in production, then one query at a time through
+ * RideRepository.findBookableNear.
+ *
+ * Two shapes are timed: "search", a 10 km, 12 hour search around a city center as sent with the cache off, and
+ * "cell-load", the 28.5 km, whole day candidate read NearbyRideCache makes on a miss. Off by default, seeding 1M
+ * rides takes minutes: ./gradlew loadTest -Ploadtest.scenarios= -Ploadtest.geo-near.enabled=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("ro.unibuc.hello.loadtest.LoadTestSettings#geoNearEnabled")
+@Tag("LoadTest")
+public class GeoNearLoadTest {
+
+    private static final int INSERT_BATCH = 10_000;
+    private static final int DAYS = 7;
+    private static final double SEARCH_RADIUS_METERS = 10_000;
+    private static final double CELL_RADIUS_METERS = 28_500;
+    private static final int SEARCH_LIMIT = 100;
+    private static final int CELL_LIMIT = 2_001;
+
+    // the class is only initialized once the condition above let it run, so a skipped run starts no container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20");
+
+    static {
+        mongoDBContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", mongoDBContainer::getReplicaSetUrl);
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    private final LoadTestSettings settings = new LoadTestSettings();
+    private Instant firstDay;
+
+    // one insertMany per batch, the million rides are never held in memory at once
+    @BeforeAll
+    void seed() {
+        SplittableRandom random = new SplittableRandom(42);
+        firstDay = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        long windowSeconds = Duration.ofDays(DAYS).toSeconds();
+
+        List<Ride> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < settings.geoNearRides(); i++) {
+            Instant departureTime = firstDay.plusSeconds(random.nextLong(windowSeconds));
+            Ride ride = new Ride("driver-" + (i % 10_000), "Start", "End", departureTime,
+                    departureTime.plus(Duration.ofHours(2)), 50, 3, "B-" + (i % 10_000));
+            ride.setStartPoint(new GeoJsonPoint(20.3 + random.nextDouble() * 9.3, 43.7 + random.nextDouble() * 4.5));
+            batch.add(ride);
+            if (batch.size() == INSERT_BATCH) {
+                mongoTemplate.insert(batch, Ride.class);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, Ride.class);
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        mongoDBContainer.stop();
+    }
+
+    @Test
+    void geoNear() {
+        SplittableRandom random = new SplittableRandom(7);
+        Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+        endpoints.put("search", new EndpointStats());
+        endpoints.put("cell-load", new EndpointStats());
+
+        for (int i = 0; i < settings.geoNearWarmupQueries(); i++) {
+            search(random, null);
+            cellLoad(random, null);
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < settings.geoNearQueries(); i++) {
+            search(random, endpoints.get("search"));
+            cellLoad(random, endpoints.get("cell-load"));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        LoadReport report = new LoadReport("geo-near-" + settings.geoNearRides(),
+                settings.geoNearRides() + " rides, one query at a time", elapsed, elapsed, endpoints);
+        report.print(System.out);
+        report.write(Path.of(settings.reportsDir()));
+
+        List<String> violations = new ArrayList<>();
+        endpoints.forEach((endpoint, stats) -> {
+            double p99Budget = settings.geoNearP99Millis(endpoint);
+            if (stats.p99Millis() > p99Budget) {
+                violations.add(String.format("%s p99 %.1f ms is over %.1f ms", endpoint, stats.p99Millis(), p99Budget));
+            }
+            if (stats.errorCount() > 0) {
+                violations.add(endpoint + " failed " + stats.errors());
+            }
+        });
+        assertTrue(violations.isEmpty(), "geo-near missed its SLOs: " + violations);
+    }
+
+    // within about 5 km of a city center, starting somewhere in the morning of one of the seeded days
+    private void search(SplittableRandom random, EndpointStats stats) {
+        GeoJsonPoint point = Dataset.near(Dataset.CITIES.get(random.nextInt(Dataset.CITIES.size())), random);
+        Instant from = firstDay.plus(Duration.ofDays(random.nextInt(DAYS))).plus(Duration.ofHours(6));
+        time(stats, () -> rideRepository.findBookableNear(point.getY(), point.getX(), SEARCH_RADIUS_METERS,
+                from, from.plus(Duration.ofHours(12)), SEARCH_LIMIT));
+    }
+
+    private void cellLoad(SplittableRandom random, EndpointStats stats) {
+        City city = Dataset.CITIES.get(random.nextInt(Dataset.CITIES.size()));
+        Instant day = firstDay.plus(Duration.ofDays(random.nextInt(DAYS)));
+        time(stats, () -> rideRepository.findBookableNear(city.latitude(), city.longitude(), CELL_RADIUS_METERS,
+                day, day.plus(Duration.ofDays(1)), CELL_LIMIT));
+    }
+
+    // warmup queries pass no stats and fail the test outright, measured failures are counted and reported with the SLOs
+    private static void time(EndpointStats stats, Runnable query) {
+        long started = System.nanoTime();
+        try {
+            query.run();
+            if (stats != null) {
+                stats.record(200, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+            }
+        } catch (RuntimeException e) {
+            if (stats != null) {
+                stats.recordFailure(e, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+            } else {
+                throw e;
+            }
+        }
+    }
+}
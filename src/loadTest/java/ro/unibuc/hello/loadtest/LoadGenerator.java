@@ -0,0 +1,114 @@
+package ro.unibuc.hello.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load (run): requests are started at a fixed rate whatever the response times are, each on its own
+ * virtual thread, so a slow server builds up in-flight requests instead of quietly lowering the load.
+ *
+ * Closed-loop load (runClients): a fixed number of clients, each sending its next request as soon as the previous
+ * one answered. That is the shape for asking how much throughput the app gets out of N concurrent connections;
+ * latencies then start when a request is sent, so they don't include the time a client waited on its previous one.
+ *
+ * Either way the first `warmup` is sent but not recorded.
+ */
+final class LoadGenerator {
+
+    private final HttpClient httpClient;
+    private final Requests requests;
+
+    LoadGenerator(HttpClient httpClient, Requests requests) {
+        this.httpClient = httpClient;
+        this.requests = requests;
+    }
+
+    LoadReport run(String name, Scenario scenario, double rate, Duration warmup, Duration duration) {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        SplittableRandom random = new SplittableRandom(scenario.ordinal());
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+
+        long start = System.nanoTime();
+        long measuredFrom = start + warmup.toNanos();
+        long end = measuredFrom + duration.toNanos();
+
+        // closing the executor waits for the requests still in flight
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                if (scheduledAt >= end) {
+                    break;
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Requests.Request request = scenario.next(requests, random);
+                EndpointStats endpointStats = scheduledAt >= measuredFrom
+                        ? stats.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats())
+                        : null;
+                executor.execute(() -> send(request, scheduledAt, endpointStats));
+            }
+        }
+        long finished = System.nanoTime();
+
+        return new LoadReport(name, String.format("%.0f req/s target", rate),
+                Duration.ofNanos(end - measuredFrom), Duration.ofNanos(finished - measuredFrom), new TreeMap<>(stats));
+    }
+
+    LoadReport runClients(String name, Scenario scenario, int clients, Duration warmup, Duration duration) {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        long measuredFrom = start + warmup.toNanos();
+        long end = measuredFrom + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                SplittableRandom random = new SplittableRandom(31L * scenario.ordinal() + client);
+                executor.execute(() -> {
+                    for (long sentAt = System.nanoTime(); sentAt < end; sentAt = System.nanoTime()) {
+                        Requests.Request request = scenario.next(requests, random);
+                        EndpointStats endpointStats = sentAt >= measuredFrom
+                                ? stats.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats())
+                                : null;
+                        send(request, sentAt, endpointStats);
+                    }
+                });
+            }
+        }
+        long finished = System.nanoTime();
+
+        return new LoadReport(name, clients + " concurrent clients",
+                Duration.ofNanos(end - measuredFrom), Duration.ofNanos(finished - measuredFrom), new TreeMap<>(stats));
+    }
+
+    private void send(Requests.Request request, long scheduledAt, EndpointStats stats) {
+        try {
+            HttpResponse<Void> response = httpClient.send(request.httpRequest(), HttpResponse.BodyHandlers.discarding());
+            if (stats != null) {
+                stats.record(response.statusCode(), micros(scheduledAt));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (stats != null) {
+                stats.recordFailure(e, micros(scheduledAt));
+            }
+        }
+    }
+
+    private static long micros(long scheduledAt) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt);
+    }
+}
@@ -0,0 +1,104 @@
+package ro.unibuc.hello.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Throughput, latency percentiles and the rejection/error breakdown of one run, per endpoint.
+ * Written as a text summary plus one HdrHistogram percentile distribution (.hgrm, in milliseconds) per endpoint,
+ * which plots directly in the HdrHistogram plotter for comparing two runs.
+ */
+final class LoadReport {
+
+    private final String name;
+    private final String load;
+    private final Duration measuredWindow;
+    private final Duration elapsed;
+    private final Map<String, EndpointStats> endpoints;
+
+    // name prefixes the report files, load says how the traffic was offered, e.g. "300 req/s target"
+    LoadReport(String name, String load, Duration measuredWindow, Duration elapsed,
+               Map<String, EndpointStats> endpoints) {
+        this.name = name;
+        this.load = load;
+        this.measuredWindow = measuredWindow;
+        this.elapsed = elapsed;
+        this.endpoints = endpoints;
+    }
+
+    // Requests completed per second, the tail of requests still in flight at the end of the window included
+    double throughput() {
+        long total = endpoints.values().stream().mapToLong(EndpointStats::total).sum();
+        return total / (elapsed.toNanos() / 1e9);
+    }
+
+    // every endpoint's latencies in one histogram
+    Histogram latencies() {
+        Histogram all = new Histogram(3);
+        endpoints.values().forEach(stats -> all.add(stats.latencies()));
+        return all;
+    }
+
+    long errorCount() {
+        return endpoints.values().stream().mapToLong(EndpointStats::errorCount).sum();
+    }
+
+    List<String> sloViolations(Scenario scenario, double targetRate, LoadTestSettings settings) {
+        List<String> violations = new ArrayList<>();
+        double minThroughput = targetRate * settings.minThroughputRatio(scenario);
+        if (throughput() < minThroughput) {
+            violations.add(String.format("throughput %.1f req/s is below %.1f req/s", throughput(), minThroughput));
+        }
+        endpoints.forEach((endpoint, stats) -> {
+            double p99Budget = settings.p99Millis(scenario, endpoint);
+            if (stats.p99Millis() > p99Budget) {
+                violations.add(String.format("%s p99 %.1f ms is over %.1f ms", endpoint, stats.p99Millis(), p99Budget));
+            }
+            if (stats.errorRate() > settings.maxErrorRate(scenario)) {
+                violations.add(String.format("%s error rate %.4f is over %.4f %s", endpoint, stats.errorRate(),
+                        settings.maxErrorRate(scenario), stats.errors()));
+            }
+        });
+        return violations;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n== %s: %s, %.1f req/s completed over %ds%n",
+                name, load, throughput(), measuredWindow.toSeconds());
+        out.printf("%-16s %8s %8s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "ok", "p50 ms", "p90 ms", "p99 ms", "max ms", "rejected / errors");
+        endpoints.forEach((endpoint, stats) -> out.printf("%-16s %8d %8d %9.1f %9.1f %9.1f %9.1f  %s / %s%n",
+                endpoint, stats.total(), stats.ok(),
+                stats.latencies().getValueAtPercentile(50) / 1000.0,
+                stats.latencies().getValueAtPercentile(90) / 1000.0,
+                stats.p99Millis(),
+                stats.latencies().getMaxValue() / 1000.0,
+                stats.rejected(), stats.errors()));
+    }
+
+    void write(Path reportsDir) {
+        try {
+            Files.createDirectories(reportsDir);
+            try (PrintStream summary = new PrintStream(Files.newOutputStream(reportsDir.resolve(name + ".txt")))) {
+                print(summary);
+            }
+            for (Map.Entry<String, EndpointStats> endpoint : endpoints.entrySet()) {
+                Path histogram = reportsDir.resolve(name + "-" + endpoint.getKey() + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(histogram))) {
+                    endpoint.getValue().latencies().outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ro.unibuc.hello.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+import ro.unibuc.hello.repository.UserRepository;
+
+/**
+ * Starts the app on a random port against a Testcontainers Mongo, seeds the dataset and replays every scenario
+ * listed in loadtest.scenarios. A scenario fails when it misses its SLOs in loadtest.properties, which fails the
+ * loadTest task: ./gradlew loadTest -Ploadtest.scenarios=booking-burst -Ploadtest.booking-burst.rate=400
+ *
+ * loadtest.booking.write-mode sets booking.write-mode of the app, to compare the atomic and transactional booking
+ * writes under booking-burst.
+ *
+ * With loadtest.concurrency.enabled it also runs the concurrency sweep, which has no SLOs: it records the
+ * throughput at each client count for comparing the platform and virtual thread modes of the app.
+ *
+ * The generator shares the machine with the app and Mongo, so compare runs against each other on the same
+ * machine rather than reading the numbers as the app's capacity.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Tag("LoadTest")
+public class LoadTest {
+
+    // started before the test instance, with PER_CLASS the Spring context is built before any @BeforeAll runs
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20");
+
+    static {
+        mongoDBContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", mongoDBContainer::getReplicaSetUrl);
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+
+        LoadTestSettings settings = new LoadTestSettings();
+        registry.add("spring.threads.virtual.enabled", settings::virtualThreads);
+        registry.add("server.tomcat.max-connections", settings::maxConnections);
+        registry.add("server.tomcat.accept-count", settings::acceptCount);
+        // the Testcontainers Mongo is a single node replica set, so transactional mode runs too
+        registry.add("booking.write-mode", settings::bookingWriteMode);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideBookingRepository rideBookingRepository;
+
+    private final LoadTestSettings settings = new LoadTestSettings();
+    private HttpClient httpClient;
+    private Requests requests;
+
+    @BeforeAll
+    void seed() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        Dataset dataset = Dataset.seed(userRepository, rideRepository, rideBookingRepository, settings);
+        requests = new Requests(URI.create("http://localhost:" + port), dataset);
+    }
+
+    @AfterAll
+    void tearDown() {
+        httpClient.close();
+        mongoDBContainer.stop();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> scenarios() {
+        return settings.scenarios().stream()
+                .map(Scenario::byId)
+                .map(scenario -> DynamicTest.dynamicTest(scenario.id(), () -> run(scenario)));
+    }
+
+    private void run(Scenario scenario) {
+        double rate = settings.rate(scenario);
+        // booking-burst reports are kept apart per booking write mode, so runs in both modes can be compared
+        String name = scenario == Scenario.BOOKING_BURST ? scenario.id() + "-" + settings.bookingWriteMode() : scenario.id();
+        LoadReport report = new LoadGenerator(httpClient, requests).run(name, scenario,
+                rate, settings.warmup(scenario), settings.duration(scenario));
+        report.print(System.out);
+        report.write(Path.of(settings.reportsDir()));
+
+        List<String> violations = report.sloViolations(scenario, rate, settings);
+        assertTrue(violations.isEmpty(), scenario.id() + " missed its SLOs: " + violations);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> concurrencySweep() {
+        if (!settings.concurrencySweep()) {
+            return Stream.empty();
+        }
+        Scenario scenario = settings.concurrencyScenario();
+        String mode = settings.virtualThreads() ? "virtual" : "platform";
+        List<String> rows = new ArrayList<>();
+
+        Stream<DynamicTest> runs = settings.concurrencyClients().stream()
+                .map(clients -> DynamicTest.dynamicTest(scenario.id() + " with " + clients + " clients", () -> {
+                    LoadReport report = new LoadGenerator(httpClient, requests).runClients(
+                            "concurrency-" + mode + "-" + clients, scenario, clients,
+                            settings.concurrencyWarmup(), settings.concurrencyDuration());
+                    report.print(System.out);
+                    report.write(Path.of(settings.reportsDir()));
+
+                    Histogram latencies = report.latencies();
+                    rows.add(String.format("%-9s %8d %10.1f %9.1f %9.1f %9d", mode, clients, report.throughput(),
+                            latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                            report.errorCount()));
+                    assertTrue(latencies.getTotalCount() > 0, "no request completed with " + clients + " clients");
+                }));
+        Stream<DynamicTest> summary = Stream.of(DynamicTest.dynamicTest("summary", () -> {
+            String header = String.format("%-9s %8s %10s %9s %9s %9s", "threads", "clients", "req/s", "p50 ms", "p99 ms", "errors");
+            List<String> lines = new ArrayList<>();
+            lines.add(scenario.id() + ", " + settings.concurrencyDuration().toSeconds() + "s per client count");
+            lines.add(header);
+            lines.addAll(rows);
+            lines.forEach(System.out::println);
+            Files.createDirectories(Path.of(settings.reportsDir()));
+            Files.write(Path.of(settings.reportsDir(), "concurrency-" + mode + ".txt"), lines);
+        }));
+        return Stream.concat(runs, summary);
+    }
+}
@@ -0,0 +1,149 @@
+package ro.unibuc.hello.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * loadtest.properties from the classpath, with any loadtest.* system property on top
+ * (the loadTest task forwards -Ploadtest.* Gradle properties as system properties).
+ */
+final class LoadTestSettings {
+
+    private final Properties properties = new Properties();
+
+    LoadTestSettings() {
+        try (InputStream defaults = LoadTestSettings.class.getResourceAsStream("/loadtest.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.getProperties().forEach((key, value) -> {
+            if (key.toString().startsWith("loadtest.")) {
+                properties.setProperty(key.toString(), value.toString());
+            }
+        });
+    }
+
+    List<String> scenarios() {
+        return Arrays.stream(string("loadtest.scenarios").split(","))
+                .map(String::trim)
+                .filter(scenario -> !scenario.isEmpty())
+                .toList();
+    }
+
+    String reportsDir() {
+        return properties.getProperty("loadtest.reports-dir", "build/reports/loadtest");
+    }
+
+    int seed(String name) {
+        return Integer.parseInt(string("loadtest.seed." + name));
+    }
+
+    double rate(Scenario scenario) {
+        return Double.parseDouble(string("loadtest." + scenario.id() + ".rate"));
+    }
+
+    Duration warmup(Scenario scenario) {
+        return DurationStyle.detectAndParse(string("loadtest." + scenario.id() + ".warmup"));
+    }
+
+    Duration duration(Scenario scenario) {
+        return DurationStyle.detectAndParse(string("loadtest." + scenario.id() + ".duration"));
+    }
+
+    // An endpoint's own p99 budget when it has one, the scenario's otherwise
+    double p99Millis(Scenario scenario, String endpoint) {
+        String prefix = "loadtest." + scenario.id() + ".slo.";
+        return Double.parseDouble(properties.getProperty(prefix + endpoint + ".p99-ms", string(prefix + "p99-ms")));
+    }
+
+    double maxErrorRate(Scenario scenario) {
+        return Double.parseDouble(string("loadtest." + scenario.id() + ".slo.max-error-rate"));
+    }
+
+    // Completed requests per second over the target rate, below it the app could not keep up
+    double minThroughputRatio(Scenario scenario) {
+        return Double.parseDouble(string("loadtest." + scenario.id() + ".slo.min-throughput-ratio"));
+    }
+
+    // Whether the app under test runs its request handlers on virtual threads (spring.threads.virtual.enabled)
+    boolean virtualThreads() {
+        return Boolean.parseBoolean(string("loadtest.server.virtual-threads"));
+    }
+
+    int maxConnections() {
+        return Integer.parseInt(string("loadtest.server.max-connections"));
+    }
+
+    int acceptCount() {
+        return Integer.parseInt(string("loadtest.server.accept-count"));
+    }
+
+    // How the app under test writes seats and bookings (booking.write-mode): atomic or transactional
+    String bookingWriteMode() {
+        return string("loadtest.booking.write-mode");
+    }
+
+    boolean concurrencySweep() {
+        return Boolean.parseBoolean(string("loadtest.concurrency.enabled"));
+    }
+
+    Scenario concurrencyScenario() {
+        return Scenario.byId(string("loadtest.concurrency.scenario"));
+    }
+
+    List<Integer> concurrencyClients() {
+        return Arrays.stream(string("loadtest.concurrency.clients").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+    }
+
+    Duration concurrencyWarmup() {
+        return DurationStyle.detectAndParse(string("loadtest.concurrency.warmup"));
+    }
+
+    Duration concurrencyDuration() {
+        return DurationStyle.detectAndParse(string("loadtest.concurrency.duration"));
+    }
+
+    // JUnit's @EnabledIf for GeoNearLoadTest, read before that class is initialized and starts its container
+    static boolean geoNearEnabled() {
+        return Boolean.parseBoolean(new LoadTestSettings().string("loadtest.geo-near.enabled"));
+    }
+
+    int geoNearRides() {
+        return Integer.parseInt(string("loadtest.geo-near.rides"));
+    }
+
+    int geoNearWarmupQueries() {
+        return Integer.parseInt(string("loadtest.geo-near.warmup-queries"));
+    }
+
+    int geoNearQueries() {
+        return Integer.parseInt(string("loadtest.geo-near.queries"));
+    }
+
+    // A query shape's own p99 budget when it has one, the shared one otherwise
+    double geoNearP99Millis(String endpoint) {
+        String prefix = "loadtest.geo-near.slo.";
+        return Double.parseDouble(properties.getProperty(prefix + endpoint + ".p99-ms", string(prefix + "p99-ms")));
+    }
+
+    private String string(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalStateException("Missing load test setting " + key);
+        }
+        return value.trim();
+    }
+}
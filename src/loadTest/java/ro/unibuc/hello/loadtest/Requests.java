@@ -0,0 +1,118 @@
+package ro.unibuc.hello.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * One builder per endpoint the scenarios hit, each picking its ids and parameters from the dataset.
+ * Only called from the generator thread, which is why the review cursor needs no synchronization.
+ */
+final class Requests {
+
+    // a request to send, endpoint is the short name it is reported and budgeted under
+    record Request(String endpoint, HttpRequest httpRequest) {}
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final URI baseUri;
+    private final Dataset dataset;
+    private int nextReview;
+
+    Requests(URI baseUri, Dataset dataset) {
+        this.baseUri = baseUri;
+        this.dataset = dataset;
+    }
+
+    Request searchRides(SplittableRandom random) {
+        Dataset.Route route = pick(dataset.routes, random);
+        Instant from = randomSearchStart(random);
+        return get("search", "/rides/search?origin=" + encode(route.origin().name())
+                + "&destination=" + encode(route.destination().name())
+                + "&from=" + encode(from.toString())
+                + "&to=" + encode(from.plus(Duration.ofHours(12)).toString())
+                + "&limit=20");
+    }
+
+    Request nearbyRides(SplittableRandom random) {
+        Dataset.City city = pick(Dataset.CITIES, random);
+        var point = Dataset.near(city, random);
+        Instant from = randomSearchStart(random);
+        return get("nearby", "/rides/nearby?latitude=" + point.getY() + "&longitude=" + point.getX()
+                + "&radiusMeters=10000"
+                + "&from=" + encode(from.toString())
+                + "&to=" + encode(from.plus(Duration.ofHours(12)).toString())
+                + "&limit=20");
+    }
+
+    Request ridesByDate(SplittableRandom random) {
+        Instant date = randomSearchStart(random).truncatedTo(ChronoUnit.DAYS);
+        return get("by-date", "/rides/by-date?date=" + encode(date.toString())
+                + "&startLocation=" + encode(pick(Dataset.CITIES, random).name())
+                + "&limit=50");
+    }
+
+    Request ridePassengers(SplittableRandom random) {
+        return get("passengers", "/bookings/" + pick(dataset.scheduledRideIds, random) + "/passengers");
+    }
+
+    Request hotRidePassengers(SplittableRandom random) {
+        return get("passengers", "/bookings/" + pick(dataset.hotRideIds, random) + "/passengers");
+    }
+
+    Request bookHotRide(SplittableRandom random) {
+        return post("book", "/bookings", "{\"rideId\":\"" + pick(dataset.hotRideIds, random)
+                + "\",\"passengerId\":\"" + pick(dataset.passengerIds, random) + "\"}");
+    }
+
+    // walks through the reviewable pairs, once they are used up the reviews are rejected as duplicates
+    Request reviewDriver(SplittableRandom random) {
+        Dataset.ReviewablePair pair = dataset.reviewablePairs.get(nextReview++ % dataset.reviewablePairs.size());
+        return post("review", "/reviews", "{\"reviewerId\":\"" + pair.passengerId()
+                + "\",\"reviewedId\":\"" + pair.driverId()
+                + "\",\"rideId\":\"" + pair.rideId()
+                + "\",\"rating\":" + (1 + random.nextInt(5))
+                + ",\"comment\":\"Load test review\"}");
+    }
+
+    Request driverReviews(SplittableRandom random) {
+        return get("driver-reviews", "/reviews/by-driver/" + pick(dataset.reviewedDriverIds, random) + "?limit=20");
+    }
+
+    Request driverRatingSummary(SplittableRandom random) {
+        return get("driver-summary", "/reviews/by-driver/" + pick(dataset.reviewedDriverIds, random) + "/summary");
+    }
+
+    private Instant randomSearchStart(SplittableRandom random) {
+        return dataset.searchFrom.plus(Duration.ofHours(random.nextInt((int) Dataset.SEARCH_DAYS.toHours() - 12)));
+    }
+
+    private Request get(String endpoint, String pathAndQuery) {
+        return new Request(endpoint, HttpRequest.newBuilder(baseUri.resolve(pathAndQuery))
+                .timeout(TIMEOUT)
+                .GET()
+                .build());
+    }
+
+    private Request post(String endpoint, String path, String json) {
+        return new Request(endpoint, HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build());
+    }
+
+    private static <T> T pick(List<T> values, SplittableRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
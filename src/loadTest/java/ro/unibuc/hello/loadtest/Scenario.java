@@ -0,0 +1,73 @@
+package ro.unibuc.hello.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The traffic mixes replayed by the load test, each one a weighted choice between endpoints.
+ */
+enum Scenario {
+
+    // riders looking for a ride: route search, nearby search and listings, no writes
+    SEARCH_HEAVY("search-heavy") {
+        @Override
+        Requests.Request next(Requests requests, SplittableRandom random) {
+            int pick = random.nextInt(100);
+            if (pick < 40) {
+                return requests.searchRides(random);
+            }
+            if (pick < 65) {
+                return requests.nearbyRides(random);
+            }
+            if (pick < 85) {
+                return requests.ridesByDate(random);
+            }
+            if (pick < 95) {
+                return requests.ridePassengers(random);
+            }
+            return requests.driverReviews(random);
+        }
+    },
+
+    // many passengers booking the same few rides at once, plus the drivers checking who booked
+    BOOKING_BURST("booking-burst") {
+        @Override
+        Requests.Request next(Requests requests, SplittableRandom random) {
+            return random.nextInt(100) < 80 ? requests.bookHotRide(random) : requests.hotRidePassengers(random);
+        }
+    },
+
+    // reviews pouring in after a busy day, with the driver pages read in between
+    REVIEW_STORM("review-storm") {
+        @Override
+        Requests.Request next(Requests requests, SplittableRandom random) {
+            int pick = random.nextInt(100);
+            if (pick < 70) {
+                return requests.reviewDriver(random);
+            }
+            if (pick < 90) {
+                return requests.driverReviews(random);
+            }
+            return requests.driverRatingSummary(random);
+        }
+    };
+
+    private final String id;
+
+    Scenario(String id) {
+        this.id = id;
+    }
+
+    String id() {
+        return id;
+    }
+
+    abstract Requests.Request next(Requests requests, SplittableRandom random);
+
+    static Scenario byId(String id) {
+        return Arrays.stream(values())
+                .filter(scenario -> scenario.id.equals(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown load test scenario " + id));
+    }
+}
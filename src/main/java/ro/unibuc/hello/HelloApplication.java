@@ -3,15 +3,22 @@ package ro.unibuc.hello;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 import ro.unibuc.hello.model.InformationEntity;
 import ro.unibuc.hello.repository.InformationRepository;
 import jakarta.annotation.PostConstruct;
 
-@SpringBootApplication
-@EnableMongoRepositories(basePackages = "ro.unibuc.hello.repository")
+// the reactive client and repositories come from ReactiveMongoConfig, and only with reactive-reads.enabled
+@SpringBootApplication(exclude = {MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class,
+		MongoReactiveRepositoriesAutoConfiguration.class})
+@EnableMongoRepositories(basePackages = "ro.unibuc.hello.repository",
+		excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = "ro\\.unibuc\\.hello\\.repository\\.reactive\\..*"))
 public class HelloApplication {
 
 	@Autowired
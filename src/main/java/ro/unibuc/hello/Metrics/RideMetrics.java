@@ -2,9 +2,7 @@
 package ro.unibuc.hello.Metrics;
 
 import io.micrometer.core.instrument.*;
-import ro.unibuc.hello.model.Ride;
 
-import java.util.List;
 import java.util.function.Supplier;
 
 import org.springframework.stereotype.Component;
@@ -73,7 +71,7 @@ public class RideMetrics {
         decrementActiveRides();
     }
 
-    public List<Ride> recordGetAllRides(Supplier<List<Ride>> supplier) {
+    public <T> T recordGetAllRides(Supplier<T> supplier) {
     return getAllRidesTimer.record(supplier);
     }
 
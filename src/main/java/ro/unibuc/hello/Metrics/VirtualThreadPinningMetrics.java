@@ -0,0 +1,83 @@
+package ro.unibuc.hello.Metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Times the moments a virtual thread blocked while pinned to its carrier, from the JVM's own
+ * jdk.VirtualThreadPinned JFR event. On Java 21 that is blocking inside a synchronized block, e.g. a Mongo read
+ * made by a cache loader that Caffeine runs inside ConcurrentHashMap.compute; every pinned carrier is one less
+ * thread for all the other requests.
+ *
+ * Tagged with the innermost frame of our own code on the pinned stack, so the timer says which loader or
+ * service call to look at, or "other" when JFR cut the stack before reaching it (it keeps 64 frames unless started
+ * with -XX:FlightRecorderOptions:stackdepth=256). Events shorter than `threshold` are not recorded by the JVM at all.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMetrics {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "ro.unibuc.hello.";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Map<String, Timer> timersBySite = new ConcurrentHashMap<>();
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMetrics(MeterRegistry meterRegistry,
+                                       @Value("${metrics.virtual-thread-pinning.threshold:20ms}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::record);
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        recordingStream.close();
+    }
+
+    void record(RecordedEvent event) {
+        timersBySite.computeIfAbsent(site(event), site -> Timer.builder("jvm_virtual_thread_pinned")
+                        .description("Time virtual threads spent blocked while pinned to their carrier thread")
+                        .tag("site", site)
+                        .register(meterRegistry))
+                .record(event.getDuration());
+    }
+
+    // SimpleClassName.method of the innermost frame in our packages, "other" when the stack holds none
+    static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "other";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            String className = frame.getMethod().getType().getName();
+            if (className.startsWith(APP_PACKAGE)) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethod().getName();
+            }
+        }
+        return "other";
+    }
+}
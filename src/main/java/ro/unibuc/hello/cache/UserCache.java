@@ -0,0 +1,124 @@
+package ro.unibuc.hello.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ro.unibuc.hello.events.UserUpdatedEvent;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.UserRepository;
+
+/**
+ * Node-local read-through cache of users by id, for the existence checks and lookups done on the write paths.
+ * Missing ids are cached too, for negative-expire-after-write only, so a burst of requests for an unknown user
+ * doesn't reach Mongo every time.
+ *
+ * Entries are dropped when the user is updated on this node (name change, new rating); changes made on other
+ * nodes show up after expire-after-write. Cached users are shared, only read them: anything that writes a user
+ * loads it from the repository. Set user-cache.enabled=false to always ask Mongo.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+
+    private final Cache<String, Optional<User>> users;
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${user-cache.enabled:true}") boolean enabled,
+                     @Value("${user-cache.max-users:10000}") long maxUsers,
+                     @Value("${user-cache.expire-after-write:60s}") Duration expireAfterWrite,
+                     @Value("${user-cache.negative-expire-after-write:5s}") Duration negativeExpireAfterWrite) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+
+        // size eviction is Caffeine's W-TinyLFU, a scan over many one-off ids doesn't push out the hot users
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfter(new Expiry<String, Optional<User>>() {
+                    @Override
+                    public long expireAfterCreate(String id, Optional<User> user, long currentTime) {
+                        return (user.isPresent() ? expireAfterWrite : negativeExpireAfterWrite).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Optional<User> user, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Optional<User> user, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    public Optional<User> findById(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return enabled ? users.get(id, userRepository::findById) : userRepository.findById(id);
+    }
+
+    public boolean exists(String id) {
+        return findById(id).isPresent();
+    }
+
+    // The users found among the ids, keyed by id; the ones not cached yet are read in one round trip
+    public Map<String, User> findAllById(Collection<String> ids) {
+        Map<String, User> found = new HashMap<>();
+        if (!enabled) {
+            for (User user : userRepository.findAllById(ids)) {
+                found.put(user.getId(), user);
+            }
+            return found;
+        }
+
+        users.getAll(ids, this::loadAll).forEach((id, user) -> user.ifPresent(value -> found.put(id, value)));
+        return found;
+    }
+
+    // Call after any write to the user
+    public void evict(String id) {
+        if (id != null) {
+            users.invalidate(id);
+        }
+    }
+
+    // after the rename is committed, or right away when it wasn't written in a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private Map<String, Optional<User>> loadAll(Set<? extends String> ids) {
+        Map<String, Optional<User>> loaded = new HashMap<>();
+        for (String id : ids) {
+            loaded.put(id, Optional.empty());
+        }
+        for (User user : userRepository.findAllById(new ArrayList<String>(ids))) {
+            loaded.put(user.getId(), Optional.of(user));
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,113 @@
+package ro.unibuc.hello.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import ro.unibuc.hello.model.IdempotencyRecord;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+
+@Configuration
+public class MongoIndexConfig {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    // Documents whose annotated indexes are created at startup.
+    // Users are left out on purpose: their unique mail/phone indexes were never enforced
+    // and existing data may not satisfy them.
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Ride.class, RideBooking.class, IdempotencyRecord.class,
+            Review.class);
+
+    // Indexes an annotated one replaced, dropped once their replacement is in place. An index can't be redefined
+    // under the same name, the replacement gets a new one.
+    private static final Map<Class<?>, List<String>> REPLACED_INDEXES = Map.of(
+            Ride.class, List.of("status_departure_idx"));
+
+    private static final String IDEMPOTENCY_TTL_INDEX = "idempotency_ttl_idx";
+
+    private final MongoTemplate mongoTemplate;
+    private final UniqueIndexes uniqueIndexes;
+    private final Duration idempotencyTtl;
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate, UniqueIndexes uniqueIndexes,
+                            @Value("${idempotency.ttl:24h}") Duration idempotencyTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.uniqueIndexes = uniqueIndexes;
+        this.idempotencyTtl = idempotencyTtl;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(index -> ensureIndex(indexOps, document, index));
+            List<IndexInfo> built = indexOps.getIndexInfo();
+            built.stream()
+                    .filter(IndexInfo::isUnique)
+                    .forEach(index -> uniqueIndexes.markBuilt(index.getName()));
+            built.stream()
+                    .map(IndexInfo::getName)
+                    .filter(REPLACED_INDEXES.getOrDefault(document, List.of())::contains)
+                    .forEach(name -> {
+                        logger.info("Dropping index {} on {}, it was replaced", name, document.getSimpleName());
+                        indexOps.dropIndex(name);
+                    });
+        }
+        ensureIdempotencyTtl();
+    }
+
+    // A unique index fails to build while the collection holds duplicates. That must not stop the app: the index is
+    // left out of UniqueIndexes, so duplicates keep being looked for before inserting, until they are removed
+    // (see Data migrations in the README) and the next start builds it.
+    private void ensureIndex(IndexOperations indexOps, Class<?> document, IndexDefinition index) {
+        try {
+            indexOps.ensureIndex(index);
+        } catch (DataAccessException e) {
+            if (!index.getIndexOptions().getBoolean("unique", false)) {
+                throw e;
+            }
+            logger.error("Could not build unique index {} on {}, remove the duplicates it reports: {}",
+                    index.getIndexOptions().getString("name"), document.getSimpleName(), e.getMessage());
+        }
+    }
+
+    // Created here rather than annotated so idempotency.ttl can change: ensureIndex fails on an existing index with
+    // other options, a changed TTL is applied to the existing index with collMod instead.
+    private void ensureIdempotencyTtl() {
+        IndexOperations indexOps = mongoTemplate.indexOps(IdempotencyRecord.class);
+        Optional<IndexInfo> existing = indexOps.getIndexInfo().stream()
+                .filter(index -> IDEMPOTENCY_TTL_INDEX.equals(index.getName()))
+                .findFirst();
+
+        if (existing.isEmpty()) {
+            indexOps.ensureIndex(new Index().on("createdAt", Sort.Direction.ASC)
+                    .named(IDEMPOTENCY_TTL_INDEX)
+                    .expire(idempotencyTtl));
+        } else if (!existing.get().getExpireAfter().map(idempotencyTtl::equals).orElse(false)) {
+            mongoTemplate.executeCommand(new Document("collMod", mongoTemplate.getCollectionName(IdempotencyRecord.class))
+                    .append("index", new Document("name", IDEMPOTENCY_TTL_INDEX)
+                            .append("expireAfterSeconds", idempotencyTtl.toSeconds())));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ro.unibuc.hello.config;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The unique indexes MongoIndexConfig found in place at startup. A unique index can't be built over existing
+ * duplicates, so until it is listed here the code relying on it to reject a duplicate insert has to look for one
+ * beforehand, as it did before the index existed.
+ */
+@Component
+public class UniqueIndexes {
+
+    private final Set<String> built = ConcurrentHashMap.newKeySet();
+
+    public boolean isBuilt(String indexName) {
+        return built.contains(indexName);
+    }
+
+    public void markBuilt(String indexName) {
+        built.add(indexName);
+    }
+}
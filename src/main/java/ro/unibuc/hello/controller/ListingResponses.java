@@ -0,0 +1,64 @@
+package ro.unibuc.hello.controller;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The two shapes a listing endpoint answers in. A page is a JSON array with the cursor of the next page, if there
+ * is one, in the X-Next-Cursor header. A stream is every document as newline delimited JSON, written from the Mongo
+ * cursor as batches arrive and flushed every STREAM_FLUSH_EVERY documents so the client sees them without waiting
+ * for the end.
+ */
+@Component
+public class ListingResponses {
+    private static final Logger logger = LoggerFactory.getLogger(ListingResponses.class);
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int STREAM_FLUSH_EVERY = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public ListingResponses(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static <T> ResponseEntity<T> page(T body, String nextCursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(body);
+    }
+
+    // The stream is opened once the response is being written and closed when it is done, what names the documents
+    // in the log line
+    public ResponseEntity<StreamingResponseBody> ndjson(String what, Supplier<? extends Stream<?>> documents) {
+        StreamingResponseBody body = outputStream -> {
+            int written = 0;
+            try (Stream<?> stream = documents.get()) {
+                Iterator<?> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                    if (++written % STREAM_FLUSH_EVERY == 0) {
+                        outputStream.flush();
+                    }
+                }
+            }
+            outputStream.flush();
+            logger.info("Streamed {} {}", written, what);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
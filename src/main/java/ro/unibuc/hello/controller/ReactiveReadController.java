@@ -0,0 +1,86 @@
+package ro.unibuc.hello.controller;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.dto.ride.RideResponseDTO;
+import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.exceptions.review.InvalidReviewException;
+import ro.unibuc.hello.exceptions.ride.InvalidRideException;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.service.ReactiveReadService;
+
+/**
+ * Streaming versions of the listing endpoints, on the same paths as the paged ones in RideController,
+ * ReviewController and RideBookingController. A request sent with Accept: application/x-ndjson lands here and gets
+ * every matching document as newline delimited JSON, any other Accept keeps getting the paged JSON array. That is
+ * the same selector as the blocking streams (RideStreamController, UserController), this one replaces the blocking
+ * GET /rides stream while it is enabled.
+ *
+ * The Flux is written by Spring MVC itself: the request thread is released, each document is written as the driver
+ * hands it over and the next one is only requested once it is out, so a slow client slows the Mongo cursor down
+ * instead of filling the heap. Only there with reactive-reads.enabled=true.
+ */
+@Controller
+@ConditionalOnProperty(name = "reactive-reads.enabled", havingValue = "true")
+public class ReactiveReadController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReadController.class);
+
+    private final ReactiveReadService reactiveReadService;
+
+    public ReactiveReadController(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    // GET /rides?after=<id>, Accept: application/x-ndjson
+    @GetMapping(value = "/rides", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Ride>> streamRides(@RequestParam(required = false) String after) {
+        logger.info("Received request to stream rides after {}", after);
+        return ResponseEntity.ok(reactiveReadService.streamRides(after));
+    }
+
+    // GET /rides/by-date?date=YYYY-MM-DD&startLocation=&endLocation=&after=<cursor>, Accept: application/x-ndjson
+    @GetMapping(value = "/rides/by-date", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<RideResponseDTO>> streamRidesByDate(
+            @RequestParam @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC") Instant date,
+            @RequestParam(required = false) String startLocation,
+            @RequestParam(required = false) String endLocation,
+            @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(reactiveReadService.streamScheduledRidesByDate(date, startLocation, endLocation, after));
+    }
+
+    // GET /reviews/by-driver/{id}?after=<cursor>, Accept: application/x-ndjson
+    // summaryOnly=true is still answered by ReviewController
+    @GetMapping(value = "/reviews/by-driver/{id}", params = "summaryOnly!=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Review>> streamReviewsByDriver(
+            @PathVariable(name = "id", required = true) String id,
+            @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(reactiveReadService.streamReviewsByDriver(id, after));
+    }
+
+    // GET /bookings/{rideId}/passengers, Accept: application/x-ndjson
+    @GetMapping(value = "/bookings/{rideId}/passengers", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<RideBookingResponseDTO>> streamPassengersByRideId(@PathVariable("rideId") String rideId) {
+        return ResponseEntity.ok(reactiveReadService.streamPassengersByRideId(rideId));
+    }
+
+    // the methods above can't return a message body instead of the Flux, an invalid cursor is answered from here
+    @ExceptionHandler({InvalidRideException.class, InvalidReviewException.class})
+    public ResponseEntity<String> handleInvalidCursor(RuntimeException e) {
+        logger.error("Invalid stream request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+}
@@ -10,8 +10,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import ro.unibuc.hello.dto.review.DriverRatingSummaryDTO;
+import ro.unibuc.hello.dto.review.ReviewPage;
 import ro.unibuc.hello.dto.review.ReviewRequestDTO;
 import ro.unibuc.hello.dto.review.ReviewResponseDTO;
+import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.exceptions.review.InvalidReviewException;
 import ro.unibuc.hello.model.Review;
 import ro.unibuc.hello.service.ReviewService;
@@ -19,7 +22,7 @@ import ro.unibuc.hello.service.ReviewService;
 @Controller
 @RequestMapping("/reviews")
 public class ReviewController {
-    
+
     private final ReviewService reviewService;
 
     public ReviewController(ReviewService reviewService) {
@@ -34,12 +37,37 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
 
-    // GET /reviews/by-driver/{id}
+    // GET /reviews/by-driver/{id}?limit=100&after=<cursor>&summaryOnly=false
+    // Newest reviews first, the cursor for the next page comes back in X-Next-Cursor.
+    // summaryOnly=true answers with the driver's rating summary instead, no review is read
     @GetMapping("/by-driver/{id}")
-    public ResponseEntity<List<Review>> getReviewsByDriver(
+    public ResponseEntity<?> getReviewsByDriver(
+        @PathVariable(name="id", required=true) String id,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit,
+        @RequestParam(defaultValue = "false") boolean summaryOnly) {
+        if (summaryOnly) {
+            return getDriverRatingSummary(id);
+        }
+        try {
+            ReviewPage page = reviewService.getReviewsByDriver(id, after, limit);
+
+            return ListingResponses.page(page.getReviews(), page.getNextCursor());
+        } catch (InvalidReviewException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    // GET /reviews/by-driver/{id}/summary
+    @GetMapping("/by-driver/{id}/summary")
+    public ResponseEntity<?> getDriverRatingSummary(
         @PathVariable(name="id", required=true) String id) {
-            List<Review> reviews = reviewService.getReviewsByDriver(id);
-            return ResponseEntity.ok(reviews);
+        try {
+            DriverRatingSummaryDTO summary = reviewService.getDriverRatingSummary(id);
+            return ResponseEntity.ok(summary);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
     }
 
     // POST /reviews
@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,10 +26,12 @@ import ro.unibuc.hello.model.*;
 public class RideBookingController {
     
     private final RideBookingService rideBookingService;
+    private final IdempotencyService idempotencyService;
 
-    public RideBookingController(RideBookingService rideBookingService)
+    public RideBookingController(RideBookingService rideBookingService, IdempotencyService idempotencyService)
     {
         this.rideBookingService = rideBookingService;
+        this.idempotencyService = idempotencyService;
     }
 
     //Get all passengers for a ride: /bookings/{rideId}/passengers
@@ -39,20 +42,24 @@ public class RideBookingController {
         return ResponseEntity.ok(passengers);
     }
 
+    // A retry sent with the same Idempotency-Key gets the first response back instead of booking again
     @PostMapping
-    public ResponseEntity<?> createRideBooking(@RequestBody RideBookingRequestDTO rideBookingRequestDTO)
+    public ResponseEntity<?> createRideBooking(@RequestBody RideBookingRequestDTO rideBookingRequestDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
     {
-        try {
-            RideBookingResponseDTO rideBookingResponse = rideBookingService.createRideBooking(rideBookingRequestDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body(null);
-        } catch (InvalidRideBookingException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
-        } catch (RideBookingConflictException e) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error creating ride: " + e.getMessage());
-        }
+        return idempotencyService.execute("bookings", idempotencyKey, rideBookingRequestDTO, () -> {
+            try {
+                RideBookingResponseDTO rideBookingResponse = rideBookingService.createRideBooking(rideBookingRequestDTO);
+                return ResponseEntity.status(HttpStatus.CREATED).body(null);
+            } catch (InvalidRideBookingException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            } catch (RideBookingConflictException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error creating ride: " + e.getMessage());
+            }
+        });
     }
 
     @PatchMapping("/cancel/{rideId}/{passengerId}")
@@ -63,6 +70,8 @@ public class RideBookingController {
             return ResponseEntity.status(HttpStatus.ACCEPTED).body(null);
         } catch (InvalidRideBookingException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Booking was changed by another request, try again.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("Error cancelling ride: " + e.getMessage());
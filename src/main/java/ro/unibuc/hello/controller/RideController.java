@@ -2,12 +2,12 @@ package ro.unibuc.hello.controller;
 
 import java.time.Instant;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,12 +17,13 @@ import org.springframework.web.bind.annotation.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import ro.unibuc.hello.Metrics.RideMetrics;
+import ro.unibuc.hello.dto.ride.NearbyRideResponseDTO;
+import ro.unibuc.hello.dto.ride.RidePage;
 import ro.unibuc.hello.dto.ride.RideRequestDTO;
 import ro.unibuc.hello.dto.ride.RideResponseDTO;
-import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.exceptions.ride.InvalidRideException;
 import ro.unibuc.hello.exceptions.ride.RideConflictException;
-import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.service.IdempotencyService;
 import ro.unibuc.hello.service.RideService;
 
 @Controller
@@ -32,57 +33,121 @@ public class RideController {
 
     private final RideService rideService;
     private final RideMetrics rideMetrics;
+    private final IdempotencyService idempotencyService;
 
-    public RideController(RideService rideService, RideMetrics rideMetrics) {
+    public RideController(RideService rideService, RideMetrics rideMetrics, IdempotencyService idempotencyService) {
         this.rideService = rideService;
         this.rideMetrics = rideMetrics;
+        this.idempotencyService = idempotencyService;
     }
 
-    // GET /rides 
+    // GET /rides?limit=100&after=<id>
+    // Keyset pagination on _id, the id to continue from comes back in the X-Next-Cursor header.
+    // Accept: application/x-ndjson streams every ride instead (RideStreamController or ReactiveReadController)
     @GetMapping
-    public ResponseEntity<List<Ride>> getAllRides() {
-        logger.info("Received request to get all rides");
+    public ResponseEntity<?> getAllRides(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit) {
+        logger.info("Received request to get rides after {}", after);
 
-        List<Ride> rides = rideMetrics.recordGetAllRides(() -> rideService.getAllRides());
+        try {
+            RidePage page = rideMetrics.recordGetAllRides(() -> rideService.getRidesPage(after, limit));
 
-        logger.info("Found {} rides", rides.size());
-        return ResponseEntity.ok(rides);
+            logger.info("Found {} rides", page.getRides().size());
+            return ListingResponses.page(page.getRides(), page.getNextCursor());
+        } catch (InvalidRideException e) {
+            logger.error("Invalid ride page request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
-    // GET /rides/by-date?date=YYYY-MM-DD 
+    // GET /rides/by-date?date=YYYY-MM-DD&startLocation=&endLocation=&limit=100&after=<cursor>
+    // Scheduled rides of the day in departure order, the cursor for the next page comes back in X-Next-Cursor
     @GetMapping("/by-date")
-    public ResponseEntity<List<RideResponseDTO>> getRidesByDate(
-            @RequestParam @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC") Instant date) {
-        List<RideResponseDTO> rides = rideService.getRidesByDate(date)
-                                                 .stream()
-                                                 .filter(ride -> ride.getStatus() == RideStatus.SCHEDULED)
-                                                 .map(RideResponseDTO::toDTO)
-                                                 .collect(Collectors.toList());
-        return ResponseEntity.ok(rides);
+    public ResponseEntity<?> getRidesByDate(
+            @RequestParam @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC") Instant date,
+            @RequestParam(required = false) String startLocation,
+            @RequestParam(required = false) String endLocation,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            RidePage page = rideService.getScheduledRidesByDate(date, startLocation, endLocation, after, limit);
+
+            return ListingResponses.page(page.getRides().stream().map(RideResponseDTO::toDTO).toList(),
+                    page.getNextCursor());
+        } catch (InvalidRideException e) {
+            logger.error("Invalid ride search: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
-    // POST /rides
-    @PostMapping
-    public ResponseEntity<?> createRide(@RequestBody RideRequestDTO rideRequestDTO) {
+    // GET /rides/search?origin=&destination=&from=&to=&limit=
+    // Bookable rides on a route in a departure window of at most a week, locations match regardless of case and diacritics
+    @GetMapping("/search")
+    public ResponseEntity<?> searchRides(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit) {
         try {
-            RideResponseDTO rideResponse = rideService.createRide(rideRequestDTO);
-            rideMetrics.incrementCreatedRides();
+            return ResponseEntity.ok(rideService.searchRides(origin, destination, from, to, limit)
+                    .stream()
+                    .map(RideResponseDTO::toDTO)
+                    .toList());
+        } catch (InvalidRideException e) {
+            logger.error("Invalid ride search: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
 
-            logger.info("Ride created");
-            return ResponseEntity.status(HttpStatus.CREATED).body(rideResponse);
+    // GET /rides/nearby?latitude=&longitude=&radiusMeters=&from=&to=&limit=
+    // Bookable rides starting close to a point, nearest first; only rides created with coordinates are found
+    @GetMapping("/nearby")
+    public ResponseEntity<?> getNearbyRides(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5000") double radiusMeters,
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(rideService.findNearbyRides(latitude, longitude, radiusMeters, from, to, limit)
+                    .stream()
+                    .map(NearbyRideResponseDTO::toDTO)
+                    .toList());
         } catch (InvalidRideException e) {
-            logger.error("Invalid ride data: {}", e.getMessage());
+            logger.error("Invalid nearby search: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
-        } catch (RideConflictException e) {
-            logger.info("Ride conflict: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        } catch (Exception e) {
-            logger.error("Error creating ride: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error creating ride: " + e.getMessage());
         }
     }
 
+    // POST /rides
+    // A retry sent with the same Idempotency-Key gets the first response back instead of creating the ride again
+    @PostMapping
+    public ResponseEntity<?> createRide(@RequestBody RideRequestDTO rideRequestDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("rides", idempotencyKey, rideRequestDTO, () -> {
+            try {
+                RideResponseDTO rideResponse = rideService.createRide(rideRequestDTO);
+                rideMetrics.incrementCreatedRides();
+
+                logger.info("Ride created");
+                return ResponseEntity.status(HttpStatus.CREATED).body(rideResponse);
+            } catch (InvalidRideException e) {
+                logger.error("Invalid ride data: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            } catch (RideConflictException e) {
+                logger.info("Ride conflict: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error creating ride: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error creating ride: " + e.getMessage());
+            }
+        });
+    }
+
     @PatchMapping("/{rideId}/start")
     public ResponseEntity<?> updateRideStatusToInProgress(@PathVariable String rideId) {
         try {
@@ -91,6 +156,9 @@ public class RideController {
         } catch (InvalidRideException e) {
             logger.error("Invalid ride data: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            logger.info("Ride changed concurrently: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Ride was changed by another request, try again.");
         } catch (Exception e) {
             logger.error("Error starting ride: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -110,6 +178,9 @@ public class RideController {
         } catch (InvalidRideException e) {
             logger.error("Invalid ride data: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            logger.info("Ride changed concurrently: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Ride was changed by another request, try again.");
         } catch (Exception e) {
             logger.error("Error completing ride: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -127,6 +198,9 @@ public class RideController {
         } catch (InvalidRideException e) {
             logger.error("Invalid ride data: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            logger.info("Ride changed concurrently: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Ride was changed by another request, try again.");
         } catch (Exception e) {
             logger.error("Error cancelling ride: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,39 @@
+package ro.unibuc.hello.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import ro.unibuc.hello.service.RideService;
+
+// GET /rides with Accept: application/x-ndjson, next to the paged listing in RideController. With
+// reactive-reads.enabled=true ReactiveReadController answers the same request instead, both can't be mapped at once.
+@Controller
+@RequestMapping("/rides")
+@ConditionalOnProperty(name = "reactive-reads.enabled", havingValue = "false", matchIfMissing = true)
+public class RideStreamController {
+    private static final Logger logger = LoggerFactory.getLogger(RideStreamController.class);
+
+    private final RideService rideService;
+    private final ListingResponses listingResponses;
+
+    public RideStreamController(RideService rideService, ListingResponses listingResponses) {
+        this.rideService = rideService;
+        this.listingResponses = listingResponses;
+    }
+
+    // Every ride as newline delimited JSON, written from the Mongo cursor as batches arrive
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRides() {
+        logger.info("Received request to stream all rides");
+
+        return listingResponses.ndjson("rides", rideService::streamAllRides);
+    }
+}
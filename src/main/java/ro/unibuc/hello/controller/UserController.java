@@ -1,8 +1,7 @@
 package ro.unibuc.hello.controller;
 
-import java.util.List;
-
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,13 +9,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.springframework.dao.DuplicateKeyException;
 
+import ro.unibuc.hello.dto.user.UserPage;
 import ro.unibuc.hello.dto.user.UserRequestDTO;
 import ro.unibuc.hello.dto.user.UserResponseDTO;
 import ro.unibuc.hello.exception.EntityNotFoundException;
-import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.exceptions.user.InvalidUserException;
 import ro.unibuc.hello.service.UserService;
 
 @Controller
@@ -24,15 +26,33 @@ import ro.unibuc.hello.service.UserService;
 public class UserController {
     
     private final UserService userService;
+    private final ListingResponses listingResponses;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ListingResponses listingResponses) {
         this.userService = userService;
+        this.listingResponses = listingResponses;
     }
 
+    // GET /users?limit=100&after=<id>
+    // Keyset pagination on _id, the id to continue from comes back in the X-Next-Cursor header
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<?> getAllUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + ListingResponses.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            UserPage page = userService.getUsersPage(after, limit);
+
+            return ListingResponses.page(page.getUsers(), page.getNextCursor());
+        } catch (InvalidUserException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    // GET /users, Accept: application/x-ndjson
+    // Every user's public profile as newline delimited JSON, written from the Mongo cursor as batches arrive
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return listingResponses.ndjson("users", userService::streamAllUsers);
     }
     
     @GetMapping("/{id}")
@@ -0,0 +1,77 @@
+package ro.unibuc.hello.dto.review;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ro.unibuc.hello.model.DriverRatingSummary;
+
+public class DriverRatingSummaryDTO {
+    private String driverId;
+    private long reviewsNumber;
+    private long ratingsSum;
+    private Double avgRating;
+    // every rating from 1 to 5, in order, with how many reviews gave it
+    private Map<Integer, Long> stars;
+
+    public DriverRatingSummaryDTO() {}
+
+    public DriverRatingSummaryDTO(String driverId, long reviewsNumber, long ratingsSum, Double avgRating,
+                                  Map<Integer, Long> stars) {
+        this.driverId = driverId;
+        this.reviewsNumber = reviewsNumber;
+        this.ratingsSum = ratingsSum;
+        this.avgRating = avgRating;
+        this.stars = stars;
+    }
+
+    // the average is derived here, the summary only stores the totals
+    public static DriverRatingSummaryDTO toDTO(DriverRatingSummary summary) {
+        Map<Integer, Long> stars = new LinkedHashMap<>();
+        for (int rating = DriverRatingSummary.MIN_RATING; rating <= DriverRatingSummary.MAX_RATING; rating++) {
+            stars.put(rating, summary.getStars() != null ? summary.getStars().getOrDefault(String.valueOf(rating), 0L) : 0L);
+        }
+        Double avgRating = summary.getCount() > 0 ? (double) summary.getSum() / summary.getCount() : 0.0;
+
+        return new DriverRatingSummaryDTO(summary.getDriverId(), summary.getCount(), summary.getSum(), avgRating, stars);
+    }
+
+    public String getDriverId() {
+        return driverId;
+    }
+
+    public void setDriverId(String driverId) {
+        this.driverId = driverId;
+    }
+
+    public long getReviewsNumber() {
+        return reviewsNumber;
+    }
+
+    public void setReviewsNumber(long reviewsNumber) {
+        this.reviewsNumber = reviewsNumber;
+    }
+
+    public long getRatingsSum() {
+        return ratingsSum;
+    }
+
+    public void setRatingsSum(long ratingsSum) {
+        this.ratingsSum = ratingsSum;
+    }
+
+    public Double getAvgRating() {
+        return avgRating;
+    }
+
+    public void setAvgRating(Double avgRating) {
+        this.avgRating = avgRating;
+    }
+
+    public Map<Integer, Long> getStars() {
+        return stars;
+    }
+
+    public void setStars(Map<Integer, Long> stars) {
+        this.stars = stars;
+    }
+}
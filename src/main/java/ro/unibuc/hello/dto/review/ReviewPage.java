@@ -0,0 +1,24 @@
+package ro.unibuc.hello.dto.review;
+
+import java.util.List;
+
+import ro.unibuc.hello.model.Review;
+
+// One page of reviews; nextCursor is the opaque value to pass as `after` for the next page, null on the last page
+public class ReviewPage {
+    private final List<Review> reviews;
+    private final String nextCursor;
+
+    public ReviewPage(List<Review> reviews, String nextCursor) {
+        this.reviews = reviews;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
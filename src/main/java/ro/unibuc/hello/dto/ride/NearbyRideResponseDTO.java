@@ -0,0 +1,39 @@
+package ro.unibuc.hello.dto.ride;
+
+import org.springframework.data.geo.GeoResult;
+
+import ro.unibuc.hello.model.Ride;
+
+public class NearbyRideResponseDTO {
+    private RideResponseDTO ride;
+    private double distanceMeters;
+
+    public NearbyRideResponseDTO() {}
+
+    public NearbyRideResponseDTO(RideResponseDTO ride, double distanceMeters) {
+        this.ride = ride;
+        this.distanceMeters = distanceMeters;
+    }
+
+    // distances of nearby results are in meters
+    public static NearbyRideResponseDTO toDTO(GeoResult<Ride> result) {
+        return new NearbyRideResponseDTO(RideResponseDTO.toDTO(result.getContent()),
+            Math.round(result.getDistance().getValue()));
+    }
+
+    public RideResponseDTO getRide() {
+        return ride;
+    }
+
+    public void setRide(RideResponseDTO ride) {
+        this.ride = ride;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+}
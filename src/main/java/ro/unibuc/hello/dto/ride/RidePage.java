@@ -0,0 +1,24 @@
+package ro.unibuc.hello.dto.ride;
+
+import java.util.List;
+
+import ro.unibuc.hello.model.Ride;
+
+// One page of rides; nextCursor is the opaque value to pass as `after` for the next page, null on the last page
+public class RidePage {
+    private final List<Ride> rides;
+    private final String nextCursor;
+
+    public RidePage(List<Ride> rides, String nextCursor) {
+        this.rides = rides;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Ride> getRides() {
+        return rides;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
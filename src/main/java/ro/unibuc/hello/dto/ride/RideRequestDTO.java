@@ -3,6 +3,8 @@ package ro.unibuc.hello.dto.ride;
 import ro.unibuc.hello.model.Ride;
 import java.time.Instant;
 
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import lombok.Getter;
@@ -18,6 +20,11 @@ public class RideRequestDTO {
     private int seatPrice;
     private int seatsAvailable;
     private String carLicensePlate;
+    // optional, both coordinates of a point or neither
+    private Double startLatitude;
+    private Double startLongitude;
+    private Double endLatitude;
+    private Double endLongitude;
 
     public RideRequestDTO(String driverId, String startLocation, String endLocation, 
             Instant departureTime, Instant arrivalTime, int seatPrice,
@@ -36,7 +43,7 @@ public class RideRequestDTO {
     public RideRequestDTO(){}
 
     public Ride toEntity() {
-        return new Ride(
+        Ride ride = new Ride(
             this.driverId,
             this.startLocation,
             this.endLocation,
@@ -46,6 +53,46 @@ public class RideRequestDTO {
             this.seatsAvailable,
             this.carLicensePlate
         );
+        // GeoJSON points are (longitude, latitude)
+        if (startLatitude != null && startLongitude != null) {
+            ride.setStartPoint(new GeoJsonPoint(startLongitude, startLatitude));
+        }
+        if (endLatitude != null && endLongitude != null) {
+            ride.setEndPoint(new GeoJsonPoint(endLongitude, endLatitude));
+        }
+        return ride;
+    }
+
+    public Double getStartLatitude() {
+        return startLatitude;
+    }
+
+    public void setStartLatitude(Double startLatitude) {
+        this.startLatitude = startLatitude;
+    }
+
+    public Double getStartLongitude() {
+        return startLongitude;
+    }
+
+    public void setStartLongitude(Double startLongitude) {
+        this.startLongitude = startLongitude;
+    }
+
+    public Double getEndLatitude() {
+        return endLatitude;
+    }
+
+    public void setEndLatitude(Double endLatitude) {
+        this.endLatitude = endLatitude;
+    }
+
+    public Double getEndLongitude() {
+        return endLongitude;
+    }
+
+    public void setEndLongitude(Double endLongitude) {
+        this.endLongitude = endLongitude;
     }
 
     public String getDriverId() {
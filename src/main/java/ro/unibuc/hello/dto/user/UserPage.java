@@ -0,0 +1,22 @@
+package ro.unibuc.hello.dto.user;
+
+import java.util.List;
+
+// One page of GET /users; nextCursor is the id to pass as `after` for the next page, null on the last page
+public class UserPage {
+    private final List<UserResponseDTO> users;
+    private final String nextCursor;
+
+    public UserPage(List<UserResponseDTO> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserResponseDTO> getUsers() {
+        return users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
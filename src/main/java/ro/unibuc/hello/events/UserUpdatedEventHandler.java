@@ -0,0 +1,195 @@
+package ro.unibuc.hello.events;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.RideBookingRepository;
+
+/**
+ * Copies a renamed user's name onto their bookings, off the request thread.
+ *
+ * Events are coalesced per user: the first one schedules a refresh after coalesce-window, later ones only replace
+ * the pending name, so a burst of renames costs one updateMany with the latest name. Refreshes run on `threads`
+ * single-thread lanes and a user always lands on the same one, so two refreshes of one user never race each other.
+ * Once max-pending users are waiting, the thread publishing a rename waits for its refresh to be written on the
+ * lane, so renames are slowed down instead of piling up.
+ *
+ * A refresh that fails is retried after retry-delay, up to max-attempts, unless a newer rename replaced it.
+ * A booking made while another node still had the old name cached copies that name after the refresh ran, so each
+ * refresh is followed by a second pass once user-cache.expire-after-write has passed and every cache has the new
+ * name; it only writes bookings whose name differs and is skipped when the user was renamed again in between.
+ * With spring.threads.virtual.enabled the lanes run on virtual threads, like the request handlers.
+ */
+@Component
+public class UserUpdatedEventHandler {
+    private static final Logger logger = LoggerFactory.getLogger(UserUpdatedEventHandler.class);
+
+    // the latest name waiting to be written for a user, and how many times writing it failed
+    private record PendingRefresh(UserUpdatedEvent event, int failedAttempts) {}
+
+    private final RideBookingRepository rideBookingRepository;
+    private final long coalesceWindowMillis;
+    private final int maxPending;
+    private final long retryDelayMillis;
+    private final int maxAttempts;
+    private final long secondPassDelayMillis;
+
+    private final ScheduledExecutorService[] lanes;
+    private final ConcurrentHashMap<String, PendingRefresh> pending = new ConcurrentHashMap<>();
+    // the name each user's second pass is due to write, replaced when a newer name was written first
+    private final ConcurrentHashMap<String, String> secondPasses = new ConcurrentHashMap<>();
+
+    private final Counter receivedCounter;
+    private final Counter refreshedCounter;
+    private final Counter failedCounter;
+    private final Counter repairedCounter;
+
+    public UserUpdatedEventHandler(RideBookingRepository rideBookingRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${events.user-updated.coalesce-window:250ms}") Duration coalesceWindow,
+                                   @Value("${events.user-updated.threads:2}") int threads,
+                                   @Value("${events.user-updated.max-pending:10000}") int maxPending,
+                                   @Value("${events.user-updated.retry-delay:1s}") Duration retryDelay,
+                                   @Value("${events.user-updated.max-attempts:5}") int maxAttempts,
+                                   @Value("${user-cache.expire-after-write:60s}") Duration userCacheExpireAfterWrite,
+                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.rideBookingRepository = rideBookingRepository;
+        this.coalesceWindowMillis = coalesceWindow.toMillis();
+        this.maxPending = maxPending;
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.maxAttempts = maxAttempts;
+        // a booking that read the cached name just before it expired is still being written after expire-after-write
+        this.secondPassDelayMillis = userCacheExpireAfterWrite.toMillis() + coalesceWindowMillis;
+
+        this.lanes = new ScheduledExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            ThreadFactory threadFactory = virtualThreads
+                    ? Thread.ofVirtual().name("user-updated-" + i).factory()
+                    : Thread.ofPlatform().name("user-updated-" + i).daemon().factory();
+            ScheduledThreadPoolExecutor lane = new ScheduledThreadPoolExecutor(1, threadFactory);
+            // shutdown doesn't wait out the window, the pending names are written right away instead
+            lane.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            lanes[i] = lane;
+        }
+
+        this.receivedCounter = meterRegistry.counter("user_updated_events_received");
+        this.refreshedCounter = meterRegistry.counter("user_updated_refreshes");
+        this.failedCounter = meterRegistry.counter("user_updated_refresh_failures");
+        this.repairedCounter = meterRegistry.counter("user_updated_bookings_repaired");
+    }
+
+    // after the rename is committed, or right away when it wasn't written in a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        receivedCounter.increment();
+        String userId = event.getUserId();
+
+        // a refresh is already scheduled for the user, it picks up this name
+        if (pending.put(userId, new PendingRefresh(event, 0)) != null) {
+            return;
+        }
+
+        if (pending.size() <= maxPending) {
+            schedule(userId, () -> refresh(userId), coalesceWindowMillis);
+            return;
+        }
+        // too many refreshes waiting: write this one now, on the user's lane so it stays ordered with the others
+        try {
+            lane(userId).submit(() -> refresh(userId)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Could not refresh the passenger name on the bookings of user {}", userId, e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ScheduledExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ScheduledExecutorService lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        // the refreshes still waiting for their window were dropped by shutdown
+        pending.keySet().forEach(this::refresh);
+    }
+
+    void refresh(String userId) {
+        PendingRefresh refresh = pending.remove(userId);
+        if (refresh == null) {
+            return;
+        }
+        UserUpdatedEvent event = refresh.event();
+        String fullName = User.fullName(event.getNewFirstName(), event.getNewLastName());
+        try {
+            long updated = rideBookingRepository.updatePassengerFullNameByPassengerId(userId, fullName);
+            refreshedCounter.increment();
+            logger.debug("Refreshed the passenger name on {} bookings of user {}", updated, userId);
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            retry(userId, refresh, e);
+            return;
+        }
+
+        secondPasses.put(userId, fullName);
+        schedule(userId, () -> secondPass(userId, fullName), secondPassDelayMillis);
+    }
+
+    // Puts the failed name back unless a newer rename is already waiting, that one carries its own schedule
+    private void retry(String userId, PendingRefresh failed, RuntimeException e) {
+        int failedAttempts = failed.failedAttempts() + 1;
+        if (failedAttempts >= maxAttempts) {
+            logger.error("Gave up refreshing the passenger name on the bookings of user {} after {} attempts",
+                    userId, failedAttempts, e);
+            return;
+        }
+        logger.warn("Could not refresh the passenger name on the bookings of user {}, retrying", userId, e);
+        if (pending.putIfAbsent(userId, new PendingRefresh(failed.event(), failedAttempts)) == null) {
+            schedule(userId, () -> refresh(userId), retryDelayMillis * failedAttempts);
+        }
+    }
+
+    // Runs on the user's lane like the refreshes, so a newer name is never overwritten by this one
+    void secondPass(String userId, String fullName) {
+        if (!secondPasses.remove(userId, fullName) || pending.containsKey(userId)) {
+            return;
+        }
+        try {
+            long repaired = rideBookingRepository.updatePassengerFullNameByPassengerId(userId, fullName);
+            repairedCounter.increment(repaired);
+            if (repaired > 0) {
+                logger.info("Repaired a stale passenger name on {} bookings of user {}", repaired, userId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not recheck the passenger name on the bookings of user {}", userId, e);
+        }
+    }
+
+    private ScheduledExecutorService lane(String userId) {
+        return lanes[Math.floorMod(userId.hashCode(), lanes.length)];
+    }
+
+    // after shutdown nothing more is scheduled, the refreshes written by shutdown() are the last ones
+    private void schedule(String userId, Runnable task, long delayMillis) {
+        ScheduledExecutorService lane = lane(userId);
+        if (!lane.isShutdown()) {
+            lane.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
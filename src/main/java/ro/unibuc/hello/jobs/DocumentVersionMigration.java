@@ -0,0 +1,51 @@
+package ro.unibuc.hello.jobs;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+
+// Sets version 0 on documents stored before they had a @Version field.
+// Without it Spring Data treats a loaded document with a null version as new and tries to insert it again.
+// On by default: it only matches documents still missing a version, so once the data is migrated every start costs
+// one query per collection. Unlike the backfills it runs before the web server starts taking requests, since writes
+// to unversioned documents fail until it has run.
+@Component
+@ConditionalOnProperty(name = "jobs.document-version-migration.enabled", havingValue = "true", matchIfMissing = true)
+public class DocumentVersionMigration implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentVersionMigration.class);
+
+    private static final List<Class<?>> VERSIONED_DOCUMENTS = List.of(Ride.class, RideBooking.class, User.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public DocumentVersionMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        logger.info("Setting initial version on unversioned documents");
+
+        Query unversioned = new Query(Criteria.where("version").exists(false));
+        Update initialVersion = new Update().set("version", 0L);
+
+        for (Class<?> document : VERSIONED_DOCUMENTS) {
+            long updated = mongoTemplate.updateMulti(unversioned, initialVersion, document).getModifiedCount();
+            if (updated > 0) {
+                logger.info("Set initial version on {} {} documents", updated, document.getSimpleName());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ro.unibuc.hello.jobs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import ro.unibuc.hello.repository.DriverRatingSummaryRepository;
+
+// Repairs drifted driver rating summaries by rebuilding all of them from the reviews. Not needed when upgrading,
+// a missing summary is built for its driver when first read or reviewed. The aggregation runs and writes on the
+// server. Reviews created while it runs may be counted twice or not at all, run it when reviews are not being written.
+@Component
+@ConditionalOnProperty(name = "jobs.driver-rating-summary-backfill.enabled", havingValue = "true")
+public class DriverRatingSummaryBackfillJob {
+    private static final Logger logger = LoggerFactory.getLogger(DriverRatingSummaryBackfillJob.class);
+
+    private final DriverRatingSummaryRepository driverRatingSummaryRepository;
+
+    public DriverRatingSummaryBackfillJob(DriverRatingSummaryRepository driverRatingSummaryRepository) {
+        this.driverRatingSummaryRepository = driverRatingSummaryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        logger.info("Rebuilding driver rating summaries from reviews");
+
+        long drivers = driverRatingSummaryRepository.rebuildFromReviews();
+
+        logger.info("Rebuilt rating summaries, {} drivers have one", drivers);
+    }
+}
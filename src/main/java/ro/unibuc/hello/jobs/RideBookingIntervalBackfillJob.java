@@ -0,0 +1,74 @@
+package ro.unibuc.hello.jobs;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+
+// Copies driverId, departureTime and arrivalTime from rides onto bookings stored before those fields existed; a
+// ride's driver and interval never change once it is created, so a booking only ever needs them copied once.
+// Bookings are read through a cursor and handled in batches of ride ids, so the collection is never loaded at once.
+// Finding them scans the whole collection, so it is off by default: run it once when upgrading.
+@Component
+@ConditionalOnProperty(name = "jobs.booking-interval-backfill.enabled", havingValue = "true")
+public class RideBookingIntervalBackfillJob {
+    private static final Logger logger = LoggerFactory.getLogger(RideBookingIntervalBackfillJob.class);
+
+    private final RideBookingRepository rideBookingRepository;
+    private final RideRepository rideRepository;
+    private final int batchSize;
+
+    public RideBookingIntervalBackfillJob(RideBookingRepository rideBookingRepository,
+                                          RideRepository rideRepository,
+                                          @Value("${jobs.booking-interval-backfill.batch-size:500}") int batchSize) {
+        this.rideBookingRepository = rideBookingRepository;
+        this.rideRepository = rideRepository;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        logger.info("Backfilling ride interval on bookings, batch size {}", batchSize);
+
+        long updated = 0;
+        Set<String> rideIds = new HashSet<>();
+
+        try (Stream<RideBooking> bookings = rideBookingRepository.streamBookingsWithoutRideInterval()) {
+            Iterator<RideBooking> iterator = bookings.iterator();
+            while (iterator.hasNext()) {
+                rideIds.add(iterator.next().getRideId());
+                if (rideIds.size() >= batchSize) {
+                    updated += backfill(rideIds);
+                    rideIds.clear();
+                }
+            }
+        }
+        if (!rideIds.isEmpty()) {
+            updated += backfill(rideIds);
+        }
+
+        logger.info("Backfilled ride interval on {} bookings", updated);
+    }
+
+    private long backfill(Set<String> rideIds) {
+        long updated = 0;
+        for (Ride ride : rideRepository.findAllById(rideIds)) {
+            updated += rideBookingRepository.updateRideIntervalByRideId(
+                    ride.getId(), ride.getDriverId(), ride.getDepartureTime(), ride.getArrivalTime());
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,60 @@
+package ro.unibuc.hello.jobs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+// Computes startLocationKey and endLocationKey for rides stored before route search existed.
+// Rides are read through a cursor and written back in unordered bulks, so the collection is never loaded at once.
+@Component
+@ConditionalOnProperty(name = "jobs.ride-route-key-backfill.enabled", havingValue = "true")
+public class RideRouteKeyBackfillJob {
+    private static final Logger logger = LoggerFactory.getLogger(RideRouteKeyBackfillJob.class);
+
+    private final RideRepository rideRepository;
+    private final int batchSize;
+
+    public RideRouteKeyBackfillJob(RideRepository rideRepository,
+                                   @Value("${jobs.ride-route-key-backfill.batch-size:500}") int batchSize) {
+        this.rideRepository = rideRepository;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        logger.info("Backfilling route keys on rides, batch size {}", batchSize);
+
+        long updated = 0;
+        List<Ride> batch = new ArrayList<>();
+
+        try (Stream<Ride> rides = rideRepository.streamWithoutRouteKeys()) {
+            Iterator<Ride> iterator = rides.iterator();
+            while (iterator.hasNext()) {
+                Ride ride = iterator.next();
+                // the setters derive the keys
+                ride.setStartLocation(ride.getStartLocation());
+                ride.setEndLocation(ride.getEndLocation());
+                batch.add(ride);
+                if (batch.size() >= batchSize) {
+                    updated += rideRepository.setRouteKeys(batch);
+                    batch.clear();
+                }
+            }
+        }
+        updated += rideRepository.setRouteKeys(batch);
+
+        logger.info("Backfilled route keys on {} rides", updated);
+    }
+}
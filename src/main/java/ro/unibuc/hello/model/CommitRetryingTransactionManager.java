@@ -0,0 +1,52 @@
+package ro.unibuc.hello.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+import com.mongodb.MongoException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A MongoTransactionManager that retries only the commit when its outcome is unknown (UnknownTransactionCommitResult),
+ * like the driver's withTransaction does. The commit is idempotent on the server, so a retry of a commit that had
+ * gone through just reports success; running the transaction body again would instead have its checks reject the
+ * writes it already made. Whole transactions are retried on TransientTransactionError by BookingTransactions.
+ */
+public class CommitRetryingTransactionManager extends MongoTransactionManager {
+    private static final Logger logger = LoggerFactory.getLogger(CommitRetryingTransactionManager.class);
+
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+
+    public CommitRetryingTransactionManager(MongoDatabaseFactory mongoDatabaseFactory, int maxAttempts,
+                                            MeterRegistry meterRegistry) {
+        super(mongoDatabaseFactory);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doCommit(MongoTransactionObject transactionObject) throws Exception {
+        commit(transactionObject::commitTransaction);
+    }
+
+    void commit(Runnable commitTransaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                commitTransaction.run();
+                return;
+            } catch (MongoException e) {
+                if (!e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                meterRegistry.counter("booking_transaction_retries_total",
+                        "label", MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL).increment();
+                logger.debug("Retrying commit after {} (attempt {} of {})",
+                        MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL, attempt + 1, maxAttempts);
+            }
+        }
+    }
+}
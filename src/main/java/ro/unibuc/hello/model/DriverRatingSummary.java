@@ -0,0 +1,60 @@
+package ro.unibuc.hello.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Rating totals of one driver, kept up to date with $inc as reviews come in so a profile never scans reviews.
+// A driver reviewed before summaries existed gets one built from their reviews when it is first needed.
+// stars counts the reviews per rating, keyed "1" to "5"; ratings nobody gave yet have no key.
+@Document("driver_rating_summaries")
+public class DriverRatingSummary {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    @Id
+    private String driverId;
+    private long count;
+    private long sum;
+    private Map<String, Long> stars = new HashMap<>();
+
+    public DriverRatingSummary() {}
+
+    public DriverRatingSummary(String driverId) {
+        this.driverId = driverId;
+    }
+
+    public String getDriverId() {
+        return driverId;
+    }
+
+    public void setDriverId(String driverId) {
+        this.driverId = driverId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public void setSum(long sum) {
+        this.sum = sum;
+    }
+
+    public Map<String, Long> getStars() {
+        return stars;
+    }
+
+    public void setStars(Map<String, Long> stars) {
+        this.stars = stars;
+    }
+}
@@ -0,0 +1,105 @@
+package ro.unibuc.hello.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Response stored for an Idempotency-Key, replayed when the client sends the same request again.
+// A record without a status is a claim: the request holding claimToken is still running, or its node died and
+// the claim can be taken over once claimedAt is older than the lease. Expired by the TTL index MongoIndexConfig
+// keeps on createdAt.
+@Document("idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    private String id;
+    private String requestHash;
+    private Integer status;
+    private String contentType;
+    private String body;
+    private String claimToken;
+    private Instant claimedAt;
+    private Instant createdAt;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash, Instant createdAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.createdAt = createdAt;
+    }
+
+    public IdempotencyRecord(String id, String requestHash, String claimToken, Instant createdAt) {
+        this(id, requestHash, createdAt);
+        this.claimToken = claimToken;
+        this.claimedAt = createdAt;
+    }
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public Instant getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(Instant claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -2,14 +2,28 @@ package ro.unibuc.hello.model;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MongoConfig extends AbstractMongoClientConfiguration {
@@ -17,18 +31,107 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${mongodb.connection.url}")
     private String connectionURL;
 
+    @Value("${mongodb.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${mongodb.pool.min-size:0}")
+    private int poolMinSize;
+
+    // how long a request waits for a free connection before failing with MongoTimeoutException
+    @Value("${mongodb.pool.max-wait-time:2s}")
+    private Duration poolMaxWaitTime;
+
+    @Value("${mongodb.pool.max-idle-time:5m}")
+    private Duration poolMaxIdleTime;
+
+    @Value("${mongodb.pool.max-connecting:2}")
+    private int poolMaxConnecting;
+
+    @Value("${mongodb.socket.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    // 0 waits forever: the migration and backfill jobs run long scans and updateManys that a request-sized
+    // timeout would cut off; set it with the connection string's socketTimeoutMS for a client that only serves requests
+    @Value("${mongodb.socket.read-timeout:0}")
+    private Duration readTimeout;
+
+    // wire compression, in order of preference; the server picks the first one it also has enabled
+    @Value("${mongodb.compressors:zstd,snappy}")
+    private String compressors;
+
+    // primary, primaryPreferred, secondary, secondaryPreferred or nearest
+    @Value("${mongodb.read-preference:primary}")
+    private String readPreference;
+
+    // also how many times a commit with an unknown result is sent again
+    @Value("${booking.transaction.max-attempts:3}")
+    private int transactionMaxAttempts;
+
+    private final MeterRegistry meterRegistry;
+
+    public MongoConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     protected String getDatabaseName() {
         return "test";
     }
 
+    // The pool, timeouts, compression and read preference from properties, with whatever the connection string sets
+    // itself applied last so that it wins over them. Every command is timed into mongodb.driver.commands and every
+    // pool reports its size, checked out connections and wait queue; shared with the reactive client of
+    // ReactiveMongoConfig.
+    @Bean
+    public MongoClientSettings mongoClientSettings() {
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(poolMaxSize)
+                        .minSize(poolMinSize)
+                        .maxWaitTime(poolMaxWaitTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(poolMaxIdleTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(poolMaxConnecting)
+                        .addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(Math.toIntExact(connectTimeout.toMillis()), TimeUnit.MILLISECONDS)
+                        .readTimeout(Math.toIntExact(readTimeout.toMillis()), TimeUnit.MILLISECONDS))
+                .readPreference(ReadPreference.valueOf(readPreference))
+                .compressorList(compressorList(compressors))
+                .addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+
+        // only the options present in the connection string are applied, the rest keep the values above
+        MongoClientSettings clientSettings = settings.applyConnectionString(new ConnectionString(connectionURL)).build();
+
+        int maxSize = clientSettings.getConnectionPoolSettings().getMaxSize();
+        Gauge.builder("mongodb.driver.pool.maxsize", () -> maxSize)
+                .description("Most connections a pool opens to one server")
+                .register(meterRegistry);
+        return clientSettings;
+    }
+
     @Override
     public MongoClient mongoClient() {
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
-                .applyConnectionString(new ConnectionString(connectionURL))
-                .build();
+        return MongoClients.create(mongoClientSettings());
+    }
+
+    static List<MongoCompressor> compressorList(String compressors) {
+        return Arrays.stream(compressors.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .map(name -> switch (name) {
+                    case "zstd" -> MongoCompressor.createZstdCompressor();
+                    case "snappy" -> MongoCompressor.createSnappyCompressor();
+                    case "zlib" -> MongoCompressor.createZlibCompressor();
+                    default -> throw new IllegalArgumentException("Unknown Mongo compressor " + name);
+                })
+                .toList();
+    }
 
-        return MongoClients.create(mongoClientSettings);
+    // Transactions need a replica set, so they are opt-in: booking.write-mode=transactional
+    @Bean
+    @ConditionalOnProperty(name = "booking.write-mode", havingValue = "transactional")
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory mongoDatabaseFactory) {
+        return new CommitRetryingTransactionManager(mongoDatabaseFactory, transactionMaxAttempts, meterRegistry);
     }
 
     @Override
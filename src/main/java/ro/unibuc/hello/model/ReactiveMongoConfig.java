@@ -0,0 +1,36 @@
+package ro.unibuc.hello.model;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+// The reactive read path next to the blocking one: reactive-reads.enabled=true
+// Same server, client settings, database and mapping as MongoConfig, only the driver underneath is the reactive streams one
+@Configuration
+@ConditionalOnProperty(name = "reactive-reads.enabled", havingValue = "true")
+@EnableReactiveMongoRepositories(basePackages = "ro.unibuc.hello.repository.reactive")
+public class ReactiveMongoConfig {
+
+    // its own pool, sized and instrumented like the blocking client's
+    @Bean
+    public MongoClient reactiveMongoClient(MongoClientSettings mongoClientSettings) {
+        return MongoClients.create(mongoClientSettings);
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient,
+                                                       MongoDatabaseFactory mongoDatabaseFactory,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        String databaseName = mongoDatabaseFactory.getMongoDatabase().getName();
+        return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, databaseName),
+                mappingMongoConverter);
+    }
+}
@@ -2,6 +2,8 @@ package ro.unibuc.hello.model;
 
 import java.time.Instant;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.NoArgsConstructor;
@@ -9,10 +11,18 @@ import lombok.Setter;
 import lombok.Getter;
 
 @Document("reviews")
+@CompoundIndexes({
+    // the driver feed reads one range of it, newest first, and never sorts in memory
+    @CompoundIndex(name = "reviewed_created_idx", def = "{ 'reviewedId': 1, 'createdAt': -1, '_id': -1 }"),
+    // one review per passenger and ride, enforced on insert instead of checked beforehand
+    @CompoundIndex(name = Review.RIDE_REVIEWER_INDEX, def = "{ 'rideId': 1, 'reviewerId': 1 }", unique = true)
+})
 @NoArgsConstructor
 @Getter
 @Setter
 public class Review {
+    public static final String RIDE_REVIEWER_INDEX = "ride_reviewer_idx";
+
     @Id
     private String id;
     private String reviewerId;
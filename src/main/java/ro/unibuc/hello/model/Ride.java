@@ -3,6 +3,12 @@ package ro.unibuc.hello.model;
 import java.time.Instant;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -12,8 +18,17 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.search.RouteKeys;
 
 @Document("rides")
+@CompoundIndexes({
+    @CompoundIndex(name = "driver_interval_idx", def = "{ 'driverId': 1, 'departureTime': 1, 'arrivalTime': 1 }"),
+    // by-date search: equality on status, then one range scan over departureTime in sort order; _id breaks ties in
+    // the keyset sort, so the (departureTime, _id) order is read off the index without a sort stage
+    @CompoundIndex(name = "status_departure_id_idx", def = "{ 'status': 1, 'departureTime': 1, '_id': 1 }"),
+    // route search: equalities on status and both route keys first, then the departure window range
+    @CompoundIndex(name = "route_departure_idx", def = "{ 'status': 1, 'startLocationKey': 1, 'endLocationKey': 1, 'departureTime': 1 }")
+})
 @Getter
 @Setter
 public class Ride {
@@ -22,12 +37,23 @@ public class Ride {
     private String driverId;
     private String startLocation;
     private String endLocation;
+    // normalized locations, kept in sync by the setters and matched by route search
+    private String startLocationKey;
+    private String endLocationKey;
+    // optional coordinates, rides without them are simply not found by nearby search
+    @GeoSpatialIndexed(name = "start_point_2dsphere", type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint startPoint;
+    @GeoSpatialIndexed(name = "end_point_2dsphere", type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint endPoint;
     private Instant departureTime;
     private Instant arrivalTime;
     private int seatPrice;
     private int seatsAvailable;
     private String carLicensePlate;
     private RideStatus status;
+    // checked on every save, a stale copy can't overwrite a concurrent change
+    @Version
+    private Long version;
 
     public Ride() {}
 
@@ -35,8 +61,8 @@ public class Ride {
                 Instant departureTime, Instant arrivalTime, int seatPrice, 
                 int seatsAvailable, String carLicensePlate) {
         this.driverId = driverId;
-        this.startLocation = startLocation;
-        this.endLocation = endLocation;
+        setStartLocation(startLocation);
+        setEndLocation(endLocation);
         this.departureTime = departureTime;
         this.arrivalTime = arrivalTime;
         this.seatPrice = seatPrice;
@@ -83,6 +109,7 @@ public class Ride {
 
     public void setStartLocation(String startLocation) {
         this.startLocation = startLocation;
+        this.startLocationKey = RouteKeys.normalize(startLocation);
     }
 
     public String getEndLocation() {
@@ -91,6 +118,31 @@ public class Ride {
 
     public void setEndLocation(String endLocation) {
         this.endLocation = endLocation;
+        this.endLocationKey = RouteKeys.normalize(endLocation);
+    }
+
+    public GeoJsonPoint getStartPoint() {
+        return startPoint;
+    }
+
+    public void setStartPoint(GeoJsonPoint startPoint) {
+        this.startPoint = startPoint;
+    }
+
+    public GeoJsonPoint getEndPoint() {
+        return endPoint;
+    }
+
+    public void setEndPoint(GeoJsonPoint endPoint) {
+        this.endPoint = endPoint;
+    }
+
+    public String getStartLocationKey() {
+        return startLocationKey;
+    }
+
+    public String getEndLocationKey() {
+        return endLocationKey;
     }
 
     public Instant getDepartureTime() {
@@ -141,4 +193,11 @@ public class Ride {
         this.status = status;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
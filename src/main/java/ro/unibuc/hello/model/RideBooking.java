@@ -4,6 +4,9 @@ import java.lang.annotation.Inherited;
 import java.time.Instant;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -16,10 +19,17 @@ import ro.unibuc.hello.enums.RideBookingStatus;
 
 
 @Document("ride_passengers")
+@CompoundIndexes({
+    @CompoundIndex(name = "passenger_interval_idx", def = "{ 'passengerId': 1, 'departureTime': 1, 'arrivalTime': 1 }"),
+    // one booking per passenger and ride, cancelled ones included, enforced on insert instead of checked beforehand
+    @CompoundIndex(name = RideBooking.RIDE_PASSENGER_INDEX, def = "{ 'rideId': 1, 'passengerId': 1 }", unique = true)
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class RideBooking {
+    public static final String RIDE_PASSENGER_INDEX = "ride_passenger_idx";
+
     @Id
     private String id;
     private String rideId;
@@ -27,6 +37,18 @@ public class RideBooking {
     private RideBookingStatus bookingStatus;
     private Instant createdAt;
 
+    // copied from the ride so overlap checks don't need to join rides
+    private String driverId;
+    private Instant departureTime;
+    private Instant arrivalTime;
+
+    // copied from the passenger so listing a ride's passengers doesn't need to join users,
+    // kept in sync by UserUpdatedEventHandler
+    private String passengerFullName;
+
+    @Version
+    private Long version;
+
 
     public RideBooking(String rideId, String passengerId, Instant createdAt)
     {
@@ -44,6 +66,10 @@ public class RideBooking {
                 ", passengerId='" + passengerId + '\'' +
                 ", createdAt='" + createdAt + '\'' +
                 ", bookingStatus=" + bookingStatus +
+                ", driverId='" + driverId + '\'' +
+                ", departureTime=" + departureTime +
+                ", arrivalTime=" + arrivalTime +
+                ", passengerFullName='" + passengerFullName + '\'' +
                 '}';
     }
 
@@ -87,4 +113,43 @@ public class RideBooking {
         this.bookingStatus = bookingStatus;
     }
 
+    public String getDriverId() {
+        return driverId;
+    }
+
+    public void setDriverId(String driverId) {
+        this.driverId = driverId;
+    }
+
+    public Instant getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(Instant departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public Instant getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public void setArrivalTime(Instant arrivalTime) {
+        this.arrivalTime = arrivalTime;
+    }
+
+    public String getPassengerFullName() {
+        return passengerFullName;
+    }
+
+    public void setPassengerFullName(String passengerFullName) {
+        this.passengerFullName = passengerFullName;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
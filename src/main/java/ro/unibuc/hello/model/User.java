@@ -6,6 +6,7 @@ import java.util.List;
 import lombok.*;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -28,6 +29,8 @@ public class User {
     private int ratingsSum;
     private Double avgRating;
     private List<Role> roles;
+    @Version
+    private Long version;
 
     public User() {}
 
@@ -95,6 +98,11 @@ public class User {
         return lastName;
     }
 
+    // the name shown to drivers, also copied on the user's bookings
+    public static String fullName(String firstName, String lastName) {
+        return firstName + " " + lastName;
+    }
+
     public void setLastName(String lastName) {
         this.lastName = lastName;
     }
@@ -154,4 +162,12 @@ public class User {
     public void setRole(List<Role> roles) {
         this.roles = roles;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
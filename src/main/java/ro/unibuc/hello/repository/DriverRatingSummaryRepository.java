@@ -0,0 +1,8 @@
+package ro.unibuc.hello.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import ro.unibuc.hello.model.DriverRatingSummary;
+
+public interface DriverRatingSummaryRepository extends MongoRepository<DriverRatingSummary, String>, DriverRatingSummaryRepositoryCustom {
+}
@@ -0,0 +1,17 @@
+package ro.unibuc.hello.repository;
+
+import ro.unibuc.hello.model.DriverRatingSummary;
+
+// Summaries are only ever changed in place, concurrent reviews of one driver can't lose each other's counts
+public interface DriverRatingSummaryRepositoryCustom {
+
+    // Counts one more review with this rating, false when the driver has no summary yet (see buildForDriver)
+    boolean addRating(String driverId, int rating);
+
+    // Builds a missing summary from the driver's stored reviews and returns the summary now stored; one that
+    // already exists is left as it is. A driver without reviews gets an empty summary, nothing is written
+    DriverRatingSummary buildForDriver(String driverId);
+
+    // Recomputes every summary from the reviews collection on the server, returns the number of drivers reviewed
+    long rebuildFromReviews();
+}
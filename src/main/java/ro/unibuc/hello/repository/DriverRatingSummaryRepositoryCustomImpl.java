@@ -0,0 +1,87 @@
+package ro.unibuc.hello.repository;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import ro.unibuc.hello.model.DriverRatingSummary;
+import ro.unibuc.hello.model.Review;
+
+public class DriverRatingSummaryRepositoryCustomImpl implements DriverRatingSummaryRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public DriverRatingSummaryRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // No upsert: a summary created here would count only the reviews from now on, not the ones stored before
+    @Override
+    public boolean addRating(String driverId, int rating) {
+        Update update = new Update()
+                .inc("count", 1)
+                .inc("sum", rating)
+                .inc("stars." + rating, 1);
+
+        return mongoTemplate.updateFirst(new Query(Criteria.where("driverId").is(driverId)), update,
+                DriverRatingSummary.class).getMatchedCount() > 0;
+    }
+
+    // Goes through MongoTemplate rather than the raw collection so it joins the review's transaction, if there is
+    // one; $merge isn't allowed in a transaction, the totals are written with $setOnInsert instead
+    @Override
+    public DriverRatingSummary buildForDriver(String driverId) {
+        Aggregation perRating = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("reviewedId").is(driverId)),
+                Aggregation.group("rating").count().as("reviews"));
+
+        DriverRatingSummary built = new DriverRatingSummary(driverId);
+        for (Document stars : mongoTemplate.aggregate(perRating, Review.class, Document.class)) {
+            int rating = ((Number) stars.get("_id")).intValue();
+            long reviews = ((Number) stars.get("reviews")).longValue();
+            built.setCount(built.getCount() + reviews);
+            built.setSum(built.getSum() + reviews * rating);
+            built.getStars().put(String.valueOf(rating), reviews);
+        }
+        if (built.getCount() == 0) {
+            return built;
+        }
+
+        // a summary stored meanwhile already counts these reviews, or has the later ones added to it, it wins
+        Update update = new Update()
+                .setOnInsert("count", built.getCount())
+                .setOnInsert("sum", built.getSum())
+                .setOnInsert("stars", built.getStars());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("driverId").is(driverId)), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), DriverRatingSummary.class);
+    }
+
+    @Override
+    public long rebuildFromReviews() {
+        String summaries = mongoTemplate.getCollectionName(DriverRatingSummary.class);
+
+        // reviews are counted per driver and rating first, the second group folds those into one summary per driver
+        List<Document> pipeline = List.of(
+                Document.parse("{ $group: { _id: { driverId: '$reviewedId', rating: '$rating' }, reviews: { $sum: 1 } } }"),
+                Document.parse("{ $group: { _id: '$_id.driverId', count: { $sum: '$reviews' },"
+                        + " sum: { $sum: { $multiply: ['$reviews', '$_id.rating'] } },"
+                        + " stars: { $push: { k: { $toString: '$_id.rating' }, v: '$reviews' } } } }"),
+                Document.parse("{ $set: { stars: { $arrayToObject: '$stars' } } }"),
+                new Document("$merge", new Document("into", summaries)
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Review.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .toCollection();
+
+        return mongoTemplate.getCollection(summaries).countDocuments();
+    }
+}
@@ -0,0 +1,9 @@
+package ro.unibuc.hello.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import ro.unibuc.hello.model.IdempotencyRecord;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String>,
+        IdempotencyRecordRepositoryCustom {
+}
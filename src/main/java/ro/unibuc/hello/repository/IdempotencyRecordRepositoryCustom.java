@@ -0,0 +1,20 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+
+import ro.unibuc.hello.model.IdempotencyRecord;
+
+// Claims are only changed by the request holding their claimToken, a request whose claim was taken over
+// can neither store its response over the new owner's nor drop the new owner's claim
+public interface IdempotencyRecordRepositoryCustom {
+
+    // Hands a pending claim for the same request, claimed before claimedBefore, to claimToken;
+    // false when it completed, was dropped or another request took it over first
+    boolean takeOverExpiredClaim(String id, String requestHash, Instant claimedBefore, String claimToken, Instant claimedAt);
+
+    // Stores the response on the claim, false when its claimToken no longer holds it
+    boolean complete(IdempotencyRecord completed);
+
+    // Drops the pending claim while claimToken still holds it
+    void release(String id, String claimToken);
+}
@@ -0,0 +1,51 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import ro.unibuc.hello.model.IdempotencyRecord;
+
+public class IdempotencyRecordRepositoryCustomImpl implements IdempotencyRecordRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public IdempotencyRecordRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean takeOverExpiredClaim(String id, String requestHash, Instant claimedBefore, String claimToken,
+                                        Instant claimedAt) {
+        Query query = new Query(Criteria.where("id").is(id)
+                .and("status").is(null)
+                .and("requestHash").is(requestHash)
+                .and("claimedAt").lt(claimedBefore));
+        Update update = new Update().set("claimToken", claimToken).set("claimedAt", claimedAt);
+
+        return mongoTemplate.updateFirst(query, update, IdempotencyRecord.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public boolean complete(IdempotencyRecord completed) {
+        Query query = new Query(Criteria.where("id").is(completed.getId())
+                .and("claimToken").is(completed.getClaimToken())
+                .and("status").is(null));
+        Update update = new Update()
+                .set("status", completed.getStatus())
+                .set("contentType", completed.getContentType())
+                .set("body", completed.getBody());
+
+        return mongoTemplate.updateFirst(query, update, IdempotencyRecord.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public void release(String id, String claimToken) {
+        mongoTemplate.remove(new Query(Criteria.where("id").is(id)
+                .and("claimToken").is(claimToken)
+                .and("status").is(null)), IdempotencyRecord.class);
+    }
+}
@@ -9,7 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ReviewRepository extends MongoRepository<Review, String> {
+public interface ReviewRepository extends MongoRepository<Review, String>, ReviewRepositoryCustom {
     List<Review> findByRideId(String rideId);
     List<Review> findByReviewedId(String reviewdId);
     Optional<Review> findByRideIdAndReviewerId(String rideId, String reviewerId);
@@ -0,0 +1,13 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import ro.unibuc.hello.model.Review;
+
+public interface ReviewRepositoryCustom {
+
+    // Keyset page of a driver's reviews, newest first by (createdAt, _id); beforeCreatedAt/beforeId continue from
+    // the last review of a previous page, both null for the first page
+    List<Review> findByReviewedIdBefore(String reviewedId, Instant beforeCreatedAt, String beforeId, int limit);
+}
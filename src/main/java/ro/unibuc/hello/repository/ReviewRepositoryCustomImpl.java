@@ -0,0 +1,38 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import ro.unibuc.hello.model.Review;
+
+public class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ReviewRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Review> findByReviewedIdBefore(String reviewedId, Instant beforeCreatedAt, String beforeId, int limit) {
+        // served by reviewed_created_idx: reviewedId is the equality prefix, (createdAt, _id) the range and the sort
+        Criteria criteria = Criteria.where("reviewedId").is(reviewedId);
+        if (beforeCreatedAt != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").lt(beforeCreatedAt),
+                    Criteria.where("createdAt").is(beforeCreatedAt).and("id").lt(new ObjectId(beforeId)));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(limit);
+
+        return mongoTemplate.find(query, Review.class);
+    }
+}
@@ -4,9 +4,11 @@ import java.time.Instant;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.model.Ride;
@@ -24,13 +26,54 @@ public interface RideBookingRepository extends MongoRepository<RideBooking, Stri
     List<RideBooking> findByRideId(String rideId);
     
     
-    //overlapping rides for passenger
-    @Query("{ 'passengerId': ?0, 'departureTime': { $lt: ?2 }, 'arrivalTime': { $gt: ?1 } }")
+    //overlapping rides for passenger, one range scan on the (passengerId, departureTime, arrivalTime) index
+    @Query("{ 'passengerId': ?0, 'departureTime': { $lt: ?2 }, 'arrivalTime': { $gt: ?1 }, 'bookingStatus': 'BOOKED' }")
     List<RideBooking> findOverlappingRidesForPassenger(String passengerId, Instant departureTime, Instant arrivalTime);
 
 
+    //rides the passenger still has ahead, only the ride id and interval are read
+    @Query(value = "{ 'passengerId': ?0, 'arrivalTime': { $gt: ?1 }, 'bookingStatus': 'BOOKED' }",
+           fields = "{ 'rideId': 1, 'departureTime': 1, 'arrivalTime': 1 }")
+    List<RideBooking> findActiveByPassengerIdArrivingAfter(String passengerId, Instant after);
+
+
+    //active bookings of the passenger stored before the ride interval was copied, only the ride id is read
+    @Query(value = "{ 'passengerId': ?0, 'departureTime': null, 'bookingStatus': 'BOOKED' }", fields = "{ 'rideId': 1 }")
+    List<RideBooking> findActiveByPassengerIdWithoutRideInterval(String passengerId);
+
+
+    //passengers of a ride, only the passenger id is read from the (rideId, passengerId) index; _id is left out of
+    //the projection, it isn't in the index and would make every booking be fetched
+    @Query(value = "{ 'rideId': ?0 }", fields = "{ 'passengerId': 1, '_id': 0 }")
+    List<RideBooking> findPassengerIdsByRideId(String rideId);
+
+
     //overlapping rides for driver
     @Query("{ 'driverId': ?0, 'departureTime': { $lt: ?2 }, 'arrivalTime': { $gt: ?1 } }")
     List<RideBooking> findOverlappingRidesForDriver(String driverId, Instant departureTime, Instant arrivalTime);
 
+    //cancels every active booking of a ride in one updateMany, returns how many were cancelled
+    @Query("{ 'rideId': ?0, 'bookingStatus': 'BOOKED' }")
+    @Update("{ $set: { 'bookingStatus': 'CANCELLED' }, $inc: { 'version': 1 } }")
+    long cancelBookedByRideId(String rideId);
+
+    //cancels the passenger's booking of a ride if it is still active, 0 when something else already cancelled it
+    @Query("{ 'rideId': ?0, 'passengerId': ?1, 'bookingStatus': 'BOOKED' }")
+    @Update("{ $set: { 'bookingStatus': 'CANCELLED' }, $inc: { 'version': 1 } }")
+    long cancelBookedByRideIdAndPassengerId(String rideId, String passengerId);
+
+    //copies the ride fields onto every booking of the ride, used by the interval backfill
+    @Query("{ 'rideId': ?0 }")
+    @Update("{ $set: { 'driverId': ?1, 'departureTime': ?2, 'arrivalTime': ?3 }, $inc: { 'version': 1 } }")
+    long updateRideIntervalByRideId(String rideId, String driverId, Instant departureTime, Instant arrivalTime);
+
+    //keeps the copied passenger name of every booking of the passenger in sync, only bookings with another name are written
+    @Query("{ 'passengerId': ?0, 'passengerFullName': { $ne: ?1 } }")
+    @Update("{ $set: { 'passengerFullName': ?1 }, $inc: { 'version': 1 } }")
+    long updatePassengerFullNameByPassengerId(String passengerId, String passengerFullName);
+
+    //bookings stored before the ride fields were copied, only the ride id is read
+    @Query(value = "{ 'departureTime': null }", fields = "{ 'rideId': 1 }")
+    Stream<RideBooking> streamBookingsWithoutRideInterval();
+
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package ro.unibuc.hello.repository;
 
-import java.time.Instant;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -8,24 +7,20 @@ import java.util.Optional;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
+import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.model.Ride;
 
-public interface RideRepository extends MongoRepository<Ride, String> {
-
-    @Query("{ 'id': ?0, " +
-       "$or: [ " +
-       "{ 'departureTime': { $lte: ?1 }, 'arrivalTime': { $gte: ?1 } }, " +
-       "{ 'departureTime': { $lte: ?2 }, 'arrivalTime': { $gte: ?2 } } " +
-       "] }")
-    List<Ride> findByIdAndTimeOverlap(String id, Instant departureTime, Instant arrivalTime);
+public interface RideRepository extends MongoRepository<Ride, String>, RideRepositoryCustom {
 
-    @Query("{ 'driverId': ?0, " +
-       "$or: [ " +
-       "{ 'departureTime': { $lte: ?1 }, 'arrivalTime': { $gte: ?1 } }, " +
-       "{ 'departureTime': { $lte: ?2 }, 'arrivalTime': { $gte: ?2 } } " +
-       "] }")
+    // Two intervals overlap iff each one starts before the other ends, this also covers full containment.
+    // Served by the (driverId, departureTime, arrivalTime) index declared on Ride, ended rides don't count
+    @Query("{ 'driverId': ?0, 'departureTime': { $lt: ?2 }, 'arrivalTime': { $gt: ?1 }, 'status': { $in: ['SCHEDULED', 'IN_PROGRESS'] } }")
     List<Ride> findByDriverIdAndTimeOverlap(String driverId, Instant departureTime, Instant arrivalTime);
 
-    @Query("{ 'departureTime': { $gte: ?0, $lt: ?1 } }") 
-    List<Ride> findAllByDepartureDate(Instant startOfDay, Instant endOfDay);
+    boolean existsByIdAndStatus(String id, RideStatus status);
+
+    // Rides the driver still has ahead, only the interval is read
+    @Query(value = "{ 'driverId': ?0, 'arrivalTime': { $gt: ?1 }, 'status': { $in: ['SCHEDULED', 'IN_PROGRESS'] } }",
+           fields = "{ 'departureTime': 1, 'arrivalTime': 1 }")
+    List<Ride> findActiveByDriverIdArrivingAfter(String driverId, Instant after);
 }
@@ -0,0 +1,47 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.geo.GeoResult;
+
+import ro.unibuc.hello.model.Ride;
+
+public interface RideRepositoryCustom {
+
+    // Atomically takes one seat if the ride is SCHEDULED and still has seats, returns the updated ride
+    Optional<Ride> reserveSeat(String rideId);
+
+    // Atomically gives one seat back, returns the updated ride
+    Optional<Ride> releaseSeat(String rideId);
+
+    // Atomically gives several seats back at once, returns the updated ride
+    Optional<Ride> releaseSeats(String rideId, int seats);
+
+    // Keyset page ordered by _id: up to limit rides whose id comes after afterId, from the start when afterId is null
+    List<Ride> findPageAfter(String afterId, int limit);
+
+    // All rides ordered by _id, read lazily from one Mongo cursor; the caller must close the stream
+    Stream<Ride> streamAll();
+
+    // SCHEDULED rides departing in [from, to), ordered by (departureTime, _id) and read with only the fields
+    // RideResponseDTO shows; locations are optional filters, afterDeparture/afterId continue from a previous page
+    List<Ride> findScheduledDeparting(Instant from, Instant to, String startLocation, String endLocation,
+                                      Instant afterDeparture, String afterId, int limit);
+
+    // SCHEDULED rides with a free seat on a route departing in [from, to), by departure time; served by route_departure_idx
+    List<Ride> findBookableOnRoute(String startLocationKey, String endLocationKey, Instant from, Instant to);
+
+    // Rides stored before route keys existed, only id and locations are read; the caller must close the stream
+    Stream<Ride> streamWithoutRouteKeys();
+
+    // Writes the route keys the given rides carry in one unordered bulk, returns how many rides were updated
+    int setRouteKeys(List<Ride> rides);
+
+    // Bookable rides starting within radiusMeters of the point and departing in [from, to), nearest first,
+    // through $geoNear on start_point_2dsphere; each result carries its distance in meters
+    List<GeoResult<Ride>> findBookableNear(double latitude, double longitude, double radiusMeters,
+                                           Instant from, Instant to, int limit);
+}
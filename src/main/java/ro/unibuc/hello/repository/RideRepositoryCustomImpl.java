@@ -0,0 +1,172 @@
+package ro.unibuc.hello.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GeoNearOperation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.model.Ride;
+
+public class RideRepositoryCustomImpl implements RideRepositoryCustom {
+
+    // documents fetched per round trip while streaming, the response never holds more than this
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public RideRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Ride> reserveSeat(String rideId) {
+        // the guard and the decrement run as one findAndModify, so two bookings can never take the last seat
+        // the version is bumped too, so a stale copy of the ride saved afterwards can't undo the seat change
+        Query query = new Query(Criteria.where("id").is(rideId)
+                .and("seatsAvailable").gt(0)
+                .and("status").is(RideStatus.SCHEDULED));
+        Update update = new Update().inc("seatsAvailable", -1).inc("version", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Ride.class));
+    }
+
+    @Override
+    public Optional<Ride> releaseSeat(String rideId) {
+        return releaseSeats(rideId, 1);
+    }
+
+    @Override
+    public Optional<Ride> releaseSeats(String rideId, int seats) {
+        Query query = new Query(Criteria.where("id").is(rideId));
+        Update update = new Update().inc("seatsAvailable", seats).inc("version", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Ride.class));
+    }
+
+    @Override
+    public List<Ride> findPageAfter(String afterId, int limit) {
+        // seeks with the _id index instead of skipping, so every page costs the same no matter how deep it is
+        Query query = new Query();
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(new ObjectId(afterId)));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "id")).limit(limit);
+
+        return mongoTemplate.find(query, Ride.class);
+    }
+
+    @Override
+    public Stream<Ride> streamAll() {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "id")).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        return mongoTemplate.stream(query, Ride.class);
+    }
+
+    @Override
+    public List<Ride> findScheduledDeparting(Instant from, Instant to, String startLocation, String endLocation,
+                                             Instant afterDeparture, String afterId, int limit) {
+        // served by status_departure_id_idx: status is the equality prefix, departureTime the range, and
+        // (departureTime, _id) the sort
+        Criteria criteria = Criteria.where("status").is(RideStatus.SCHEDULED)
+                .and("departureTime").gte(from).lt(to);
+        if (startLocation != null) {
+            criteria.and("startLocation").is(startLocation);
+        }
+        if (endLocation != null) {
+            criteria.and("endLocation").is(endLocation);
+        }
+        if (afterDeparture != null) {
+            criteria.orOperator(
+                    Criteria.where("departureTime").gt(afterDeparture),
+                    Criteria.where("departureTime").is(afterDeparture).and("id").gt(new ObjectId(afterId)));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "departureTime", "id"))
+                .limit(limit);
+        query.fields().include("startLocation", "endLocation", "departureTime", "arrivalTime",
+                "seatPrice", "seatsAvailable", "carLicensePlate", "status");
+
+        return mongoTemplate.find(query, Ride.class);
+    }
+
+    @Override
+    public List<Ride> findBookableOnRoute(String startLocationKey, String endLocationKey, Instant from, Instant to) {
+        Query query = new Query(Criteria.where("status").is(RideStatus.SCHEDULED)
+                .and("startLocationKey").is(startLocationKey)
+                .and("endLocationKey").is(endLocationKey)
+                .and("departureTime").gte(from).lt(to)
+                .and("seatsAvailable").gt(0))
+                .with(Sort.by(Sort.Direction.ASC, "departureTime", "id"));
+        query.fields().include("startLocation", "endLocation", "startLocationKey", "endLocationKey", "departureTime",
+                "arrivalTime", "seatPrice", "seatsAvailable", "carLicensePlate", "status");
+
+        return mongoTemplate.find(query, Ride.class);
+    }
+
+    @Override
+    public Stream<Ride> streamWithoutRouteKeys() {
+        Query query = new Query(Criteria.where("startLocationKey").exists(false)).cursorBatchSize(STREAM_BATCH_SIZE);
+        query.fields().include("startLocation", "endLocation");
+
+        return mongoTemplate.stream(query, Ride.class);
+    }
+
+    @Override
+    public int setRouteKeys(List<Ride> rides) {
+        if (rides.isEmpty()) {
+            return 0;
+        }
+        // the version is bumped so a copy loaded without keys can't save them back to null
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Ride.class);
+        for (Ride ride : rides) {
+            bulk.updateOne(new Query(Criteria.where("id").is(ride.getId())),
+                    new Update().set("startLocationKey", ride.getStartLocationKey())
+                            .set("endLocationKey", ride.getEndLocationKey())
+                            .inc("version", 1));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public List<GeoResult<Ride>> findBookableNear(double latitude, double longitude, double radiusMeters,
+                                                  Instant from, Instant to, int limit) {
+        Query filter = new Query(Criteria.where("status").is(RideStatus.SCHEDULED)
+                .and("departureTime").gte(from).lt(to)
+                .and("seatsAvailable").gt(0));
+        // with a GeoJSON point and no metric the radius and the computed distances are plain meters
+        NearQuery near = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .maxDistance(radiusMeters)
+                .query(filter);
+        // rides have two 2dsphere indexes, $geoNear has to be told which one to use
+        GeoNearOperation geoNear = Aggregation.geoNear(near, "distanceMeters").useIndex("startPoint");
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(geoNear, Aggregation.limit(limit)), Ride.class, Document.class)
+                .getMappedResults()
+                .stream()
+                .map(document -> new GeoResult<>(mongoTemplate.getConverter().read(Ride.class, document),
+                        new Distance(document.get("distanceMeters", Number.class).doubleValue())))
+                .toList();
+    }
+}
@@ -3,11 +3,22 @@ package ro.unibuc.hello.repository;
 import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import ro.unibuc.hello.model.User;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
     Optional<User> findByMail(String mail);
     Optional<User> findByPhoneNumber(String phoneNumber);
     Optional<User> findById(String userId);
+
+    // Adds one rating to the user's totals in a single pipeline update, avgRating is derived from the new totals
+    // in the second stage so it can never disagree with them
+    @Query("{ 'id': ?0 }")
+    @Update(pipeline = {
+        "{ $set: { 'ratingsSum': { $add: [ { $ifNull: ['$ratingsSum', 0] }, ?1 ] }, 'reviewsNumber': { $add: [ { $ifNull: ['$reviewsNumber', 0] }, 1 ] }, 'version': { $add: [ { $ifNull: ['$version', 0] }, 1 ] } } }",
+        "{ $set: { 'avgRating': { $divide: ['$ratingsSum', '$reviewsNumber'] } } }"
+    })
+    long addRating(String userId, int rating);
 }
@@ -0,0 +1,16 @@
+package ro.unibuc.hello.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import ro.unibuc.hello.model.User;
+
+// Listing reads only the public profile fields, password hashes and roles never leave the database
+public interface UserRepositoryCustom {
+
+    // Keyset page ordered by _id: up to limit users whose id comes after afterId, from the start when afterId is null
+    List<User> findPublicPageAfter(String afterId, int limit);
+
+    // All users ordered by _id, read lazily from one Mongo cursor; the caller must close the stream
+    Stream<User> streamAllPublic();
+}
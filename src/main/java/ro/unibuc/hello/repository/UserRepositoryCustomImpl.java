@@ -0,0 +1,47 @@
+package ro.unibuc.hello.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import ro.unibuc.hello.model.User;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<User> findPublicPageAfter(String afterId, int limit) {
+        Query query = publicFields(new Query());
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(new ObjectId(afterId)));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "id")).limit(limit);
+
+        return mongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public Stream<User> streamAllPublic() {
+        Query query = publicFields(new Query()).with(Sort.by(Sort.Direction.ASC, "id")).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        return mongoTemplate.stream(query, User.class);
+    }
+
+    // exactly what UserResponseDTO shows, _id comes along for the cursor
+    private static Query publicFields(Query query) {
+        query.fields().include("firstName", "lastName", "mail", "phoneNumber", "createdAt", "avgRating");
+        return query;
+    }
+}
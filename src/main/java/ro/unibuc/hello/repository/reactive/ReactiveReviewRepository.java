@@ -0,0 +1,8 @@
+package ro.unibuc.hello.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import ro.unibuc.hello.model.Review;
+
+public interface ReactiveReviewRepository extends ReactiveMongoRepository<Review, String>, ReactiveReviewRepositoryCustom {
+}
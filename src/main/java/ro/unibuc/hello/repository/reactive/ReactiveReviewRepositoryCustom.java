@@ -0,0 +1,12 @@
+package ro.unibuc.hello.repository.reactive;
+
+import java.time.Instant;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.model.Review;
+
+public interface ReactiveReviewRepositoryCustom {
+
+    // A driver's reviews newest first by (createdAt, _id), continuing before beforeCreatedAt/beforeId when set
+    Flux<Review> streamByReviewedIdBefore(String reviewedId, Instant beforeCreatedAt, String beforeId);
+}
@@ -0,0 +1,40 @@
+package ro.unibuc.hello.repository.reactive;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.model.Review;
+
+public class ReactiveReviewRepositoryCustomImpl implements ReactiveReviewRepositoryCustom {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReactiveReviewRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> streamByReviewedIdBefore(String reviewedId, Instant beforeCreatedAt, String beforeId) {
+        // served by reviewed_created_idx, like ReviewRepositoryCustomImpl.findByReviewedIdBefore
+        Criteria criteria = Criteria.where("reviewedId").is(reviewedId);
+        if (beforeCreatedAt != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").lt(beforeCreatedAt),
+                    Criteria.where("createdAt").is(beforeCreatedAt).and("id").lt(new ObjectId(beforeId)));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .cursorBatchSize(STREAM_BATCH_SIZE);
+
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+}
@@ -0,0 +1,11 @@
+package ro.unibuc.hello.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.model.RideBooking;
+
+public interface ReactiveRideBookingRepository extends ReactiveMongoRepository<RideBooking, String> {
+
+    Flux<RideBooking> findByRideId(String rideId);
+}
@@ -0,0 +1,8 @@
+package ro.unibuc.hello.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import ro.unibuc.hello.model.Ride;
+
+public interface ReactiveRideRepository extends ReactiveMongoRepository<Ride, String>, ReactiveRideRepositoryCustom {
+}
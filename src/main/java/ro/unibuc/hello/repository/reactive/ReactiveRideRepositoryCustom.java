@@ -0,0 +1,17 @@
+package ro.unibuc.hello.repository.reactive;
+
+import java.time.Instant;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.model.Ride;
+
+public interface ReactiveRideRepositoryCustom {
+
+    // Every ride after afterId in _id order, all of them when afterId is null
+    Flux<Ride> streamAfter(String afterId);
+
+    // Scheduled rides departing in [from, to) in (departureTime, _id) order; afterDeparture/afterId continue
+    // after a ride of a previous page or stream, both null to start from the first one
+    Flux<Ride> streamScheduledDeparting(Instant from, Instant to, String startLocation, String endLocation,
+                                        Instant afterDeparture, String afterId);
+}
@@ -0,0 +1,63 @@
+package ro.unibuc.hello.repository.reactive;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.core.publisher.Flux;
+import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.model.Ride;
+
+public class ReactiveRideRepositoryCustomImpl implements ReactiveRideRepositoryCustom {
+
+    // documents fetched per round trip, the next batch is only asked for once the subscriber wants more
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReactiveRideRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Ride> streamAfter(String afterId) {
+        Query query = new Query();
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(new ObjectId(afterId)));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "id")).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        return reactiveMongoTemplate.find(query, Ride.class);
+    }
+
+    @Override
+    public Flux<Ride> streamScheduledDeparting(Instant from, Instant to, String startLocation, String endLocation,
+                                               Instant afterDeparture, String afterId) {
+        // same shape as RideRepositoryCustomImpl.findScheduledDeparting, served by status_departure_id_idx
+        Criteria criteria = Criteria.where("status").is(RideStatus.SCHEDULED)
+                .and("departureTime").gte(from).lt(to);
+        if (startLocation != null) {
+            criteria.and("startLocation").is(startLocation);
+        }
+        if (endLocation != null) {
+            criteria.and("endLocation").is(endLocation);
+        }
+        if (afterDeparture != null) {
+            criteria.orOperator(
+                    Criteria.where("departureTime").gt(afterDeparture),
+                    Criteria.where("departureTime").is(afterDeparture).and("id").gt(new ObjectId(afterId)));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "departureTime", "id"))
+                .cursorBatchSize(STREAM_BATCH_SIZE);
+        query.fields().include("startLocation", "endLocation", "departureTime", "arrivalTime",
+                "seatPrice", "seatsAvailable", "carLicensePlate", "status");
+
+        return reactiveMongoTemplate.find(query, Ride.class);
+    }
+}
@@ -0,0 +1,8 @@
+package ro.unibuc.hello.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import ro.unibuc.hello.model.User;
+
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+}
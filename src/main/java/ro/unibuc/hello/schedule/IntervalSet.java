@@ -0,0 +1,119 @@
+package ro.unibuc.hello.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of [start, end) intervals keyed by ride id, stored as parallel primitive arrays sorted by start.
+ * maxEnds[i] is the largest end among the first i + 1 intervals, so an overlap query is one binary search:
+ * some interval overlaps [from, to) iff an interval starting before {@code to} ends after {@code from}.
+ * Updates return a new copy, which keeps reads lock free.
+ */
+public final class IntervalSet {
+
+    public static final IntervalSet EMPTY = new IntervalSet(new String[0], new long[0], new long[0]);
+
+    private final String[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    private IntervalSet(String[] ids, long[] starts, long[] ends) {
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = new long[ends.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < ends.length; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    public boolean overlaps(long from, long to) {
+        int last = lastStartingBefore(to);
+        return last >= 0 && maxEnds[last] > from;
+    }
+
+    public IntervalSet with(String id, long start, long end) {
+        IntervalSet base = without(id);
+        int size = base.size();
+        int position = base.lastStartingBefore(start + 1) + 1;
+
+        String[] newIds = new String[size + 1];
+        long[] newStarts = new long[size + 1];
+        long[] newEnds = new long[size + 1];
+
+        System.arraycopy(base.ids, 0, newIds, 0, position);
+        System.arraycopy(base.starts, 0, newStarts, 0, position);
+        System.arraycopy(base.ends, 0, newEnds, 0, position);
+        newIds[position] = id;
+        newStarts[position] = start;
+        newEnds[position] = end;
+        System.arraycopy(base.ids, position, newIds, position + 1, size - position);
+        System.arraycopy(base.starts, position, newStarts, position + 1, size - position);
+        System.arraycopy(base.ends, position, newEnds, position + 1, size - position);
+
+        return new IntervalSet(newIds, newStarts, newEnds);
+    }
+
+    public IntervalSet without(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return this;
+        }
+        int size = size();
+        String[] newIds = new String[size - 1];
+        long[] newStarts = new long[size - 1];
+        long[] newEnds = new long[size - 1];
+
+        System.arraycopy(ids, 0, newIds, 0, index);
+        System.arraycopy(starts, 0, newStarts, 0, index);
+        System.arraycopy(ends, 0, newEnds, 0, index);
+        System.arraycopy(ids, index + 1, newIds, index, size - index - 1);
+        System.arraycopy(starts, index + 1, newStarts, index, size - index - 1);
+        System.arraycopy(ends, index + 1, newEnds, index, size - index - 1);
+
+        return new IntervalSet(newIds, newStarts, newEnds);
+    }
+
+    // index of the last interval with start < bound, -1 if there is none
+    private int lastStartingBefore(long bound) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < bound) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private int indexOf(String id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i].equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "IntervalSet{" +
+                "ids=" + Arrays.toString(ids) +
+                ", starts=" + Arrays.toString(starts) +
+                ", ends=" + Arrays.toString(ends) +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package ro.unibuc.hello.schedule;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+
+/**
+ * Node-local, write-through index of the SCHEDULED and IN_PROGRESS rides each user is part of,
+ * once as driver and once as passenger. A user's schedule is loaded from Mongo on first access,
+ * then kept up to date by the services on every write that changes it.
+ *
+ * Entries are bounded in number and expire after a while, which also bounds how long a write made
+ * on another node can go unseen. Set schedule-index.enabled=false to always ask Mongo instead.
+ *
+ * Bookings stored before the ride interval was copied onto them are placed with their ride's interval,
+ * until RideBookingIntervalBackfillJob has filled them in.
+ */
+@Component
+public class ScheduleIndex {
+
+    // intervals ending before loadedFrom were not loaded, queries reaching before it go to Mongo
+    private record UserSchedule(long loadedFrom, IntervalSet intervals) {
+        UserSchedule with(String rideId, Instant departureTime, Instant arrivalTime) {
+            return new UserSchedule(loadedFrom, intervals.with(rideId, departureTime.toEpochMilli(), arrivalTime.toEpochMilli()));
+        }
+
+        UserSchedule without(String rideId) {
+            IntervalSet remaining = intervals.without(rideId);
+            return remaining == intervals ? this : new UserSchedule(loadedFrom, remaining);
+        }
+    }
+
+    private final RideRepository rideRepository;
+    private final RideBookingRepository rideBookingRepository;
+    private final Clock clock;
+    private final boolean enabled;
+
+    private final Cache<String, UserSchedule> driverSchedules;
+    private final Cache<String, UserSchedule> passengerSchedules;
+
+    public ScheduleIndex(RideRepository rideRepository,
+                         RideBookingRepository rideBookingRepository,
+                         Clock clock,
+                         MeterRegistry meterRegistry,
+                         @Value("${schedule-index.enabled:true}") boolean enabled,
+                         @Value("${schedule-index.max-users:10000}") long maxUsers,
+                         @Value("${schedule-index.expire-after-write:60s}") Duration expireAfterWrite) {
+        this.rideRepository = rideRepository;
+        this.rideBookingRepository = rideBookingRepository;
+        this.clock = clock;
+        this.enabled = enabled;
+
+        this.driverSchedules = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.passengerSchedules = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, driverSchedules, "driver_schedules");
+        CaffeineCacheMetrics.monitor(meterRegistry, passengerSchedules, "passenger_schedules");
+    }
+
+    public boolean isDriverBusy(String driverId, Instant departureTime, Instant arrivalTime) {
+        if (enabled) {
+            UserSchedule schedule = driverSchedules.get(driverId, this::loadDriverSchedule);
+            if (departureTime.toEpochMilli() >= schedule.loadedFrom()) {
+                return schedule.intervals().overlaps(departureTime.toEpochMilli(), arrivalTime.toEpochMilli());
+            }
+        }
+        return !rideRepository.findByDriverIdAndTimeOverlap(driverId, departureTime, arrivalTime).isEmpty();
+    }
+
+    public boolean isPassengerBusy(String passengerId, Instant departureTime, Instant arrivalTime) {
+        if (enabled) {
+            UserSchedule schedule = passengerSchedules.get(passengerId, this::loadPassengerSchedule);
+            if (departureTime.toEpochMilli() >= schedule.loadedFrom()) {
+                return schedule.intervals().overlaps(departureTime.toEpochMilli(), arrivalTime.toEpochMilli());
+            }
+        }
+        return !rideBookingRepository.findOverlappingRidesForPassenger(passengerId, departureTime, arrivalTime).isEmpty()
+                || ridesWithoutCopiedInterval(passengerId).stream()
+                        .anyMatch(ride -> ride.getDepartureTime().isBefore(arrivalTime) && ride.getArrivalTime().isAfter(departureTime));
+    }
+
+    // Schedules that are not cached yet are left alone, they will see the write when they are loaded
+    public void rideScheduled(Ride ride) {
+        driverSchedules.asMap().computeIfPresent(ride.getDriverId(),
+                (driverId, schedule) -> schedule.with(ride.getId(), ride.getDepartureTime(), ride.getArrivalTime()));
+    }
+
+    public void rideBooked(RideBooking booking) {
+        passengerSchedules.asMap().computeIfPresent(booking.getPassengerId(),
+                (passengerId, schedule) -> schedule.with(booking.getRideId(), booking.getDepartureTime(), booking.getArrivalTime()));
+    }
+
+    public void bookingCancelled(String passengerId, String rideId) {
+        passengerSchedules.asMap().computeIfPresent(passengerId, (id, schedule) -> schedule.without(rideId));
+    }
+
+    // The ride was completed or cancelled, it no longer keeps its driver or passengers busy.
+    // Only their schedules are touched; the passengers are only read when some passenger schedule is cached.
+    public void rideEnded(Ride ride) {
+        String rideId = ride.getId();
+        driverSchedules.asMap().computeIfPresent(ride.getDriverId(), (id, schedule) -> schedule.without(rideId));
+
+        if (passengerSchedules.estimatedSize() == 0) {
+            return;
+        }
+        for (RideBooking booking : rideBookingRepository.findPassengerIdsByRideId(rideId)) {
+            passengerSchedules.asMap().computeIfPresent(booking.getPassengerId(), (id, schedule) -> schedule.without(rideId));
+        }
+    }
+
+    private UserSchedule loadDriverSchedule(String driverId) {
+        long now = clock.millis();
+        IntervalSet intervals = IntervalSet.EMPTY;
+        for (Ride ride : rideRepository.findActiveByDriverIdArrivingAfter(driverId, Instant.ofEpochMilli(now))) {
+            intervals = intervals.with(ride.getId(), ride.getDepartureTime().toEpochMilli(), ride.getArrivalTime().toEpochMilli());
+        }
+        return new UserSchedule(now, intervals);
+    }
+
+    private UserSchedule loadPassengerSchedule(String passengerId) {
+        long now = clock.millis();
+        IntervalSet intervals = IntervalSet.EMPTY;
+        for (RideBooking booking : rideBookingRepository.findActiveByPassengerIdArrivingAfter(passengerId, Instant.ofEpochMilli(now))) {
+            intervals = intervals.with(booking.getRideId(), booking.getDepartureTime().toEpochMilli(), booking.getArrivalTime().toEpochMilli());
+        }
+        for (Ride ride : ridesWithoutCopiedInterval(passengerId)) {
+            if (ride.getArrivalTime().toEpochMilli() > now) {
+                intervals = intervals.with(ride.getId(), ride.getDepartureTime().toEpochMilli(), ride.getArrivalTime().toEpochMilli());
+            }
+        }
+        return new UserSchedule(now, intervals);
+    }
+
+    // Rides of the passenger's active bookings that have no departureTime yet; none once the backfill has run,
+    // the lookup is then one empty range on the (passengerId, departureTime, arrivalTime) index
+    private List<Ride> ridesWithoutCopiedInterval(String passengerId) {
+        List<String> rideIds = rideBookingRepository.findActiveByPassengerIdWithoutRideInterval(passengerId).stream()
+                .map(RideBooking::getRideId)
+                .toList();
+        return rideIds.isEmpty() ? List.of() : rideRepository.findAllById(rideIds);
+    }
+}
@@ -0,0 +1,110 @@
+package ro.unibuc.hello.search;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Base32 geohash cells and great-circle distances, just enough to bucket nearby searches by area
+public final class Geohash {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180;
+
+    private Geohash() {}
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double[] latitudeRange = {-90, 90};
+        double[] longitudeRange = {-180, 180};
+        StringBuilder hash = new StringBuilder(precision);
+        boolean longitudeBit = true;
+        int bits = 0;
+        int value = 0;
+
+        while (hash.length() < precision) {
+            double[] range = longitudeBit ? longitudeRange : latitudeRange;
+            double coordinate = longitudeBit ? longitude : latitude;
+            double middle = (range[0] + range[1]) / 2;
+            value <<= 1;
+            if (coordinate >= middle) {
+                value |= 1;
+                range[0] = middle;
+            } else {
+                range[1] = middle;
+            }
+            longitudeBit = !longitudeBit;
+
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(value));
+                bits = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    // Center of the cell as {latitude, longitude}
+    public static double[] center(String hash) {
+        double[] latitudeRange = {-90, 90};
+        double[] longitudeRange = {-180, 180};
+        boolean longitudeBit = true;
+
+        for (int i = 0; i < hash.length(); i++) {
+            int value = BASE32.indexOf(hash.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + hash);
+            }
+            for (int bit = 4; bit >= 0; bit--) {
+                double[] range = longitudeBit ? longitudeRange : latitudeRange;
+                double middle = (range[0] + range[1]) / 2;
+                if ((value >> bit & 1) == 1) {
+                    range[0] = middle;
+                } else {
+                    range[1] = middle;
+                }
+                longitudeBit = !longitudeBit;
+            }
+        }
+        return new double[] {(latitudeRange[0] + latitudeRange[1]) / 2, (longitudeRange[0] + longitudeRange[1]) / 2};
+    }
+
+    // Every cell of the given precision whose center is within radiusMeters of the point. Cells of one precision form
+    // a regular latitude/longitude grid, so they are walked row by row around the point's own cell instead of searched.
+    public static List<String> cellsWithin(double latitude, double longitude, double radiusMeters, int precision) {
+        int bits = precision * 5;
+        long rows = 1L << (bits / 2);
+        long columns = 1L << ((bits + 1) / 2);
+        double rowDegrees = 180.0 / rows;
+        double columnDegrees = 360.0 / columns;
+
+        double radiusDegrees = radiusMeters / METERS_PER_DEGREE;
+        long row = (long) Math.floor((latitude + 90) / rowDegrees);
+        long column = (long) Math.floor((longitude + 180) / columnDegrees);
+        long rowReach = (long) Math.ceil(radiusDegrees / rowDegrees) + 1;
+        // a degree of longitude is shortest on the row nearest the pole, that row sets how far to reach sideways
+        double cosine = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + radiusDegrees + rowDegrees)));
+        long columnReach = cosine <= 0 ? columns / 2
+                : Math.min(columns / 2, (long) Math.ceil(radiusDegrees / cosine / columnDegrees) + 1);
+
+        Set<String> cells = new LinkedHashSet<>();
+        for (long r = Math.max(0, row - rowReach); r <= Math.min(rows - 1, row + rowReach); r++) {
+            double cellLatitude = -90 + (r + 0.5) * rowDegrees;
+            for (long c = column - columnReach; c <= column + columnReach; c++) {
+                double cellLongitude = -180 + (Math.floorMod(c, columns) + 0.5) * columnDegrees;
+                if (distanceMeters(latitude, longitude, cellLatitude, cellLongitude) <= radiusMeters) {
+                    cells.add(encode(cellLatitude, cellLongitude, precision));
+                }
+            }
+        }
+        return List.copyOf(cells);
+    }
+
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,133 @@
+package ro.unibuc.hello.search;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+/**
+ * Node-local candidate cache for nearby search, bucketed by geohash cell and UTC departure day.
+ *
+ * A bucket holds every bookable ride starting within MAX_RADIUS_METERS of anywhere in its cell, read with one
+ * $geoNear from the cell center. Any search centered in the cell with a radius up to MAX_RADIUS_METERS is then
+ * answered from the bucket by exact distance, so a busy area costs one Mongo query per cell and day.
+ * Buckets that would hold more than max-candidates rides are not cached, those searches go straight to Mongo.
+ *
+ * The services drop the buckets around a ride whenever it is created, started, cancelled, fills up or gets
+ * a seat back; other changes show up after expire-after-write. Set nearby-search.cache.enabled=false to always ask Mongo.
+ */
+@Component
+public class NearbyRideCache {
+
+    public static final double MAX_RADIUS_METERS = 25_000;
+
+    // 5 characters give cells of at most ~4.9 x 4.9 km, no point of a cell is further than this from its center
+    private static final int CELL_PRECISION = 5;
+    private static final double CELL_HALF_DIAGONAL_METERS = 3_500;
+    private static final double CANDIDATE_RADIUS_METERS = MAX_RADIUS_METERS + CELL_HALF_DIAGONAL_METERS;
+
+    private record CellDay(String cell, LocalDate day) {}
+
+    // complete is false when the area had too many rides to cache, rides is then empty
+    private record Candidates(List<Ride> rides, boolean complete) {}
+
+    private final RideRepository rideRepository;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    private final Cache<CellDay, Candidates> cellDays;
+
+    public NearbyRideCache(RideRepository rideRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${nearby-search.cache.enabled:true}") boolean enabled,
+                           @Value("${nearby-search.cache.max-cell-days:5000}") long maxCellDays,
+                           @Value("${nearby-search.cache.max-candidates:2000}") int maxCandidates,
+                           @Value("${nearby-search.cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.rideRepository = rideRepository;
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+
+        this.cellDays = Caffeine.newBuilder()
+                .maximumSize(maxCellDays)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cellDays, "nearby_search");
+    }
+
+    // Bookable rides starting within radiusMeters (at most MAX_RADIUS_METERS) departing in [from, to), nearest first
+    public List<GeoResult<Ride>> findNearby(double latitude, double longitude, double radiusMeters,
+                                            Instant from, Instant to, int limit) {
+        if (!enabled) {
+            return rideRepository.findBookableNear(latitude, longitude, radiusMeters, from, to, limit);
+        }
+
+        String cell = Geohash.encode(latitude, longitude, CELL_PRECISION);
+        List<GeoResult<Ride>> results = new ArrayList<>();
+        LocalDate lastDay = to.minusMillis(1).atZone(ZoneOffset.UTC).toLocalDate();
+
+        for (LocalDate day = from.atZone(ZoneOffset.UTC).toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            Candidates candidates = cellDays.get(new CellDay(cell, day), this::load);
+            if (!candidates.complete()) {
+                return rideRepository.findBookableNear(latitude, longitude, radiusMeters, from, to, limit);
+            }
+            for (Ride ride : candidates.rides()) {
+                if (ride.getDepartureTime().isBefore(from) || !ride.getDepartureTime().isBefore(to)) {
+                    continue;
+                }
+                double distance = Geohash.distanceMeters(latitude, longitude,
+                        ride.getStartPoint().getY(), ride.getStartPoint().getX());
+                if (distance <= radiusMeters) {
+                    results.add(new GeoResult<>(ride, new Distance(distance)));
+                }
+            }
+        }
+
+        results.sort(Comparator.comparingDouble(result -> result.getDistance().getValue()));
+        return results.size() > limit ? List.copyOf(results.subList(0, limit)) : results;
+    }
+
+    // Call after any write that adds the ride to search results or takes it out
+    public void rideChanged(Ride ride) {
+        if (ride.getStartPoint() == null || ride.getDepartureTime() == null) {
+            return;
+        }
+        LocalDate day = ride.getDepartureTime().atZone(ZoneOffset.UTC).toLocalDate();
+        // the buckets holding the ride are the cells whose center is within the candidate radius of it,
+        // a couple of hundred keys however many buckets are cached
+        List<CellDay> around = Geohash.cellsWithin(ride.getStartPoint().getY(), ride.getStartPoint().getX(),
+                        CANDIDATE_RADIUS_METERS, CELL_PRECISION).stream()
+                .map(cell -> new CellDay(cell, day))
+                .toList();
+        cellDays.invalidateAll(around);
+    }
+
+    private Candidates load(CellDay cellDay) {
+        double[] center = Geohash.center(cellDay.cell());
+        List<GeoResult<Ride>> found = rideRepository.findBookableNear(center[0], center[1], CANDIDATE_RADIUS_METERS,
+                cellDay.day().atStartOfDay(ZoneOffset.UTC).toInstant(),
+                cellDay.day().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(),
+                maxCandidates + 1);
+        if (found.size() > maxCandidates) {
+            return new Candidates(List.of(), false);
+        }
+        return new Candidates(found.stream().map(GeoResult::getContent).toList(), true);
+    }
+}
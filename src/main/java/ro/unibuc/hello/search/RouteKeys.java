@@ -0,0 +1,23 @@
+package ro.unibuc.hello.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Locations are free text, routes are matched on a normalized key instead:
+// "  Bucureşti ", "bucuresti" and "BUCUREȘTI" all become "bucuresti".
+public final class RouteKeys {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\-_.,]+");
+
+    private RouteKeys() {}
+
+    public static String normalize(String location) {
+        if (location == null) {
+            return null;
+        }
+        String withoutMarks = MARKS.matcher(Normalizer.normalize(location, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,80 @@
+package ro.unibuc.hello.search;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+/**
+ * Node-local cache of the bookable rides per route and departure day, the unit route search is answered from.
+ * A popular route is read from Mongo once per day bucket instead of once per search.
+ *
+ * The services drop a bucket whenever a ride in it is created, cancelled, started, fills up or gets a seat back,
+ * so a ride shows up or disappears from search right away on this node. Seat counts inside a bucket may lag by
+ * up to expire-after-write, as do changes made on other nodes; booking itself always re-checks against Mongo.
+ * Set route-search.cache.enabled=false to always ask Mongo instead.
+ */
+@Component
+public class RouteSearchCache {
+
+    private record RouteDay(String startLocationKey, String endLocationKey, LocalDate day) {}
+
+    private final RideRepository rideRepository;
+    private final boolean enabled;
+
+    private final Cache<RouteDay, List<Ride>> routeDays;
+
+    public RouteSearchCache(RideRepository rideRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${route-search.cache.enabled:true}") boolean enabled,
+                            @Value("${route-search.cache.max-route-days:10000}") long maxRouteDays,
+                            @Value("${route-search.cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.rideRepository = rideRepository;
+        this.enabled = enabled;
+
+        this.routeDays = Caffeine.newBuilder()
+                .maximumSize(maxRouteDays)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, routeDays, "route_search");
+    }
+
+    // Bookable rides on the route departing on that UTC day, in departure order
+    public List<Ride> bookableRides(String startLocationKey, String endLocationKey, LocalDate day) {
+        RouteDay routeDay = new RouteDay(startLocationKey, endLocationKey, day);
+        return enabled ? routeDays.get(routeDay, this::load) : load(routeDay);
+    }
+
+    // Call after any write that adds the ride to search results or takes it out
+    public void rideChanged(Ride ride) {
+        // rides read through a projection may lack the keys, the locations give the same ones
+        String startLocationKey = ride.getStartLocationKey() != null
+                ? ride.getStartLocationKey() : RouteKeys.normalize(ride.getStartLocation());
+        String endLocationKey = ride.getEndLocationKey() != null
+                ? ride.getEndLocationKey() : RouteKeys.normalize(ride.getEndLocation());
+        if (startLocationKey == null || endLocationKey == null || ride.getDepartureTime() == null) {
+            return;
+        }
+        routeDays.invalidate(new RouteDay(startLocationKey, endLocationKey,
+                ride.getDepartureTime().atZone(ZoneOffset.UTC).toLocalDate()));
+    }
+
+    private List<Ride> load(RouteDay routeDay) {
+        return List.copyOf(rideRepository.findBookableOnRoute(routeDay.startLocationKey(), routeDay.endLocationKey(),
+                routeDay.day().atStartOfDay(ZoneOffset.UTC).toInstant(),
+                routeDay.day().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+    }
+}
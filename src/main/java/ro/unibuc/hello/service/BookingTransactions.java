@@ -0,0 +1,78 @@
+package ro.unibuc.hello.service;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mongodb.MongoException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs the multi-document booking writes (seat + booking) either in a Mongo transaction or directly.
+ * The transaction manager only exists when booking.write-mode=transactional, which needs a replica set;
+ * without it the writes rely on the atomic seat reservation and its compensation instead.
+ *
+ * In transactional mode a whole attempt is retried when the server labels the error as TransientTransactionError,
+ * nothing of it was written. An UnknownTransactionCommitResult is not: the writes may have been committed, and a
+ * rerun would be rejected by its own checks. The transaction manager retries just the commit instead
+ * (CommitRetryingTransactionManager), what still fails after that is thrown.
+ */
+@Component
+public class BookingTransactions {
+    private static final Logger logger = LoggerFactory.getLogger(BookingTransactions.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+
+    public BookingTransactions(Optional<MongoTransactionManager> transactionManager,
+                               @Value("${booking.transaction.max-attempts:3}") int maxAttempts,
+                               MeterRegistry meterRegistry) {
+        this.transactionTemplate = transactionManager.map(TransactionTemplate::new).orElse(null);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // In transactional mode a failed attempt is rolled back as a whole, so callers must not compensate by hand
+    public boolean isTransactional() {
+        return transactionTemplate != null;
+    }
+
+    public <T> T execute(Supplier<T> writes) {
+        if (transactionTemplate == null) {
+            return writes.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> writes.get());
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                meterRegistry.counter("booking_transaction_retries_total",
+                        "label", MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL).increment();
+                logger.debug("Retrying booking transaction after {} (attempt {} of {})",
+                        MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL, attempt + 1, maxAttempts);
+            }
+        }
+    }
+
+    // Spring wraps driver errors, the labels are on the MongoException somewhere down the cause chain
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
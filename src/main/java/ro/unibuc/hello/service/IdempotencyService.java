@@ -0,0 +1,234 @@
+package ro.unibuc.hello.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.unibuc.hello.model.IdempotencyRecord;
+import ro.unibuc.hello.repository.IdempotencyRecordRepository;
+
+/**
+ * Makes POST endpoints safe to retry with an Idempotency-Key header.
+ *
+ * The first request with a key claims it in Mongo, runs, and stores its response; later requests with the
+ * same key get that response back without running again, or 422 when they carry a different request. Requests
+ * racing on one node share a single execution through a local single-flight map, a request racing from another
+ * node finds the claim and gets 409 until the first one finishes. Keys expire through the idempotency.ttl index.
+ *
+ * A claim is held for claim-lease: a pending claim older than that belongs to a node that died before storing
+ * a response, and the next request with the same key takes it over and runs. The lease has to outlast the
+ * slowest request, a claim taken over while its request is still running would run it twice.
+ *
+ * 5xx responses and exceptions are not stored, the claim is dropped so the client can retry them. A response
+ * that can't be stored after STORE_ATTEMPTS keeps the claim pending rather than dropping it, retries get 409
+ * instead of running a request that already succeeded.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int STORE_ATTEMPTS = 3;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final Duration claimLease;
+
+    // requests running on this node by scope:key, with the hash of the request that runs
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private record InFlight(String requestHash, CompletableFuture<ResponseEntity<?>> response) {}
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              Clock clock,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.claim-lease:1m}") Duration claimLease) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.claimLease = claimLease;
+    }
+
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String id = scope + ":" + key;
+        String requestHash = hash(request);
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight leader = inFlight.putIfAbsent(id, mine);
+
+        if (leader != null) {
+            if (!requestHash.equals(leader.requestHash())) {
+                return mismatch(scope);
+            }
+            // same request already running on this node, wait for its response instead of running again
+            record(scope, "collapsed");
+            try {
+                return leader.response().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+        }
+
+        try {
+            ResponseEntity<?> response = executeOnce(scope, id, requestHash, action);
+            mine.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private ResponseEntity<?> executeOnce(String scope, String id, String requestHash, Supplier<ResponseEntity<?>> action) {
+        String claimToken = UUID.randomUUID().toString();
+        try {
+            idempotencyRecordRepository.insert(new IdempotencyRecord(id, requestHash, claimToken, clock.instant()));
+        } catch (DuplicateKeyException e) {
+            Optional<ResponseEntity<?>> replayed = replayOrTakeOver(scope, id, requestHash, claimToken);
+            if (replayed.isPresent()) {
+                return replayed.get();
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(id, claimToken);
+            throw e;
+        }
+
+        if (response.getStatusCode().is5xxServerError()) {
+            idempotencyRecordRepository.release(id, claimToken);
+        } else {
+            store(id, requestHash, claimToken, response);
+        }
+        record(scope, "executed");
+        return response;
+    }
+
+    // The stored response, 422 or 409; empty when this request took over an expired claim and has to run
+    private Optional<ResponseEntity<?>> replayOrTakeOver(String scope, String id, String requestHash, String claimToken) {
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(id);
+
+        if (stored.isEmpty()) {
+            // the claim was dropped after a failure in between, the client may simply retry
+            return Optional.of(inProgress(scope));
+        }
+
+        IdempotencyRecord idempotencyRecord = stored.get();
+        if (!requestHash.equals(idempotencyRecord.getRequestHash())) {
+            return Optional.of(mismatch(scope));
+        }
+        if (!idempotencyRecord.isCompleted()) {
+            Instant now = clock.instant();
+            if (idempotencyRecordRepository.takeOverExpiredClaim(id, requestHash, now.minus(claimLease), claimToken, now)) {
+                logger.warn("Took over the expired claim on {}, its request never stored a response", id);
+                record(scope, "taken_over");
+                return Optional.empty();
+            }
+            return Optional.of(inProgress(scope));
+        }
+
+        record(scope, "replayed");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(idempotencyRecord.getStatus())
+            .header(REPLAYED_HEADER, "true");
+        if (idempotencyRecord.getContentType() != null) {
+            builder.contentType(MediaType.parseMediaType(idempotencyRecord.getContentType()));
+        }
+        return Optional.of(builder.body(idempotencyRecord.getBody()));
+    }
+
+    private ResponseEntity<?> inProgress(String scope) {
+        record(scope, "in_progress");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("A request with this Idempotency-Key is still being processed.");
+    }
+
+    private ResponseEntity<?> mismatch(String scope) {
+        record(scope, "mismatch");
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+            .body("Idempotency-Key was already used for a different request.");
+    }
+
+    private void store(String id, String requestHash, String claimToken, ResponseEntity<?> response) {
+        IdempotencyRecord idempotencyRecord = new IdempotencyRecord(id, requestHash, claimToken, clock.instant());
+        idempotencyRecord.setStatus(response.getStatusCode().value());
+
+        Object body = response.getBody();
+        if (body instanceof String text) {
+            idempotencyRecord.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            idempotencyRecord.setBody(text);
+        } else if (body != null) {
+            idempotencyRecord.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            idempotencyRecord.setBody(toJson(body));
+        }
+
+        for (int attempt = 1; attempt <= STORE_ATTEMPTS; attempt++) {
+            try {
+                if (!idempotencyRecordRepository.complete(idempotencyRecord)) {
+                    logger.warn("Claim on {} was taken over before its response was stored", id);
+                }
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Could not store idempotent response for {} (attempt {}): {}", id, attempt, e.getMessage());
+            }
+        }
+        // the request itself succeeded, the claim stays pending so a retry gets 409 instead of running it again
+        logger.error("Gave up storing idempotent response for {}, its claim stays pending", id);
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private void record(String scope, String outcome) {
+        meterRegistry.counter("idempotency_requests_total", "scope", scope, "outcome", outcome).increment();
+    }
+}
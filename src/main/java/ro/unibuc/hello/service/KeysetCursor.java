@@ -0,0 +1,38 @@
+package ro.unibuc.hello.service;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+
+/**
+ * The position of a keyset-paged listing ordered by a timestamp and then the id, handed out in X-Next-Cursor as
+ * "<epoch millis>_<id>" of the last document returned; the id breaks ties between equal timestamps. Both parts are
+ * null when the listing starts from the beginning. Shared by the paged listings and their streaming versions, so
+ * a cursor from one is valid in the other.
+ */
+record KeysetCursor(Instant at, String id) {
+
+    static final KeysetCursor START = new KeysetCursor(null, null);
+
+    // START for a null cursor; anything that isn't "<millis>_<ObjectId>" throws the listing's own exception
+    static KeysetCursor parse(String after, Function<String, RuntimeException> invalid) {
+        if (after == null) {
+            return START;
+        }
+        int separator = after.indexOf('_');
+        String id = separator > 0 ? after.substring(separator + 1) : null;
+        if (id == null || !ObjectId.isValid(id)) {
+            throw invalid.apply("Invalid cursor.");
+        }
+        try {
+            return new KeysetCursor(Instant.ofEpochMilli(Long.parseLong(after.substring(0, separator))), id);
+        } catch (NumberFormatException e) {
+            throw invalid.apply("Invalid cursor.");
+        }
+    }
+
+    static String format(Instant at, String id) {
+        return at.toEpochMilli() + "_" + id;
+    }
+}
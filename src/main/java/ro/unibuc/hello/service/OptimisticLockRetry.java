@@ -0,0 +1,76 @@
+package ro.unibuc.hello.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Re-runs a read-modify-write operation when its version-checked save loses to a concurrent write.
+ * Each attempt must reload the document it changes, so the retry sees the winning write and validates against it.
+ * Waits between attempts grow exponentially with full jitter, so competing writers do not retry in lockstep.
+ */
+@Component
+public class OptimisticLockRetry {
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticLockRetry(MeterRegistry meterRegistry,
+                               @Value("${optimistic-lock.max-attempts:3}") int maxAttempts,
+                               @Value("${optimistic-lock.backoff-ms:20}") long backoffMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+    }
+
+    public <T> T execute(String entity, Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflicts(entity).increment();
+
+                if (attempt >= maxAttempts) {
+                    logger.warn("Giving up on {} update after {} conflicting attempts", entity, attempt);
+                    throw e;
+                }
+                logger.debug("Conflicting {} update, retrying (attempt {} of {})", entity, attempt + 1, maxAttempts);
+                if (!backoff(attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Counter conflicts(String entity) {
+        return Counter.builder("optimistic_lock_conflicts_total")
+                .description("Version-checked saves that lost to a concurrent write")
+                .tag("entity", entity)
+                .register(meterRegistry);
+    }
+
+    // false if the thread was interrupted while waiting, the caller then stops retrying
+    private boolean backoff(int attempt) {
+        if (backoffMillis <= 0) {
+            return true;
+        }
+        long ceiling = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
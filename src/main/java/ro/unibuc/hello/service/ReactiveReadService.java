@@ -0,0 +1,118 @@
+package ro.unibuc.hello.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ro.unibuc.hello.dto.ride.RideResponseDTO;
+import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exceptions.review.InvalidReviewException;
+import ro.unibuc.hello.exceptions.ride.InvalidRideException;
+import ro.unibuc.hello.model.Review;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.reactive.ReactiveReviewRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveRideBookingRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveRideRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveUserRepository;
+
+/**
+ * The listing reads of RideService, ReviewService and RideBookingService as streams over the reactive driver.
+ * There is no page size: documents are read a cursor batch at a time as the response is written, so a long listing
+ * holds one batch in memory and the client ends it early by closing the connection. The cursors are the same as
+ * the ones in X-Next-Cursor, a paged listing can be continued as a stream.
+ *
+ * Cursors are checked before anything is read, an invalid one throws instead of failing the stream.
+ */
+@Service
+@ConditionalOnProperty(name = "reactive-reads.enabled", havingValue = "true")
+public class ReactiveReadService {
+
+    // passengers whose name was never copied onto their booking are looked up this many bookings at a time
+    private static final int NAME_LOOKUP_BATCH = 100;
+
+    private final ReactiveRideRepository reactiveRideRepository;
+    private final ReactiveReviewRepository reactiveReviewRepository;
+    private final ReactiveRideBookingRepository reactiveRideBookingRepository;
+    private final ReactiveUserRepository reactiveUserRepository;
+
+    public ReactiveReadService(ReactiveRideRepository reactiveRideRepository,
+                               ReactiveReviewRepository reactiveReviewRepository,
+                               ReactiveRideBookingRepository reactiveRideBookingRepository,
+                               ReactiveUserRepository reactiveUserRepository) {
+        this.reactiveRideRepository = reactiveRideRepository;
+        this.reactiveReviewRepository = reactiveReviewRepository;
+        this.reactiveRideBookingRepository = reactiveRideBookingRepository;
+        this.reactiveUserRepository = reactiveUserRepository;
+    }
+
+    public Flux<Ride> streamRides(String after) {
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new InvalidRideException("Invalid cursor.");
+        }
+        return reactiveRideRepository.streamAfter(after);
+    }
+
+    public Flux<RideResponseDTO> streamScheduledRidesByDate(Instant date, String startLocation, String endLocation,
+                                                            String after) {
+        LocalDate localDate = date.atZone(ZoneOffset.UTC).toLocalDate();
+        Instant startOfDay = localDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant endOfDay = localDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        KeysetCursor cursor = KeysetCursor.parse(after, InvalidRideException::new);
+        return reactiveRideRepository.streamScheduledDeparting(startOfDay, endOfDay, startLocation, endLocation,
+                        cursor.at(), cursor.id())
+                .map(RideResponseDTO::toDTO);
+    }
+
+    public Flux<Review> streamReviewsByDriver(String driverId, String after) {
+        KeysetCursor cursor = KeysetCursor.parse(after, InvalidReviewException::new);
+        return reactiveReviewRepository.streamByReviewedIdBefore(driverId, cursor.at(), cursor.id());
+    }
+
+    public Flux<RideBookingResponseDTO> streamPassengersByRideId(String rideId) {
+        // one batch of bookings is named before the next one is read
+        return reactiveRideBookingRepository.findByRideId(rideId)
+                .buffer(NAME_LOOKUP_BATCH)
+                .concatMap(this::withPassengerNames, 1);
+    }
+
+    // Bookings carry the passenger's name, only older ones without it need the users, looked up in one query
+    private Flux<RideBookingResponseDTO> withPassengerNames(List<RideBooking> bookings) {
+        Set<String> passengerIds = bookings.stream()
+                .filter(booking -> booking.getPassengerFullName() == null)
+                .map(RideBooking::getPassengerId)
+                .collect(Collectors.toSet());
+
+        Mono<Map<String, User>> passengersById = passengerIds.isEmpty()
+                ? Mono.just(Map.of())
+                : reactiveUserRepository.findAllById(passengerIds).collectMap(User::getId);
+
+        return passengersById.flatMapIterable(passengers -> bookings.stream()
+                .map(booking -> {
+                    RideBookingResponseDTO responseDTO = RideBookingResponseDTO.toDTO(booking);
+                    if (booking.getPassengerFullName() != null) {
+                        responseDTO.setPassengerFullName(booking.getPassengerFullName());
+                        return responseDTO;
+                    }
+                    User passenger = Optional.ofNullable(passengers.get(booking.getPassengerId()))
+                            .orElseThrow(() -> new EntityNotFoundException("User"));
+                    responseDTO.setPassengerFullName(User.fullName(passenger.getFirstName(), passenger.getLastName()));
+                    return responseDTO;
+                })
+                .toList());
+    }
+}
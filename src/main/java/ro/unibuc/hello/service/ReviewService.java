@@ -1,20 +1,25 @@
 package ro.unibuc.hello.service;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import ro.unibuc.hello.cache.UserCache;
+import ro.unibuc.hello.config.UniqueIndexes;
+import ro.unibuc.hello.dto.review.DriverRatingSummaryDTO;
+import ro.unibuc.hello.dto.review.ReviewPage;
 import ro.unibuc.hello.dto.review.ReviewRequestDTO;
 import ro.unibuc.hello.dto.review.ReviewResponseDTO;
 import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.enums.RideBookingStatus;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.model.DriverRatingSummary;
 import ro.unibuc.hello.model.Review;
 import ro.unibuc.hello.model.RideBooking;
-import ro.unibuc.hello.model.User;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.repository.ReviewRepository;
 
@@ -23,23 +28,38 @@ import ro.unibuc.hello.exceptions.review.InvalidReviewException;
 import ro.unibuc.hello.repository.RideRepository;
 import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.DriverRatingSummaryRepository;
 
 @Service
 public class ReviewService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final ReviewRepository reviewRepository;
     private final RideRepository rideRepository;
     private final UserRepository userRepository;
+    private final UserCache userCache;
     private final RideBookingRepository rideBookingRepository;
+    private final DriverRatingSummaryRepository driverRatingSummaryRepository;
+    private final UniqueIndexes uniqueIndexes;
+    private final BookingTransactions bookingTransactions;
 
     public ReviewService(ReviewRepository reviewRepository, 
                         RideRepository rideRepository, 
                         UserRepository userRepository,
-                        RideBookingRepository rideBookingRepository
+                        UserCache userCache,
+                        RideBookingRepository rideBookingRepository,
+                        DriverRatingSummaryRepository driverRatingSummaryRepository,
+                        UniqueIndexes uniqueIndexes,
+                        BookingTransactions bookingTransactions
                         ) {
         this.reviewRepository = reviewRepository;
         this.rideRepository = rideRepository;
         this.userRepository = userRepository;
+        this.userCache = userCache;
         this.rideBookingRepository = rideBookingRepository;
+        this.driverRatingSummaryRepository = driverRatingSummaryRepository;
+        this.uniqueIndexes = uniqueIndexes;
+        this.bookingTransactions = bookingTransactions;
     }
 
     public void deleteAllReviews() {
@@ -54,21 +74,51 @@ public class ReviewService {
         return reviewRepository.findByRideId(id);
     }
 
-    public List<Review> getReviewsByDriver(String id) {
-        return reviewRepository.findByReviewedId(id);
+    // A driver's reviews newest first, one page at a time; the cursor is "<createdAt epoch millis>_<review id>"
+    public ReviewPage getReviewsByDriver(String id, String after, int limit) {
+        KeysetCursor cursor = KeysetCursor.parse(after, InvalidReviewException::new);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // one extra review tells whether there is a next page without another round trip
+        List<Review> reviews = reviewRepository.findByReviewedIdBefore(id, cursor.at(), cursor.id(), pageSize + 1);
+        if (reviews.size() <= pageSize) {
+            return new ReviewPage(reviews, null);
+        }
+        List<Review> page = reviews.subList(0, pageSize);
+        Review last = page.get(pageSize - 1);
+        return new ReviewPage(page, KeysetCursor.format(last.getCreatedAt(), last.getId()));
+    }
+
+    // Read from the summary maintained on every review. A driver without one yet, reviewed before summaries existed
+    // or not at all, has it built from their reviews once; a driver nobody reviewed gets an empty one
+    public DriverRatingSummaryDTO getDriverRatingSummary(String driverId) {
+        Optional<DriverRatingSummary> summary = driverRatingSummaryRepository.findById(driverId);
+        if (summary.isPresent()) {
+            return DriverRatingSummaryDTO.toDTO(summary.get());
+        }
+        if (!userCache.exists(driverId)) {
+            throw new EntityNotFoundException("User");
+        }
+        return DriverRatingSummaryDTO.toDTO(driverRatingSummaryRepository.buildForDriver(driverId));
     }
 
     public ReviewResponseDTO createReview(ReviewRequestDTO reviewRequestDTO) {
         // Check if reviewer exists in users table
-        if (!userRepository.existsById(reviewRequestDTO.getReviewerId())) {
+        if (!userCache.exists(reviewRequestDTO.getReviewerId())) {
             throw new InvalidReviewException("Reviewer does not exist as user.");
         }
 
          // Check if reviewed exists in users table
-         if (!userRepository.existsById(reviewRequestDTO.getReviewedId())) {
+         if (!userCache.exists(reviewRequestDTO.getReviewedId())) {
             throw new InvalidReviewException("Reviewed does not exist as user.");
         }
 
+        // The summary keeps a count per star
+        if (reviewRequestDTO.getRating() < DriverRatingSummary.MIN_RATING
+                || reviewRequestDTO.getRating() > DriverRatingSummary.MAX_RATING) {
+            throw new InvalidReviewException("Rating must be between 1 and 5.");
+        }
+
         // Check if reviewer is different from reviewed
         if (reviewRequestDTO.getReviewerId().equals(reviewRequestDTO.getReviewedId())) {
             throw new InvalidReviewException("Reviewer can't also be reviewed.");
@@ -101,30 +151,37 @@ public class ReviewService {
             throw new InvalidReviewException("Reviewer cancelled ride.");
         }
 
-        Optional<Review> existingReview = reviewRepository.findByRideIdAndReviewerId(
-            reviewRequestDTO.getRideId(), reviewRequestDTO.getReviewerId());
-
-        // Check if reviewer already reviewed ride
-        if (existingReview.isPresent()) {
-            throw new InvalidReviewException("Reviewer already made a review for this ride");
-        }
-
-        
         // Check if reviewed is driver of ride
         if (!ride.getDriverId().equals(reviewRequestDTO.getReviewedId())) {
             throw new InvalidReviewException("Reviewed is not driver of ride");
         }
 
-        Review newReview = reviewRequestDTO.toEntity();
-        User reviewed = userRepository.findById(reviewRequestDTO.getReviewedId()).get();
-        
-        reviewed.setRatingsSum(reviewed.getRatingsSum() + reviewRequestDTO.getRating());
-        reviewed.setReviewsNumber(reviewed.getReviewsNumber() + 1);
-
-        reviewed.setAvgRating((double) reviewed.getRatingsSum() / reviewed.getReviewsNumber());
+        // Check if reviewer already reviewed ride, only while ride_reviewer_idx couldn't be built over old duplicates
+        if (!uniqueIndexes.isBuilt(Review.RIDE_REVIEWER_INDEX) && reviewRepository.findByRideIdAndReviewerId(
+                reviewRequestDTO.getRideId(), reviewRequestDTO.getReviewerId()).isPresent()) {
+            throw new InvalidReviewException("Reviewer already made a review for this ride");
+        }
 
-        reviewRepository.save(newReview);
-        userRepository.save(reviewed);
+        // The review and the driver's two totals are written together in transactional mode. Without transactions
+        // they are separate writes: a failure after the review is saved, or a summary built at the same moment from
+        // the reviews before this one, leaves the totals short of it until the summary backfill job rebuilds them
+        Review newReview = reviewRequestDTO.toEntity();
+        try {
+            bookingTransactions.execute(() -> {
+                reviewRepository.save(newReview);
+                // Both totals are changed in place, concurrent reviews of the same driver can't overwrite each other
+                userRepository.addRating(reviewRequestDTO.getReviewedId(), reviewRequestDTO.getRating());
+                // the review is already stored, a summary built now counts it
+                if (!driverRatingSummaryRepository.addRating(reviewRequestDTO.getReviewedId(), reviewRequestDTO.getRating())) {
+                    driverRatingSummaryRepository.buildForDriver(reviewRequestDTO.getReviewedId());
+                }
+                return newReview;
+            });
+        } catch (DuplicateKeyException e) {
+            // Check if reviewer already reviewed ride, ride_reviewer_idx is unique on (rideId, reviewerId)
+            throw new InvalidReviewException("Reviewer already made a review for this ride");
+        }
+        userCache.evict(reviewRequestDTO.getReviewedId());
 
         return ReviewResponseDTO.toDTO(newReview);
 
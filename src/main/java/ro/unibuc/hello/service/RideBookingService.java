@@ -4,14 +4,17 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
 import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
 import ro.unibuc.hello.model.RideBooking;
@@ -22,12 +25,15 @@ import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
 import ro.unibuc.hello.exceptions.ride.InvalidRideException;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.User;
-import ro.unibuc.hello.repository.UserRepository;
+import ro.unibuc.hello.cache.UserCache;
 import ro.unibuc.hello.repository.RideRepository;
 import ro.unibuc.hello.service.UserService;
 import ro.unibuc.hello.repository.RideBookingRepository;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.enums.RideBookingStatus;
+import ro.unibuc.hello.schedule.ScheduleIndex;
+import ro.unibuc.hello.search.NearbyRideCache;
+import ro.unibuc.hello.search.RouteSearchCache;
 
 import java.time.Clock;
 import java.time.Instant;
@@ -36,15 +42,21 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import ro.unibuc.hello.config.MetricsConfig;
+import ro.unibuc.hello.config.UniqueIndexes;
 
 @Service
 public class RideBookingService {
     private final RideBookingRepository rideBookingRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final RideRepository rideRepository;
     private final UserService userService;
     private final Clock clock;
-
+    private final ScheduleIndex scheduleIndex;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final BookingTransactions bookingTransactions;
+    private final RouteSearchCache routeSearchCache;
+    private final NearbyRideCache nearbyRideCache;
+    private final UniqueIndexes uniqueIndexes;
 
     //  metrics
     private Counter rideBookingCounter;
@@ -58,21 +70,33 @@ public class RideBookingService {
     @Autowired
     public RideBookingService(
     RideBookingRepository rideBookingRepository, 
-    UserRepository userRepository, 
+    UserCache userCache, 
     RideRepository rideRepository,
     UserService userService, 
-    Clock clock
+    Clock clock,
+    ScheduleIndex scheduleIndex,
+    OptimisticLockRetry optimisticLockRetry,
+    BookingTransactions bookingTransactions,
+    RouteSearchCache routeSearchCache,
+    NearbyRideCache nearbyRideCache,
+    UniqueIndexes uniqueIndexes
 ) {
-    this(rideBookingRepository, userRepository, rideRepository, userService, clock, 
-         null, null, null, null, null, null, null);
+    this(rideBookingRepository, userCache, rideRepository, userService, clock, scheduleIndex, optimisticLockRetry,
+         bookingTransactions, routeSearchCache, nearbyRideCache, uniqueIndexes, null, null, null, null, null, null, null);
 }
 
     public RideBookingService(
     RideBookingRepository rideBookingRepository, 
-    UserRepository userRepository, 
+    UserCache userCache, 
     RideRepository rideRepository, 
     UserService userService, 
     Clock clock,
+    ScheduleIndex scheduleIndex,
+    OptimisticLockRetry optimisticLockRetry,
+    BookingTransactions bookingTransactions,
+    RouteSearchCache routeSearchCache,
+    NearbyRideCache nearbyRideCache,
+    UniqueIndexes uniqueIndexes,
     Counter rideBookingCounter,
     Counter cancelledRideBookingsCounter,
     Counter bookingValidationFailuresCounter,
@@ -82,10 +106,16 @@ public class RideBookingService {
     MeterRegistry meterRegistry)
 {
     this.rideBookingRepository = rideBookingRepository;
-    this.userRepository = userRepository;
+    this.userCache = userCache;
     this.rideRepository = rideRepository;
     this.userService = userService;
     this.clock = clock;
+    this.scheduleIndex = scheduleIndex;
+    this.optimisticLockRetry = optimisticLockRetry;
+    this.bookingTransactions = bookingTransactions;
+    this.routeSearchCache = routeSearchCache;
+    this.nearbyRideCache = nearbyRideCache;
+    this.uniqueIndexes = uniqueIndexes;
     
      // Initialize metrics with safe defaults if null
      this.meterRegistry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
@@ -121,17 +151,30 @@ public class RideBookingService {
         meterRegistry.counter("passengers_retrieved_count", 
                              "ride_id", rideId).increment(bookings.size());
 
+        // Bookings carry the passenger's name, only older ones without it need the users, looked up in one batch
+        Set<String> passengerIds = bookings.stream()
+            .filter(booking -> booking.getPassengerFullName() == null)
+            .map(RideBooking::getPassengerId)
+            .collect(Collectors.toSet());
+
+        Map<String, User> passengersById = passengerIds.isEmpty() ? Map.of() : userCache.findAllById(passengerIds);
+
          List<RideBookingResponseDTO> result = bookings.stream()
             .map(booking -> {
-                // Get passenger information
-                User passenger = userRepository.findById(booking.getPassengerId())
-                .orElseThrow(() -> new EntityNotFoundException("User"));
-                
                 // Create response DTO
                 RideBookingResponseDTO responseDTO = RideBookingResponseDTO.toDTO(booking);
+
+                if (booking.getPassengerFullName() != null) {
+                    responseDTO.setPassengerFullName(booking.getPassengerFullName());
+                    return responseDTO;
+                }
+
+                // Get passenger information
+                User passenger = Optional.ofNullable(passengersById.get(booking.getPassengerId()))
+                .orElseThrow(() -> new EntityNotFoundException("User"));
                 
                 // Set passenger full name
-                responseDTO.setPassengerFullName(passenger.getFirstName() + " " + passenger.getLastName());
+                responseDTO.setPassengerFullName(User.fullName(passenger.getFirstName(), passenger.getLastName()));
                 
                 return responseDTO;
             })
@@ -144,72 +187,116 @@ public class RideBookingService {
         return result;
     }
 
-    @Transactional
+    // The seat and the booking are written together: in one Mongo transaction when booking.write-mode=transactional,
+    // otherwise through the atomic seat reservation, given back if the booking can't be stored
     public RideBookingResponseDTO createRideBooking (RideBookingRequestDTO rideBookingRequestDTO)
     {
         Timer.Sample sample = Timer.start(meterRegistry);
 
             try {
-                //check if passenger id is in users collection
-                if(!userRepository.existsById(rideBookingRequestDTO.getPassengerId())){
-                    bookingValidationFailuresCounter.increment(); // Metric #4
+                AtomicReference<Ride> reservedRide = new AtomicReference<>();
+                RideBooking savedBooking = bookingTransactions.execute(() -> {
+                    //check if passenger id is in users collection
+                    User passenger = userCache.findById(rideBookingRequestDTO.getPassengerId()).orElseThrow(() -> {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
 
-                    throw new InvalidRideBookingException("Passenger's id doesnt exist");
-                }
+                        return new InvalidRideBookingException("Passenger's id doesnt exist");
+                    });
 
-                //ride id has to exist
-                Ride ride = rideRepository.findById(rideBookingRequestDTO.getRideId())
-                .orElseThrow(() -> {
-                    bookingValidationFailuresCounter.increment(); // Metric #4
-                    return new InvalidRideException("Ride ID does not exist.");
-                });
-
-                //passenger shouldnt have already booked
-                RideBooking existingBooking = rideBookingRepository.findByRideIdAndPassengerId(
-                    ride.getId(), rideBookingRequestDTO.getPassengerId()
-                    ).orElse(null);
+                    //ride id has to exist
+                    Ride ride = rideRepository.findById(rideBookingRequestDTO.getRideId())
+                    .orElseThrow(() -> {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
+                        return new InvalidRideException("Ride ID does not exist.");
+                    });
+
+                    //passenger shouldnt have already booked, looked up only while ride_passenger_idx couldn't be built
+                    //over old duplicates, otherwise the insert below rejects it
+                    if (!uniqueIndexes.isBuilt(RideBooking.RIDE_PASSENGER_INDEX)
+                            && rideBookingRepository.findByRideIdAndPassengerId(
+                                ride.getId(), rideBookingRequestDTO.getPassengerId()).isPresent()) {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
+                        throw new InvalidRideBookingException("Passenger already booked for this ride.");
+                    }
 
-                if (existingBooking != null) {
-                    bookingValidationFailuresCounter.increment(); // Metric #4
-                    throw new InvalidRideBookingException("Passenger already booked for this ride.");
-                }
-                    
-
-                //check if the passenger has a conflicting ride
-                List<RideBooking> bookingsInvolvedAsPassenger = rideBookingRepository
-                                .findByPassengerId(rideBookingRequestDTO.getPassengerId());
-
-                for (RideBooking booking : bookingsInvolvedAsPassenger) {
-                    if (!rideRepository.findByIdAndTimeOverlap(
-                        rideBookingRequestDTO.getRideId(),
-                        ride.getDepartureTime(),
-                        ride.getArrivalTime()
-                    ).isEmpty()) {
+                    //check if the passenger has a conflicting ride
+                    if (scheduleIndex.isPassengerBusy(
+                            rideBookingRequestDTO.getPassengerId(),
+                            ride.getDepartureTime(),
+                            ride.getArrivalTime()
+                        )) {
                         bookingValidationFailuresCounter.increment(); // Metric #4
+
+                        //the conflicting ride may be this one, only looked up now that the booking fails anyway
+                        if (rideBookingRepository.findByRideIdAndPassengerId(
+                                ride.getId(), rideBookingRequestDTO.getPassengerId()).isPresent()) {
+                            throw new InvalidRideBookingException("Passenger already booked for this ride.");
+                        }
                         throw new InvalidRideBookingException("User involved in another ride at the same time.");
                     }
-                }
 
-                //available seats >0
-                if(ride.getSeatsAvailable() < 1) {
-                    bookingValidationFailuresCounter.increment(); // Metric #4
-                    throw new InvalidRideBookingException("No more seats available");
-                }
+                    //available seats >0
+                    if(ride.getSeatsAvailable() < 1) {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
+                        throw new InvalidRideBookingException("No more seats available");
+                    }
 
-                //ride has to be scheduled
+                    //ride has to be scheduled
 
-                if(ride.getStatus() != RideStatus.SCHEDULED)
-                {
+                    if(ride.getStatus() != RideStatus.SCHEDULED)
+                    {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
+                        throw new InvalidRideBookingException("Ride is not scheduled");
+                    }
+
+                    //take the seat atomically, the checks above can be stale under concurrent bookings
+                    Optional<Ride> reserved = rideRepository.reserveSeat(rideBookingRequestDTO.getRideId());
+                    if (reserved.isEmpty()) {
+                        bookingValidationFailuresCounter.increment(); // Metric #4
+                        throw new InvalidRideBookingException("No more seats available");
+                    }
+                    reservedRide.set(reserved.get());
+
+                    RideBooking newRideBooking = rideBookingRequestDTO.toEntity();
+                    newRideBooking.setDriverId(ride.getDriverId());
+                    newRideBooking.setDepartureTime(ride.getDepartureTime());
+                    newRideBooking.setArrivalTime(ride.getArrivalTime());
+                    newRideBooking.setPassengerFullName(User.fullName(passenger.getFirstName(), passenger.getLastName()));
+
+                    try {
+                        rideBookingRepository.save(newRideBooking);
+                    } catch (RuntimeException e) {
+                        //give the seat back if the booking could not be stored, a transaction rolls it back instead
+                        if (!bookingTransactions.isTransactional()) {
+                            rideRepository.releaseSeat(rideBookingRequestDTO.getRideId());
+                        }
+                        //passenger shouldnt have already booked, ride_passenger_idx is unique on (rideId, passengerId)
+                        if (e instanceof DuplicateKeyException) {
+                            bookingValidationFailuresCounter.increment(); // Metric #4
+                            throw new InvalidRideBookingException("Passenger already booked for this ride.");
+                        }
+                        throw e;
+                    }
+                    return newRideBooking;
+                });
+
+                //without a transaction the ride can be cancelled between the seat reservation and the insert, its
+                //cancellation then missed this booking. Whichever of the two cancels the booking gives the seat back
+                if (!bookingTransactions.isTransactional()
+                        && rideRepository.existsByIdAndStatus(savedBooking.getRideId(), RideStatus.CANCELLED)) {
+                    if (rideBookingRepository.cancelBookedByRideIdAndPassengerId(
+                            savedBooking.getRideId(), savedBooking.getPassengerId()) > 0) {
+                        rideRepository.releaseSeat(savedBooking.getRideId());
+                    }
                     bookingValidationFailuresCounter.increment(); // Metric #4
                     throw new InvalidRideBookingException("Ride is not scheduled");
                 }
-
-                RideBooking newRideBooking = rideBookingRequestDTO.toEntity();
-
-                rideBookingRepository.save(newRideBooking);
-
-                ride.setSeatsAvailable(ride.getSeatsAvailable() - 1);
-                rideRepository.save(ride);
+                scheduleIndex.rideBooked(savedBooking);
+                // the last seat is gone, the ride drops out of search
+                if (reservedRide.get().getSeatsAvailable() == 0) {
+                    routeSearchCache.rideChanged(reservedRide.get());
+                    nearbyRideCache.rideChanged(reservedRide.get());
+                }
 
                     // Increment booking counter - Metric #5
                     rideBookingCounter.increment();
@@ -219,7 +306,7 @@ public class RideBookingService {
                         metricsConfig.getActiveBookings().incrementAndGet();
                     }
 
-            return RideBookingResponseDTO.toDTO(newRideBooking);
+            return RideBookingResponseDTO.toDTO(savedBooking);
 
         } finally {
             // stop the timer
@@ -229,34 +316,67 @@ public class RideBookingService {
     };
     
 
-    public RideBookingResponseDTO updateRideBookingStatusToCancelled(String rideId, String passengerId) {
+    // Cancels all active bookings of a ride in one update, used when the whole ride is cancelled.
+    // Returns how many bookings were cancelled, giving their seats back is left to the caller.
+    public long cancelAllBookingsForRide(String rideId) {
         Timer.Sample sample = Timer.start(meterRegistry);
 
         try {
-            Ride ride = rideRepository.findById(rideId)
-                    .orElseThrow(() -> new InvalidRideException("Ride not found."));
+            long cancelled = rideBookingRepository.cancelBookedByRideId(rideId);
 
-            RideBooking rideBooking = rideBookingRepository.findByRideIdAndPassengerId(rideId, passengerId)
-                            .orElse(null);
+            // Record the cancellations - Metric #7
+            cancelledRideBookingsCounter.increment(cancelled);
 
-            if (rideBooking == null) {
-                throw new InvalidRideBookingException("Booking not found.");
+            if (metricsConfig != null) {
+                metricsConfig.getActiveBookings().addAndGet((int) -cancelled);
             }
 
-            // check if the rideBooking status is BOOKED
-            if (rideBooking.getRideBookingStatus() != RideBookingStatus.BOOKED) {
-                throw new InvalidRideBookingException("Ride already cancelled.");
-            }
-        
-            // Check if instant.now < departure time
-            if (!clock.instant().isBefore(ride.getDepartureTime())) {
-                throw new InvalidRideBookingException("Ride cannot be cancelled after it started.");
-            }
-        
-            rideBooking.setRideBookingStatus(RideBookingStatus.CANCELLED);
+            return cancelled;
+        } finally {
+            if (meterRegistry != null) {
+            sample.stop(rideBookingCancellationTimer);}
+        }
+    }
+
+    public RideBookingResponseDTO updateRideBookingStatusToCancelled(String rideId, String passengerId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            // the booking is saved with a version check before the seat goes back, so two cancels can't both release it
+            AtomicReference<Ride> releasedRide = new AtomicReference<>();
+            RideBooking cancelledBooking = optimisticLockRetry.execute("ride_booking", () -> bookingTransactions.execute(() -> {
+                Ride ride = rideRepository.findById(rideId)
+                        .orElseThrow(() -> new InvalidRideException("Ride not found."));
+
+                RideBooking rideBooking = rideBookingRepository.findByRideIdAndPassengerId(rideId, passengerId)
+                                .orElse(null);
+
+                if (rideBooking == null) {
+                    throw new InvalidRideBookingException("Booking not found.");
+                }
 
-            ride.setSeatsAvailable(ride.getSeatsAvailable() + 1);
-            rideRepository.save(ride);
+                // check if the rideBooking status is BOOKED
+                if (rideBooking.getRideBookingStatus() != RideBookingStatus.BOOKED) {
+                    throw new InvalidRideBookingException("Ride already cancelled.");
+                }
+            
+                // Check if instant.now < departure time
+                if (!clock.instant().isBefore(ride.getDepartureTime())) {
+                    throw new InvalidRideBookingException("Ride cannot be cancelled after it started.");
+                }
+            
+                rideBooking.setRideBookingStatus(RideBookingStatus.CANCELLED);
+                RideBooking savedBooking = rideBookingRepository.save(rideBooking);
+
+                rideRepository.releaseSeat(rideId);
+                releasedRide.set(ride);
+                return savedBooking;
+            }));
+            // a full ride has a free seat again and comes back in search
+            routeSearchCache.rideChanged(releasedRide.get());
+            nearbyRideCache.rideChanged(releasedRide.get());
+
+            scheduleIndex.bookingCancelled(passengerId, rideId);
             
             // Record the cancellation - Metric #7
             cancelledRideBookingsCounter.increment();
@@ -265,7 +385,7 @@ public class RideBookingService {
                 metricsConfig.getActiveBookings().decrementAndGet();
             }
             
-            return RideBookingResponseDTO.toDTO(rideBookingRepository.save(rideBooking));
+            return RideBookingResponseDTO.toDTO(cancelledBooking);
         } finally {
             // Always stop the timer
             if (meterRegistry != null) {
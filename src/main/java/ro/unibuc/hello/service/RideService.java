@@ -1,55 +1,156 @@
 package ro.unibuc.hello.service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.geo.GeoResult;
 
 import org.springframework.stereotype.Service;
 
+import ro.unibuc.hello.dto.ride.RidePage;
 import ro.unibuc.hello.dto.ride.RideRequestDTO;
 import ro.unibuc.hello.dto.ride.RideResponseDTO;
 import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.exceptions.ride.InvalidRideException;
 import ro.unibuc.hello.exceptions.ride.RideConflictException;
 import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
+import ro.unibuc.hello.cache.UserCache;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.model.Vehicle;
 import ro.unibuc.hello.repository.RideRepository;
-import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.VehicleRepository;
 import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.schedule.ScheduleIndex;
+import ro.unibuc.hello.search.NearbyRideCache;
+import ro.unibuc.hello.search.RouteKeys;
+import ro.unibuc.hello.search.RouteSearchCache;
 
 @Service
 public class RideService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final Duration MAX_SEARCH_WINDOW = Duration.ofDays(7);
+
     private final RideRepository rideRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final VehicleRepository vehicleRepository;
     private final RideBookingRepository rideBookingRepository;
     private final RideBookingService rideBookingService;
+    private final ScheduleIndex scheduleIndex;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final RouteSearchCache routeSearchCache;
+    private final NearbyRideCache nearbyRideCache;
 
     public RideService(RideRepository rideRepository, 
-                        UserRepository userRepository,
+                        UserCache userCache,
                         VehicleRepository vehicleRepository,
                         RideBookingRepository rideBookingRepository,
-                        RideBookingService rideBookingService
+                        RideBookingService rideBookingService,
+                        ScheduleIndex scheduleIndex,
+                        OptimisticLockRetry optimisticLockRetry,
+                        RouteSearchCache routeSearchCache,
+                        NearbyRideCache nearbyRideCache
                         ) {
         this.rideRepository = rideRepository;
-        this.userRepository = userRepository;
+        this.userCache = userCache;
         this.vehicleRepository = vehicleRepository;
         this.rideBookingRepository = rideBookingRepository;
         this.rideBookingService = rideBookingService;
+        this.scheduleIndex = scheduleIndex;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.routeSearchCache = routeSearchCache;
+        this.nearbyRideCache = nearbyRideCache;
         
     }
 
-    public List<Ride> getAllRides() {
-        return rideRepository.findAll();
+    // Rides are paged by _id instead of loaded all at once, the collection keeps every ride ever created
+    public RidePage getRidesPage(String after, int limit) {
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new InvalidRideException("Invalid cursor.");
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // one extra ride tells whether there is a next page without another round trip
+        List<Ride> rides = rideRepository.findPageAfter(after, pageSize + 1);
+        if (rides.size() <= pageSize) {
+            return new RidePage(rides, null);
+        }
+        List<Ride> page = rides.subList(0, pageSize);
+        return new RidePage(page, page.get(pageSize - 1).getId());
+    }
+
+    // Bookable rides from origin to destination departing in [from, to), matched on normalized locations.
+    // Each UTC day of the window is one cached route bucket, so repeated searches on a hot route don't reach Mongo.
+    public List<Ride> searchRides(String origin, String destination, Instant from, Instant to, int limit) {
+        String startLocationKey = RouteKeys.normalize(origin);
+        String endLocationKey = RouteKeys.normalize(destination);
+        if (startLocationKey == null || startLocationKey.isEmpty() || endLocationKey == null || endLocationKey.isEmpty()) {
+            throw new InvalidRideException("Origin and destination are required.");
+        }
+        if (!from.isBefore(to)) {
+            throw new InvalidRideException("Search window must end after it starts.");
+        }
+        if (Duration.between(from, to).compareTo(MAX_SEARCH_WINDOW) > 0) {
+            throw new InvalidRideException("Search window can span at most " + MAX_SEARCH_WINDOW.toDays() + " days.");
+        }
+        int maxResults = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        List<Ride> rides = new ArrayList<>();
+        LocalDate lastDay = to.minusMillis(1).atZone(ZoneOffset.UTC).toLocalDate();
+        for (LocalDate day = from.atZone(ZoneOffset.UTC).toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            for (Ride ride : routeSearchCache.bookableRides(startLocationKey, endLocationKey, day)) {
+                if (ride.getDepartureTime().isBefore(from) || !ride.getDepartureTime().isBefore(to)) {
+                    continue;
+                }
+                rides.add(ride);
+                if (rides.size() == maxResults) {
+                    return rides;
+                }
+            }
+        }
+        return rides;
+    }
+
+    // Bookable rides starting within radiusMeters of the point, departing in [from, to), nearest first
+    public List<GeoResult<Ride>> findNearbyRides(double latitude, double longitude, double radiusMeters,
+                                                 Instant from, Instant to, int limit) {
+        if (!isValidPoint(latitude, longitude)) {
+            throw new InvalidRideException("Coordinates out of range.");
+        }
+        if (radiusMeters <= 0 || radiusMeters > NearbyRideCache.MAX_RADIUS_METERS) {
+            throw new InvalidRideException("Radius must be between 0 and " + (int) NearbyRideCache.MAX_RADIUS_METERS + " meters.");
+        }
+        if (!from.isBefore(to)) {
+            throw new InvalidRideException("Search window must end after it starts.");
+        }
+        if (Duration.between(from, to).compareTo(MAX_SEARCH_WINDOW) > 0) {
+            throw new InvalidRideException("Search window can span at most " + MAX_SEARCH_WINDOW.toDays() + " days.");
+        }
+
+        return nearbyRideCache.findNearby(latitude, longitude, radiusMeters, from, to,
+                Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+    }
+
+    private static boolean isValidPoint(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return latitude == null && longitude == null;
+        }
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    public Stream<Ride> streamAllRides() {
+        return rideRepository.streamAll();
     }
 
     public RideResponseDTO createRide(RideRequestDTO rideRequestDTO) {
         // Check if driver exists in users table
-        if (!userRepository.existsById(rideRequestDTO.getDriverId())) {
+        if (!userCache.exists(rideRequestDTO.getDriverId())) {
             throw new InvalidRideException("Driver does not exist as user.");
         } 
         
@@ -68,6 +169,12 @@ public class RideService {
             throw new InvalidRideException("Number of seats has to be greater than 0.");
         }
 
+        // Coordinates are optional, but a point needs both and they have to be on the globe
+        if (!isValidPoint(rideRequestDTO.getStartLatitude(), rideRequestDTO.getStartLongitude())
+                || !isValidPoint(rideRequestDTO.getEndLatitude(), rideRequestDTO.getEndLongitude())) {
+            throw new InvalidRideException("Coordinates must come as a latitude and longitude pair within range.");
+        }
+
         // Check if the price is >= 0
         if (rideRequestDTO.getSeatPrice() < 0) {
             throw new InvalidRideException("Price has to be greater or equal to 0.");
@@ -79,97 +186,129 @@ public class RideService {
         } 
         
         // Check if driver it's involved in other ride as driver that's overlapping current
-        if(!rideRepository.findByDriverIdAndTimeOverlap(
+        if (scheduleIndex.isDriverBusy(
                     rideRequestDTO.getDriverId(), 
                     rideRequestDTO.getDepartureTime(),
                     rideRequestDTO.getArrivalTime()
-                ).isEmpty()) {
+                )) {
             throw new RideConflictException("Driver involved in another ride.");
         }
 
         // Check if driver it's involved in other ride as passenger that's overlapping current
-        List<RideBooking> bookingsInvolvedAsPassenger = rideBookingRepository
-                        .findByPassengerId(rideRequestDTO.getDriverId());
-
-        for (RideBooking booking : bookingsInvolvedAsPassenger) {
-            if (!rideRepository.findByIdAndTimeOverlap(
-                booking.getRideId(),
+        if (scheduleIndex.isPassengerBusy(
+                rideRequestDTO.getDriverId(),
                 rideRequestDTO.getDepartureTime(),
                 rideRequestDTO.getArrivalTime()
-            ).isEmpty()) {
-                throw new InvalidRideBookingException("Driver involved in another ride at the same time as passenger.");
-            }
+            )) {
+            throw new InvalidRideBookingException("Driver involved in another ride at the same time as passenger.");
         }
 
         Ride newRide = rideRequestDTO.toEntity();
 
         rideRepository.save(newRide);
+        scheduleIndex.rideScheduled(newRide);
+        routeSearchCache.rideChanged(newRide);
+        nearbyRideCache.rideChanged(newRide);
 
         return RideResponseDTO.toDTO(newRide);
 
     }
 
-    public List<Ride> getRidesByDate(Instant date) {
+    // Only SCHEDULED rides of that UTC day, filtered, sorted and paged by Mongo
+    // The cursor is "<departure epoch millis>_<id>" of the last ride returned, departure times repeat so the id breaks ties
+    public RidePage getScheduledRidesByDate(Instant date, String startLocation, String endLocation, String after, int limit) {
         LocalDate localDate = date.atZone(ZoneOffset.UTC).toLocalDate();
     
         Instant startOfDay = localDate.atStartOfDay(ZoneOffset.UTC).toInstant();
         Instant endOfDay = localDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
-        
-        return rideRepository.findAllByDepartureDate(startOfDay, endOfDay);
+
+        KeysetCursor cursor = KeysetCursor.parse(after, InvalidRideException::new);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        List<Ride> rides = rideRepository.findScheduledDeparting(startOfDay, endOfDay, startLocation, endLocation,
+                cursor.at(), cursor.id(), pageSize + 1);
+        if (rides.size() <= pageSize) {
+            return new RidePage(rides, null);
+        }
+        List<Ride> page = rides.subList(0, pageSize);
+        Ride last = page.get(pageSize - 1);
+        return new RidePage(page, KeysetCursor.format(last.getDepartureTime(), last.getId()));
     }
 
+    // Status changes are version-checked, a conflicting write makes the whole check-and-set run again
     public RideResponseDTO updateRideStatusToInProgress(String rideId) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new InvalidRideException("Ride not found."));
-        
-        if (ride.getStatus() != RideStatus.SCHEDULED) {
-            throw new InvalidRideException("Ride status must be SCHEDULED to start the ride.");
-        }
-        
-        if (Instant.now().isBefore(ride.getDepartureTime())) {
-            throw new InvalidRideException("Ride cannot be started before the departure time.");
-        }
-        
-        ride.setStatus(RideStatus.IN_PROGRESS);
-        return RideResponseDTO.toDTO(rideRepository.save(ride));
+        Ride startedRide = optimisticLockRetry.execute("ride", () -> {
+            Ride ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new InvalidRideException("Ride not found."));
+            
+            if (ride.getStatus() != RideStatus.SCHEDULED) {
+                throw new InvalidRideException("Ride status must be SCHEDULED to start the ride.");
+            }
+            
+            if (Instant.now().isBefore(ride.getDepartureTime())) {
+                throw new InvalidRideException("Ride cannot be started before the departure time.");
+            }
+            
+            ride.setStatus(RideStatus.IN_PROGRESS);
+            return rideRepository.save(ride);
+        });
+        routeSearchCache.rideChanged(startedRide);
+        nearbyRideCache.rideChanged(startedRide);
+
+        return RideResponseDTO.toDTO(startedRide);
     }
 
     public RideResponseDTO updateRideStatusToCompleted(String rideId, String currentLocation) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new InvalidRideException("Ride not found."));
-        
-        if (ride.getStatus() != RideStatus.IN_PROGRESS) {
-            throw new InvalidRideException("Ride must be IN_PROGRESS to be completed.");
-        }
-        
-        if (!currentLocation.equals(ride.getEndLocation())) {
-            throw new InvalidRideException("Ride cannot be completed unless the location matches the destination.");
-        }
-        
-        ride.setStatus(RideStatus.COMPLETED);
-        return RideResponseDTO.toDTO(rideRepository.save(ride));
+        Ride completedRide = optimisticLockRetry.execute("ride", () -> {
+            Ride ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new InvalidRideException("Ride not found."));
+            
+            if (ride.getStatus() != RideStatus.IN_PROGRESS) {
+                throw new InvalidRideException("Ride must be IN_PROGRESS to be completed.");
+            }
+            
+            if (!currentLocation.equals(ride.getEndLocation())) {
+                throw new InvalidRideException("Ride cannot be completed unless the location matches the destination.");
+            }
+            
+            ride.setStatus(RideStatus.COMPLETED);
+            return rideRepository.save(ride);
+        });
+        scheduleIndex.rideEnded(completedRide);
+
+        return RideResponseDTO.toDTO(completedRide);
     }
 
     public RideResponseDTO updateRideStatusToCancelled(String rideId) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new InvalidRideException("Ride not found."));
-        
-        if (ride.getStatus() != RideStatus.SCHEDULED) {
-            throw new InvalidRideException("Only SCHEDULED rides can be canceled.");
-        }
-        
-        if (Instant.now().isAfter(ride.getDepartureTime())) {
-            throw new InvalidRideException("Ride cannot be canceled after departure time.");
-        }
+        // The ride is cancelled first, so a concurrent start loses the version check and no new booking can take a seat
+        Ride cancelledRide = optimisticLockRetry.execute("ride", () -> {
+            Ride ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new InvalidRideException("Ride not found."));
+            
+            if (ride.getStatus() != RideStatus.SCHEDULED) {
+                throw new InvalidRideException("Only SCHEDULED rides can be canceled.");
+            }
+            
+            if (Instant.now().isAfter(ride.getDepartureTime())) {
+                throw new InvalidRideException("Ride cannot be canceled after departure time.");
+            }
+
+            ride.setStatus(RideStatus.CANCELLED);
+            return rideRepository.save(ride);
+        });
         
-        List<RideBooking> bookings = rideBookingRepository.findByRideId(rideId);
-        for (RideBooking booking : bookings) {
-            rideBookingService.updateRideBookingStatusToCancelled(rideId, booking.getPassengerId());
+        // One updateMany for all bookings and one seat adjustment, however many passengers the ride has. A booking
+        // whose seat was reserved before the ride was cancelled but stored after this cancels itself
+        // (RideBookingService.createRideBooking)
+        long cancelledBookings = rideBookingService.cancelAllBookingsForRide(rideId);
+        if (cancelledBookings > 0) {
+            cancelledRide = rideRepository.releaseSeats(rideId, (int) cancelledBookings).orElse(cancelledRide);
         }
 
-        ride.setStatus(RideStatus.CANCELLED);
-        rideBookingRepository.saveAll(bookings);
+        scheduleIndex.rideEnded(cancelledRide);
+        routeSearchCache.rideChanged(cancelledRide);
+        nearbyRideCache.rideChanged(cancelledRide);
 
-        return RideResponseDTO.toDTO(rideRepository.save(ride));
+        return RideResponseDTO.toDTO(cancelledRide);
     }
 }
@@ -3,6 +3,7 @@ package ro.unibuc.hello.service;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.ResourceAccessException;
 
+import ro.unibuc.hello.dto.user.UserPage;
 import ro.unibuc.hello.dto.user.UserRequestDTO;
 import ro.unibuc.hello.dto.user.UserResponseDTO;
 import ro.unibuc.hello.events.UserUpdatedEvent;
@@ -13,6 +14,9 @@ import ro.unibuc.hello.repository.UserRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
@@ -21,16 +25,40 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Service
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, OptimisticLockRetry optimisticLockRetry,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.eventPublisher = eventPublisher;
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    // Users are paged by _id and projected to their public fields, the whole entity is never loaded for a listing
+    public UserPage getUsersPage(String after, int limit) {
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new InvalidUserException("Invalid cursor.");
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // one extra user tells whether there is a next page without another round trip
+        List<User> users = userRepository.findPublicPageAfter(after, pageSize + 1);
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+        return new UserPage(users.stream().map(UserResponseDTO::toDTO).toList(), nextCursor);
+    }
+
+    public Stream<UserResponseDTO> streamAllUsers() {
+        return userRepository.streamAllPublic().map(UserResponseDTO::toDTO);
     }
 
     public UserResponseDTO createUser(UserRequestDTO userDto) {
@@ -70,16 +98,22 @@ public class UserService {
 
     public UserResponseDTO updateUserName(String id, String newFirstName, String newLastName) {
         
-        Optional<User> userOptional = userRepository.findById(id);
-
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            user.setFirstName(newFirstName);
-            user.setLastName(newLastName);
-            return userRepository.save(user).toDTO();
-        } else {
-            throw new InvalidUserException("User not found with id: " + id);
-        }
+        UserResponseDTO updated = optimisticLockRetry.execute("user", () -> {
+            Optional<User> userOptional = userRepository.findById(id);
+
+            if (userOptional.isPresent()) {
+                User user = userOptional.get();
+                user.setFirstName(newFirstName);
+                user.setLastName(newLastName);
+                return userRepository.save(user).toDTO();
+            } else {
+                throw new InvalidUserException("User not found with id: " + id);
+            }
+        });
+
+        // the user cache and anything else holding the old name listen for this
+        eventPublisher.publishEvent(new UserUpdatedEvent(id, newFirstName, newLastName));
+        return updated;
 
     }
 }
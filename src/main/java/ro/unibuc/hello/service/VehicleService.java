@@ -6,20 +6,20 @@ import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
+import ro.unibuc.hello.cache.UserCache;
 import ro.unibuc.hello.dto.vehicle.VehicleDTO;
 import ro.unibuc.hello.exceptions.vehicle.VehicleConflictException;
 import ro.unibuc.hello.model.Vehicle;
-import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.VehicleRepository;
 
 @Service
 public class VehicleService {
     private final VehicleRepository vehicleRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public VehicleService(VehicleRepository vehicleRepository, UserRepository userRepository) {
+    public VehicleService(VehicleRepository vehicleRepository, UserCache userCache) {
         this.vehicleRepository = vehicleRepository;
-        this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     public List<Vehicle> getAll() {
@@ -32,7 +32,7 @@ public class VehicleService {
             throw new VehicleConflictException("License plate already used.");
         }
 
-        if (userRepository.findById(vehicleDTO.getUserId()).isEmpty()) {
+        if (!userCache.exists(vehicleDTO.getUserId())) {
             throw new VehicleConflictException("Owner not stored in the system.");
         }
 
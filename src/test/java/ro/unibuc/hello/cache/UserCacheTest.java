@@ -0,0 +1,131 @@
+package ro.unibuc.hello.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.enums.Role;
+import ro.unibuc.hello.events.UserUpdatedEvent;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache userCache(boolean enabled) {
+        return userCache(enabled, new SimpleMeterRegistry());
+    }
+
+    private UserCache userCache(boolean enabled, SimpleMeterRegistry meterRegistry) {
+        return new UserCache(userRepository, meterRegistry, enabled, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    private User user(String id) {
+        User user = new User("Andrei", "Popescu", id + "@gmail.com", "0787828282", Collections.singletonList(Role.PASSENGER));
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    void testUserIsReadFromMongoOnce() {
+        UserCache userCache = userCache(true);
+        User user = user("u1");
+        when(userRepository.findById("u1")).thenReturn(Optional.of(user));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(userCache.exists("u1"));
+        }
+        assertEquals(user, userCache.findById("u1").get());
+
+        verify(userRepository, times(1)).findById("u1");
+    }
+
+    @Test
+    void testMissingUserIsCachedToo() {
+        UserCache userCache = userCache(true);
+        when(userRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertFalse(userCache.exists("missing"));
+        assertFalse(userCache.exists("missing"));
+
+        verify(userRepository, times(1)).findById("missing");
+    }
+
+    @Test
+    void testEvictAndUserUpdatedEventDropTheEntry() {
+        UserCache userCache = userCache(true);
+        when(userRepository.findById("u1")).thenReturn(Optional.of(user("u1")));
+
+        userCache.findById("u1");
+        userCache.evict("u1");
+        userCache.findById("u1");
+        userCache.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+        userCache.findById("u1");
+
+        verify(userRepository, times(3)).findById("u1");
+    }
+
+    @Test
+    void testFindAllLoadsOnlyTheMissesInOneBatch() {
+        UserCache userCache = userCache(true);
+        User cached = user("u1");
+        User loaded = user("u2");
+        when(userRepository.findById("u1")).thenReturn(Optional.of(cached));
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(loaded));
+
+        userCache.findById("u1");
+        Map<String, User> found = userCache.findAllById(List.of("u1", "u2", "missing"));
+
+        assertEquals(Map.of("u1", cached, "u2", loaded), found);
+        // the second lookup is answered from the cache, missing id included
+        assertEquals(found, userCache.findAllById(new ArrayList<>(List.of("u2", "missing", "u1"))));
+        verify(userRepository, times(1)).findById("u1");
+        verify(userRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysAsksMongo() {
+        UserCache userCache = userCache(false);
+        when(userRepository.findById("u1")).thenReturn(Optional.of(user("u1")));
+
+        userCache.exists("u1");
+        userCache.exists("u1");
+
+        verify(userRepository, times(2)).findById("u1");
+    }
+
+    @Test
+    void testCacheStatsAreExported() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserCache userCache = userCache(true, meterRegistry);
+        when(userRepository.findById("u1")).thenReturn(Optional.of(user("u1")));
+
+        userCache.exists("u1");
+        userCache.exists("u1");
+
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "users").functionCounter());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "miss").functionCounter().count());
+    }
+}
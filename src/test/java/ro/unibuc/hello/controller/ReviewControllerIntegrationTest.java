@@ -15,6 +15,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -27,6 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.util.List;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
 import ro.unibuc.hello.dto.review.ReviewRequestDTO;
@@ -39,6 +41,7 @@ import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.service.ReviewService;
 
+import ro.unibuc.hello.repository.DriverRatingSummaryRepository;
 import ro.unibuc.hello.repository.RideBookingRepository;
 import ro.unibuc.hello.repository.RideRepository;
 import ro.unibuc.hello.repository.UserRepository;
@@ -82,6 +85,9 @@ public class ReviewControllerIntegrationTest {
     @Autowired
     private RideBookingRepository rideBookingRepository;
 
+    @Autowired
+    private DriverRatingSummaryRepository driverRatingSummaryRepository;
+
     @Autowired
     private ReviewService reviewService;
 
@@ -91,6 +97,7 @@ public class ReviewControllerIntegrationTest {
         rideRepository.deleteAll();
         userRepository.deleteAll();
         rideBookingRepository.deleteAll();
+        driverRatingSummaryRepository.deleteAll();
 
         Review review1 = new Review("user1", "driver1", "ride1", 5, "Excellent ride!");
         Review review2 = new Review("user2", "driver1", "ride2", 4, "Good experience.");
@@ -115,8 +122,40 @@ public class ReviewControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.length()").value(2))
+                // newest first
+                .andExpect(jsonPath("$[0].reviewerId").value("user2"))
+                .andExpect(jsonPath("$[1].reviewerId").value("user1"))
+                .andExpect(header().doesNotExist(ListingResponses.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testGetReviewsByDriverPaged() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/reviews/by-driver/driver1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].reviewerId").value("user2"))
+                .andExpect(header().exists(ListingResponses.NEXT_CURSOR_HEADER))
+                .andReturn();
+
+        String cursor = firstPage.getResponse().getHeader(ListingResponses.NEXT_CURSOR_HEADER);
+        mockMvc.perform(get("/reviews/by-driver/driver1").param("limit", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].reviewerId").value("user1"))
-                .andExpect(jsonPath("$[1].reviewerId").value("user2"));
+                .andExpect(header().doesNotExist(ListingResponses.NEXT_CURSOR_HEADER));
+
+        mockMvc.perform(get("/reviews/by-driver/driver1").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetReviewsByDriverSummaryOnly() throws Exception {
+        driverRatingSummaryRepository.rebuildFromReviews();
+
+        mockMvc.perform(get("/reviews/by-driver/driver1").param("summaryOnly", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewsNumber").value(2))
+                .andExpect(jsonPath("$.avgRating").value(4.5));
     }
 
     @Test
@@ -153,5 +192,55 @@ public class ReviewControllerIntegrationTest {
         List<Review> reviews = reviewService.getReviewsByRide("ride3");
         Assertions.assertEquals(1, reviews.size());
         Assertions.assertEquals("Great ride!", reviews.get(0).getComment());
+
+        // the driver's totals and summary were updated in place
+        User driver = userRepository.findById("driver2").get();
+        Assertions.assertEquals(1, driver.getReviewsNumber());
+        Assertions.assertEquals(5, driver.getRatingsSum());
+        Assertions.assertEquals(5.0, driver.getAvgRating());
+
+        mockMvc.perform(get("/reviews/by-driver/driver2/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewsNumber").value(1))
+                .andExpect(jsonPath("$.avgRating").value(5.0))
+                .andExpect(jsonPath("$.stars.5").value(1))
+                .andExpect(jsonPath("$.stars.1").value(0));
+    }
+
+    @Test
+    public void testDriverRatingSummaryRebuiltFromReviews() throws Exception {
+        // driver1's two reviews were stored directly, before any summary existed
+        Assertions.assertEquals(1, driverRatingSummaryRepository.rebuildFromReviews());
+
+        mockMvc.perform(get("/reviews/by-driver/driver1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewsNumber").value(2))
+                .andExpect(jsonPath("$.ratingsSum").value(9))
+                .andExpect(jsonPath("$.stars.4").value(1))
+                .andExpect(jsonPath("$.stars.5").value(1));
+    }
+
+    @Test
+    public void testDriverRatingSummaryBuiltWhenMissing() throws Exception {
+        // driver1's two reviews were stored directly, before any summary existed
+        User driver = new User("Driver", "One", "driver1@mail.com", "0987654321", Collections.singletonList(Role.DRIVER));
+        driver.setId("driver1");
+        userRepository.save(driver);
+
+        mockMvc.perform(get("/reviews/by-driver/driver1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reviewsNumber").value(2))
+                .andExpect(jsonPath("$.ratingsSum").value(9));
+
+        // built once, later reads and reviews use the stored summary
+        Assertions.assertEquals(2, driverRatingSummaryRepository.findById("driver1").get().getCount());
+        Assertions.assertTrue(driverRatingSummaryRepository.addRating("driver1", 3));
+        Assertions.assertEquals(12, driverRatingSummaryRepository.buildForDriver("driver1").getSum());
+    }
+
+    @Test
+    public void testDriverRatingSummaryOfUnknownUser() throws Exception {
+        mockMvc.perform(get("/reviews/by-driver/nobody/summary"))
+                .andExpect(status().isNotFound());
     }
 }
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
 import ro.unibuc.hello.enums.RideBookingStatus;
 import ro.unibuc.hello.enums.RideStatus;
+import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.model.User;
@@ -39,6 +40,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -188,6 +197,56 @@ public class RideBookingControllerIntegrationTest {
             .andExpect(content().string(""));
     }
 
+    // Fires thousands of parallel bookings at one ride and checks that no seat is sold twice.
+    @Test
+    public void testConcurrentBookingsDoNotOversell() throws Exception {
+        final int seats = 25;
+        final int passengers = 2000;
+
+        Ride popularRide = new Ride("driver1", "Popular", "Destination", Instant.now().plusSeconds(3600),
+                Instant.now().plusSeconds(7200), 20, seats, "XYZ123");
+        rideRepository.save(popularRide);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < passengers; i++) {
+            users.add(new User("load", "user" + i, "load" + i + "@example.com", String.format("09%08d", i), null));
+        }
+        userRepository.saveAll(users);
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                RideBookingRequestDTO request = new RideBookingRequestDTO();
+                request.setRideId(popularRide.getId());
+                request.setPassengerId(user.getId());
+                try {
+                    rideBookingService.createRideBooking(request);
+                    booked.incrementAndGet();
+                } catch (InvalidRideBookingException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(seats, booked.get());
+        assertEquals(passengers - seats, rejected.get());
+        assertEquals(0, rideRepository.findById(popularRide.getId()).get().getSeatsAvailable());
+        assertEquals(seats, rideBookingRepository.findByRideId(popularRide.getId()).size());
+    }
+
     @Test
     public void testCancelRideBooking() throws Exception {
         mockMvc.perform(patch("/bookings/cancel/r3/p4"))
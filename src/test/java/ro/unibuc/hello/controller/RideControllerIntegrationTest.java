@@ -6,6 +6,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -22,6 +25,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.http.MediaType;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -249,6 +253,59 @@ public class RideControllerIntegrationTest {
                 .andExpect(jsonPath("$[1].startLocation").value("Cluj"));
     }
 
+    @Test
+    void getAllRides_ShouldPageWithCursor() throws Exception {
+        setupValidDriverAndVehicle();
+
+        for (int i = 0; i < 3; i++) {
+            rideRepository.save(new Ride("driver123", "Start" + i, "End" + i, Instant.now().plusSeconds(3600 + i * 7200L),
+                Instant.now().plusSeconds(7200 + i * 7200L), 50, 3, "B123XYZ"));
+        }
+
+        MvcResult firstPage = mockMvc.perform(get("/rides").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].startLocation").value("Start0"))
+                .andExpect(header().exists(ListingResponses.NEXT_CURSOR_HEADER))
+                .andReturn();
+
+        mockMvc.perform(get("/rides").param("limit", "2")
+                .param("after", firstPage.getResponse().getHeader(ListingResponses.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].startLocation").value("Start2"))
+                .andExpect(header().doesNotExist(ListingResponses.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void getAllRides_ShouldRejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/rides").param("after", "not-an-id"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllRides_ShouldStreamNdjson() throws Exception {
+        setupValidDriverAndVehicle();
+
+        for (int i = 0; i < 3; i++) {
+            rideRepository.save(new Ride("driver123", "Start" + i, "End" + i, Instant.now().plusSeconds(3600 + i * 7200L),
+                Instant.now().plusSeconds(7200 + i * 7200L), 50, 3, "B123XYZ"));
+        }
+
+        MvcResult result = mockMvc.perform(get("/rides").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.trim().split("\n");
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertEquals("Start0", objectMapper.readTree(lines[0]).get("startLocation").asText());
+    }
+
     @Test
     void getRidesByDate_ShouldReturnFilteredRides() throws Exception {
         setupValidDriverAndVehicle();
@@ -286,4 +343,39 @@ public class RideControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].startLocation").value("Bucharest"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void getRidesByDate_ShouldReturnOnlyScheduledRidesOfThatDay() throws Exception {
+        setupValidDriverAndVehicle();
+
+        Instant testDate = Instant.parse("2023-01-01T00:00:00Z");
+
+        Ride late = new Ride("driver123", "Bucharest", "Cluj", testDate.plusSeconds(7200), testDate.plusSeconds(10800), 50, 3, "B123XYZ");
+        Ride early = new Ride("driver123", "Bucharest", "Iasi", testDate.plusSeconds(3600), testDate.plusSeconds(5400), 50, 3, "B123XYZ");
+        Ride cancelled = new Ride("driver123", "Bucharest", "Cluj", testDate.plusSeconds(4000), testDate.plusSeconds(6000), 50, 3, "B123XYZ");
+        cancelled.setStatus(RideStatus.CANCELLED);
+        Ride otherRoute = new Ride("driver123", "Cluj", "Bucharest", testDate.plusSeconds(5000), testDate.plusSeconds(8000), 60, 4, "B123XYZ");
+        Ride nextDay = new Ride("driver123", "Bucharest", "Cluj", testDate.plusSeconds(90000), testDate.plusSeconds(93600), 60, 4, "B123XYZ");
+        rideRepository.saveAll(List.of(late, early, cancelled, otherRoute, nextDay));
+
+        MvcResult firstPage = mockMvc.perform(get("/rides/by-date")
+                .param("date", testDate.toString())
+                .param("startLocation", "Bucharest")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].endLocation").value("Iasi"))
+                .andExpect(header().exists(ListingResponses.NEXT_CURSOR_HEADER))
+                .andReturn();
+
+        mockMvc.perform(get("/rides/by-date")
+                .param("date", testDate.toString())
+                .param("startLocation", "Bucharest")
+                .param("limit", "1")
+                .param("after", firstPage.getResponse().getHeader(ListingResponses.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].endLocation").value("Cluj"))
+                .andExpect(header().doesNotExist(ListingResponses.NEXT_CURSOR_HEADER));
+    }
+
+}
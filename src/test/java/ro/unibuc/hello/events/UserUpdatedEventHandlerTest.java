@@ -0,0 +1,155 @@
+package ro.unibuc.hello.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.repository.RideBookingRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class UserUpdatedEventHandlerTest {
+
+    @Mock
+    private RideBookingRepository rideBookingRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserUpdatedEventHandler handler;
+
+    private UserUpdatedEventHandler handler(Duration coalesceWindow, int maxPending) {
+        return handler(coalesceWindow, maxPending, Duration.ofMinutes(10));
+    }
+
+    private UserUpdatedEventHandler handler(Duration coalesceWindow, int maxPending, Duration userCacheExpireAfterWrite) {
+        handler = new UserUpdatedEventHandler(rideBookingRepository, meterRegistry, coalesceWindow, 2, maxPending,
+                Duration.ofMillis(50), 3, userCacheExpireAfterWrite, false);
+        return handler;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        handler.shutdown();
+    }
+
+    @Test
+    void testBurstOfRenamesRefreshesOnceWithTheLatestName() {
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(100), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Andrei", "Popescu"));
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Popescu"));
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+        verify(rideBookingRepository, after(300).times(1)).updatePassengerFullNameByPassengerId(anyString(), anyString());
+        assertEquals(3.0, meterRegistry.get("user_updated_events_received").counter().count());
+        assertEquals(1.0, meterRegistry.get("user_updated_refreshes").counter().count());
+    }
+
+    @Test
+    void testUsersAreRefreshedSeparately() {
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Andrei", "Popescu"));
+        handler.onUserUpdated(new UserUpdatedEvent("u2", "Mihai", "Ionescu"));
+
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u1", "Andrei Popescu");
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u2", "Mihai Ionescu");
+    }
+
+    @Test
+    void testRenameAfterARefreshIsRefreshedAgain() {
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Andrei", "Popescu"));
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u1", "Andrei Popescu");
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+    }
+
+    @Test
+    void testFailedRefreshIsRetried() {
+        when(rideBookingRepository.updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc"))
+                .thenThrow(new DataAccessResourceFailureException("primary stepped down"))
+                .thenReturn(3L);
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        verify(rideBookingRepository, timeout(2000).times(2)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+        assertEquals(1.0, meterRegistry.get("user_updated_refresh_failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("user_updated_refreshes").counter().count());
+    }
+
+    @Test
+    void testRetriesStopAfterMaxAttempts() {
+        when(rideBookingRepository.updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc"))
+                .thenThrow(new DataAccessResourceFailureException("primary stepped down"));
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        verify(rideBookingRepository, timeout(2000).times(3)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+        verify(rideBookingRepository, after(500).times(3)).updatePassengerFullNameByPassengerId(anyString(), anyString());
+    }
+
+    @Test
+    void testSecondPassRepairsNamesCopiedFromStaleCaches() {
+        when(rideBookingRepository.updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc")).thenReturn(3L, 1L);
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100, Duration.ofMillis(200));
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        verify(rideBookingRepository, timeout(2000).times(2)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+        assertEquals(1.0, meterRegistry.get("user_updated_bookings_repaired").counter().count());
+    }
+
+    @Test
+    void testSecondPassIsSkippedAfterANewerRename() {
+        UserUpdatedEventHandler handler = handler(Duration.ofMillis(50), 100, Duration.ofMillis(300));
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Andrei", "Popescu"));
+        verify(rideBookingRepository, timeout(2000)).updatePassengerFullNameByPassengerId("u1", "Andrei Popescu");
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+
+        // the second pass of the newer name runs, the one of the older name never does
+        verify(rideBookingRepository, timeout(2000).times(2)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+        verify(rideBookingRepository, times(1)).updatePassengerFullNameByPassengerId("u1", "Andrei Popescu");
+    }
+
+    @Test
+    void testRefreshesBeyondMaxPendingAreWrittenBeforeReturning() {
+        UserUpdatedEventHandler handler = handler(Duration.ofMinutes(10), 1);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Andrei", "Popescu"));
+        handler.onUserUpdated(new UserUpdatedEvent("u2", "Mihai", "Ionescu"));
+
+        verify(rideBookingRepository, times(1)).updatePassengerFullNameByPassengerId("u2", "Mihai Ionescu");
+        verify(rideBookingRepository, never()).updatePassengerFullNameByPassengerId("u1", "Andrei Popescu");
+    }
+
+    @Test
+    void testPendingRefreshIsWrittenOnShutdown() throws InterruptedException {
+        UserUpdatedEventHandler handler = handler(Duration.ofMinutes(10), 100);
+
+        handler.onUserUpdated(new UserUpdatedEvent("u1", "Razvan", "Leclerc"));
+        verify(rideBookingRepository, never()).updatePassengerFullNameByPassengerId(anyString(), anyString());
+        handler.shutdown();
+
+        verify(rideBookingRepository, times(1)).updatePassengerFullNameByPassengerId("u1", "Razvan Leclerc");
+    }
+}
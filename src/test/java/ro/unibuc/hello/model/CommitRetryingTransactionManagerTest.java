@@ -0,0 +1,72 @@
+package ro.unibuc.hello.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+import com.mongodb.MongoException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CommitRetryingTransactionManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CommitRetryingTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionManager = new CommitRetryingTransactionManager(mock(MongoDatabaseFactory.class), 3, meterRegistry);
+    }
+
+    private static MongoException labelled(String label) {
+        MongoException mongoException = new MongoException("commit failed");
+        mongoException.addLabel(label);
+        return mongoException;
+    }
+
+    @Test
+    void testUnknownCommitResultRetriesTheCommit() {
+        AtomicInteger commits = new AtomicInteger();
+
+        transactionManager.commit(() -> {
+            if (commits.incrementAndGet() == 1) {
+                throw labelled(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+            }
+        });
+
+        assertEquals(2, commits.get());
+        assertEquals(1.0, meterRegistry.counter("booking_transaction_retries_total",
+            "label", MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL).count());
+    }
+
+    @Test
+    void testCommitRetriesAreBounded() {
+        AtomicInteger commits = new AtomicInteger();
+
+        assertThrows(MongoException.class, () -> transactionManager.commit(() -> {
+            commits.incrementAndGet();
+            throw labelled(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+        }));
+
+        assertEquals(3, commits.get());
+    }
+
+    @Test
+    void testOtherCommitErrorsAreNotRetried() {
+        AtomicInteger commits = new AtomicInteger();
+
+        assertThrows(MongoException.class, () -> transactionManager.commit(() -> {
+            commits.incrementAndGet();
+            throw labelled(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        }));
+
+        assertEquals(1, commits.get());
+    }
+}
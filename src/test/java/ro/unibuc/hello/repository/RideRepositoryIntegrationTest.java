@@ -0,0 +1,161 @@
+package ro.unibuc.hello.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import ro.unibuc.hello.model.Ride;
+
+@SpringBootTest
+@Testcontainers
+@Tag("IntegrationTest")
+public class RideRepositoryIntegrationTest {
+
+    private static final int DRIVERS = 20;
+    private static final int RIDES_PER_DRIVER = 50;
+    private static final Instant START = Instant.parse("2030-01-01T00:00:00Z");
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20")
+            .withExposedPorts(27017);
+
+    @BeforeAll
+    public static void setUp() {
+        mongoDBContainer.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        mongoDBContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", () -> "mongodb://localhost:" + mongoDBContainer.getMappedPort(27017));
+    }
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Every driver gets back to back two hour rides, one every three hours
+    @BeforeEach
+    public void addRides() {
+        rideRepository.deleteAll();
+
+        List<Ride> rides = new ArrayList<>();
+        for (int driver = 0; driver < DRIVERS; driver++) {
+            for (int i = 0; i < RIDES_PER_DRIVER; i++) {
+                Instant departure = START.plusSeconds(i * 3 * 3600L);
+                rides.add(new Ride("driver" + driver, "A", "B", departure, departure.plusSeconds(2 * 3600L), 10, 3, "B01ABC"));
+            }
+        }
+        rideRepository.saveAll(rides);
+    }
+
+    @Test
+    public void testOverlapDetectsFullContainment() {
+        // the new ride starts before and ends after the existing one
+        Instant departure = START.minusSeconds(600);
+        Instant arrival = START.plusSeconds(2 * 3600L + 600);
+
+        List<Ride> overlapping = rideRepository.findByDriverIdAndTimeOverlap("driver3", departure, arrival);
+
+        assertEquals(1, overlapping.size());
+        assertEquals(START, overlapping.get(0).getDepartureTime());
+    }
+
+    @Test
+    public void testOverlapInsideExistingRide() {
+        Instant departure = START.plusSeconds(600);
+        Instant arrival = START.plusSeconds(1200);
+
+        assertEquals(1, rideRepository.findByDriverIdAndTimeOverlap("driver3", departure, arrival).size());
+    }
+
+    @Test
+    public void testTouchingIntervalsDoNotOverlap() {
+        // starts exactly when the first ride arrives and ends when the second departs
+        Instant departure = START.plusSeconds(2 * 3600L);
+        Instant arrival = START.plusSeconds(3 * 3600L);
+
+        assertTrue(rideRepository.findByDriverIdAndTimeOverlap("driver3", departure, arrival).isEmpty());
+    }
+
+    @Test
+    public void testDriverOverlapUsesBoundedIndexScan() {
+        Instant departure = START.plusSeconds(10 * 3 * 3600L + 600);
+        Instant arrival = departure.plusSeconds(3600);
+
+        // same filter as RideRepository.findByDriverIdAndTimeOverlap
+        Document filter = new Document("driverId", "driver3")
+                .append("departureTime", new Document("$lt", Date.from(arrival)))
+                .append("arrivalTime", new Document("$gt", Date.from(departure)))
+                .append("status", new Document("$in", List.of("SCHEDULED", "IN_PROGRESS")));
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                new Document("find", "rides").append("filter", filter))
+                .append("verbosity", "executionStats"));
+
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        assertTrue(containsStage(winningPlan, "IXSCAN"), "expected an index scan, got " + winningPlan.toJson());
+        assertTrue(winningPlan.toJson().contains("driver_interval_idx"), "expected driver_interval_idx, got " + winningPlan.toJson());
+
+        // only the driver's own rides departing before the new arrival can be examined, never the whole collection
+        Document stats = explain.get("executionStats", Document.class);
+        assertEquals(1, stats.getInteger("nReturned"));
+        assertTrue(stats.getInteger("totalKeysExamined") <= RIDES_PER_DRIVER);
+        assertEquals(1, stats.getInteger("totalDocsExamined"));
+    }
+
+    @Test
+    public void testScheduledDepartingReadsItsOrderFromTheIndex() {
+        // same filter and keyset sort as RideRepositoryCustomImpl.findScheduledDeparting
+        Document filter = new Document("status", "SCHEDULED")
+                .append("departureTime", new Document("$gte", Date.from(START))
+                        .append("$lt", Date.from(START.plusSeconds(24 * 3600L))));
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                new Document("find", "rides").append("filter", filter)
+                        .append("sort", new Document("departureTime", 1).append("_id", 1))
+                        .append("limit", 10))
+                .append("verbosity", "queryPlanner"));
+
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        assertTrue(winningPlan.toJson().contains("status_departure_id_idx"), "expected status_departure_id_idx, got " + winningPlan.toJson());
+        assertFalse(containsStage(winningPlan, "SORT"), "expected no in-memory sort, got " + winningPlan.toJson());
+    }
+
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+}
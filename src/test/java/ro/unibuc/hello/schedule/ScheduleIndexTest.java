@@ -0,0 +1,225 @@
+package ro.unibuc.hello.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ScheduleIndexTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-24T10:00:00Z");
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private RideBookingRepository rideBookingRepository;
+
+    private ScheduleIndex scheduleIndex(boolean enabled) {
+        return new ScheduleIndex(rideRepository, rideBookingRepository, Clock.fixed(NOW, ZoneId.of("UTC")),
+                new SimpleMeterRegistry(), enabled, 100, Duration.ofMinutes(1));
+    }
+
+    private Ride ride(String id, String driverId, long departureHours, long arrivalHours) {
+        Ride ride = new Ride(driverId, "City A", "City B", NOW.plusSeconds(departureHours * 3600),
+                NOW.plusSeconds(arrivalHours * 3600), 100, 3, "B45NNN");
+        ride.setId(id);
+        return ride;
+    }
+
+    private RideBooking booking(String rideId, String passengerId, long departureHours, long arrivalHours) {
+        RideBooking booking = new RideBooking(rideId, passengerId, NOW);
+        booking.setDepartureTime(NOW.plusSeconds(departureHours * 3600));
+        booking.setArrivalTime(NOW.plusSeconds(arrivalHours * 3600));
+        return booking;
+    }
+
+    @Test
+    public void testIntervalSetOverlaps() {
+        IntervalSet intervals = IntervalSet.EMPTY
+                .with("r2", 30, 40)
+                .with("r1", 10, 20)
+                .with("r3", 50, 100);
+
+        assertEquals(3, intervals.size());
+        assertTrue(intervals.overlaps(15, 16));     // contained
+        assertTrue(intervals.overlaps(0, 11));      // crosses a start
+        assertTrue(intervals.overlaps(39, 45));     // crosses an end
+        assertTrue(intervals.overlaps(60, 70));     // inside a long interval
+        assertTrue(intervals.overlaps(0, 200));     // contains everything
+        assertFalse(intervals.overlaps(20, 30));    // touches both neighbours
+        assertFalse(intervals.overlaps(40, 50));
+        assertFalse(intervals.overlaps(100, 110));
+        assertFalse(intervals.overlaps(0, 10));
+    }
+
+    @Test
+    public void testIntervalSetWithoutRemovesOnlyThatRide() {
+        IntervalSet intervals = IntervalSet.EMPTY
+                .with("r1", 10, 20)
+                .with("r2", 30, 40);
+
+        IntervalSet remaining = intervals.without("r1");
+
+        assertFalse(remaining.contains("r1"));
+        assertTrue(remaining.contains("r2"));
+        assertFalse(remaining.overlaps(10, 20));
+        assertTrue(remaining.overlaps(35, 36));
+        // the original set is left untouched
+        assertTrue(intervals.overlaps(10, 20));
+        assertEquals(intervals, intervals.without("missing"));
+    }
+
+    @Test
+    public void testIntervalSetWithReplacesSameRide() {
+        IntervalSet intervals = IntervalSet.EMPTY
+                .with("r1", 10, 20)
+                .with("r1", 50, 60);
+
+        assertEquals(1, intervals.size());
+        assertFalse(intervals.overlaps(10, 20));
+        assertTrue(intervals.overlaps(55, 56));
+    }
+
+    @Test
+    public void testDriverScheduleIsLoadedOnce() {
+        when(rideRepository.findActiveByDriverIdArrivingAfter("driver1", NOW))
+                .thenReturn(List.of(ride("r1", "driver1", 1, 3)));
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        assertTrue(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(2 * 3600), NOW.plusSeconds(4 * 3600)));
+        assertFalse(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3 * 3600), NOW.plusSeconds(4 * 3600)));
+
+        verify(rideRepository, times(1)).findActiveByDriverIdArrivingAfter("driver1", NOW);
+        verify(rideRepository, never()).findByDriverIdAndTimeOverlap(anyString(), any(), any());
+    }
+
+    @Test
+    public void testDriverScheduleSeesNewAndEndedRides() {
+        when(rideRepository.findActiveByDriverIdArrivingAfter("driver1", NOW)).thenReturn(List.of());
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        assertFalse(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+
+        Ride ride = ride("r1", "driver1", 1, 2);
+        scheduleIndex.rideScheduled(ride);
+        assertTrue(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+
+        scheduleIndex.rideEnded(ride);
+        assertFalse(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+    }
+
+    @Test
+    public void testPassengerScheduleSeesBookingsAndCancellations() {
+        when(rideBookingRepository.findActiveByPassengerIdArrivingAfter("p1", NOW))
+                .thenReturn(List.of(booking("r1", "p1", 1, 2)));
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        assertTrue(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+        assertFalse(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(5 * 3600), NOW.plusSeconds(6 * 3600)));
+
+        scheduleIndex.rideBooked(booking("r2", "p1", 5, 6));
+        assertTrue(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(5 * 3600), NOW.plusSeconds(6 * 3600)));
+
+        scheduleIndex.bookingCancelled("p1", "r1");
+        assertFalse(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+
+        verify(rideBookingRepository, times(1)).findActiveByPassengerIdArrivingAfter("p1", NOW);
+    }
+
+    @Test
+    public void testEndedRideLeavesOnlyItsPassengersSchedules() {
+        when(rideBookingRepository.findActiveByPassengerIdArrivingAfter("p1", NOW))
+                .thenReturn(List.of(booking("r1", "p1", 1, 2)));
+        when(rideBookingRepository.findActiveByPassengerIdArrivingAfter("p2", NOW))
+                .thenReturn(List.of(booking("r2", "p2", 1, 2)));
+        when(rideBookingRepository.findPassengerIdsByRideId("r1")).thenReturn(List.of(booking("r1", "p1", 1, 2)));
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+        assertTrue(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+        assertTrue(scheduleIndex.isPassengerBusy("p2", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+
+        scheduleIndex.rideEnded(ride("r1", "driver1", 1, 2));
+
+        assertFalse(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+        assertTrue(scheduleIndex.isPassengerBusy("p2", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+    }
+
+    @Test
+    public void testEndedRideSkipsPassengerLookupWithoutCachedPassengers() {
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        scheduleIndex.rideEnded(ride("r1", "driver1", 1, 2));
+
+        verify(rideBookingRepository, never()).findPassengerIdsByRideId(anyString());
+    }
+
+    @Test
+    public void testBookingsWithoutCopiedIntervalUseTheirRide() {
+        RideBooking legacy = new RideBooking("r1", "p1", NOW);
+        when(rideBookingRepository.findActiveByPassengerIdArrivingAfter("p1", NOW)).thenReturn(List.of());
+        when(rideBookingRepository.findActiveByPassengerIdWithoutRideInterval("p1")).thenReturn(List.of(legacy));
+        when(rideRepository.findAllById(List.of("r1"))).thenReturn(List.of(ride("r1", "driver1", 1, 2)));
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        assertTrue(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+        assertFalse(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3 * 3600), NOW.plusSeconds(4 * 3600)));
+    }
+
+    @Test
+    public void testDisabledIndexSeesBookingsWithoutCopiedInterval() {
+        RideBooking legacy = new RideBooking("r1", "p1", NOW);
+        when(rideBookingRepository.findOverlappingRidesForPassenger("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)))
+                .thenReturn(List.of());
+        when(rideBookingRepository.findActiveByPassengerIdWithoutRideInterval("p1")).thenReturn(List.of(legacy));
+        when(rideRepository.findAllById(List.of("r1"))).thenReturn(List.of(ride("r1", "driver1", 1, 2)));
+        ScheduleIndex scheduleIndex = scheduleIndex(false);
+
+        assertTrue(scheduleIndex.isPassengerBusy("p1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+    }
+
+    @Test
+    public void testIntervalsBeforeLoadGoToMongo() {
+        when(rideRepository.findActiveByDriverIdArrivingAfter("driver1", NOW)).thenReturn(List.of());
+        when(rideRepository.findByDriverIdAndTimeOverlap("driver1", NOW.minusSeconds(3600), NOW.plusSeconds(3600)))
+                .thenReturn(List.of(ride("r1", "driver1", -2, 0)));
+        ScheduleIndex scheduleIndex = scheduleIndex(true);
+
+        assertTrue(scheduleIndex.isDriverBusy("driver1", NOW.minusSeconds(3600), NOW.plusSeconds(3600)));
+    }
+
+    @Test
+    public void testDisabledIndexAlwaysAsksMongo() {
+        when(rideRepository.findByDriverIdAndTimeOverlap("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)))
+                .thenReturn(List.of());
+        ScheduleIndex scheduleIndex = scheduleIndex(false);
+
+        assertFalse(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+        assertFalse(scheduleIndex.isDriverBusy("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600)));
+
+        verify(rideRepository, times(2)).findByDriverIdAndTimeOverlap("driver1", NOW.plusSeconds(3600), NOW.plusSeconds(2 * 3600));
+        verify(rideRepository, never()).findActiveByDriverIdArrivingAfter(anyString(), any());
+    }
+}
@@ -0,0 +1,143 @@
+package ro.unibuc.hello.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class NearbyRideCacheTest {
+
+    // Piata Unirii, Bucharest
+    private static final double LATITUDE = 44.4268;
+    private static final double LONGITUDE = 26.1025;
+    private static final Instant FROM = Instant.parse("2025-03-24T06:00:00Z");
+    private static final Instant TO = Instant.parse("2025-03-24T12:00:00Z");
+
+    @Mock
+    private RideRepository rideRepository;
+
+    private NearbyRideCache nearbyRideCache(boolean enabled, int maxCandidates) {
+        return new NearbyRideCache(rideRepository, new SimpleMeterRegistry(), enabled, 100, maxCandidates, Duration.ofMinutes(1));
+    }
+
+    private Ride rideFrom(double latitude, double longitude, Instant departureTime) {
+        Ride ride = new Ride("driver1", "Bucuresti", "Cluj", departureTime, departureTime.plusSeconds(3600), 50, 3, "B45NNN");
+        ride.setStartPoint(new GeoJsonPoint(longitude, latitude));
+        return ride;
+    }
+
+    private static List<GeoResult<Ride>> results(Ride... rides) {
+        List<GeoResult<Ride>> results = new ArrayList<>();
+        for (Ride ride : rides) {
+            results.add(new GeoResult<>(ride, new Distance(0)));
+        }
+        return results;
+    }
+
+    @Test
+    void testGeohash() {
+        assertEquals("sxfs9", Geohash.encode(LATITUDE, LONGITUDE, 5));
+        double[] center = Geohash.center("sxfs9");
+        assertTrue(Geohash.distanceMeters(LATITUDE, LONGITUDE, center[0], center[1]) < 3_500);
+        // Bucharest to Cluj-Napoca is about 325 km in a straight line
+        double distance = Geohash.distanceMeters(44.4268, 26.1025, 46.7712, 23.6236);
+        assertTrue(distance > 320_000 && distance < 330_000);
+    }
+
+    @Test
+    void testCellsWithinFindsEveryCellCenteredInRange() {
+        // every precision 5 cell in a 1 x 1.4 degree box around the point, checked one by one
+        Set<String> expected = new HashSet<>();
+        for (double latitude = LATITUDE - 0.5; latitude <= LATITUDE + 0.5; latitude += 0.02) {
+            for (double longitude = LONGITUDE - 0.7; longitude <= LONGITUDE + 0.7; longitude += 0.02) {
+                String cell = Geohash.encode(latitude, longitude, 5);
+                double[] center = Geohash.center(cell);
+                if (Geohash.distanceMeters(LATITUDE, LONGITUDE, center[0], center[1]) <= 28_500) {
+                    expected.add(cell);
+                }
+            }
+        }
+
+        List<String> cells = Geohash.cellsWithin(LATITUDE, LONGITUDE, 28_500, 5);
+
+        assertEquals(expected, new HashSet<>(cells));
+        assertEquals(cells.size(), new HashSet<>(cells).size());
+    }
+
+    @Test
+    void testSearchesInOneCellShareOneMongoQuery() {
+        NearbyRideCache nearbyRideCache = nearbyRideCache(true, 100);
+        Ride close = rideFrom(44.4300, 26.1000, Instant.parse("2025-03-24T08:00:00Z"));
+        Ride closer = rideFrom(44.4270, 26.1030, Instant.parse("2025-03-24T09:00:00Z"));
+        Ride tooFar = rideFrom(44.5200, 26.1000, Instant.parse("2025-03-24T08:00:00Z"));
+        Ride outsideWindow = rideFrom(44.4270, 26.1030, Instant.parse("2025-03-24T20:00:00Z"));
+        when(rideRepository.findBookableNear(anyDouble(), anyDouble(), anyDouble(), any(), any(), anyInt()))
+            .thenReturn(results(close, closer, tooFar, outsideWindow));
+
+        List<GeoResult<Ride>> first = nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10);
+        List<GeoResult<Ride>> second = nearbyRideCache.findNearby(LATITUDE + 0.001, LONGITUDE, 2_000, FROM, TO, 10);
+
+        assertEquals(List.of(closer, close), first.stream().map(GeoResult::getContent).toList());
+        assertTrue(first.get(0).getDistance().getValue() < first.get(1).getDistance().getValue());
+        assertEquals(2, second.size());
+        verify(rideRepository, times(1)).findBookableNear(anyDouble(), anyDouble(), anyDouble(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testCrowdedCellGoesStraightToMongo() {
+        NearbyRideCache nearbyRideCache = nearbyRideCache(true, 1);
+        Ride ride = rideFrom(44.4270, 26.1030, Instant.parse("2025-03-24T08:00:00Z"));
+        when(rideRepository.findBookableNear(anyDouble(), anyDouble(), eq(28_500.0), any(), any(), eq(2)))
+            .thenReturn(results(ride, ride));
+        when(rideRepository.findBookableNear(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10))
+            .thenReturn(results(ride));
+
+        assertEquals(1, nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10).size());
+    }
+
+    @Test
+    void testRideChangeDropsCellsAroundIt() {
+        NearbyRideCache nearbyRideCache = nearbyRideCache(true, 100);
+        when(rideRepository.findBookableNear(anyDouble(), anyDouble(), anyDouble(), any(), any(), anyInt()))
+            .thenReturn(List.of());
+
+        nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10);
+        // far away, or another day: the cached cell stays
+        nearbyRideCache.rideChanged(rideFrom(46.7712, 23.6236, Instant.parse("2025-03-24T08:00:00Z")));
+        nearbyRideCache.rideChanged(rideFrom(44.4270, 26.1030, Instant.parse("2025-03-25T08:00:00Z")));
+        nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10);
+
+        nearbyRideCache.rideChanged(rideFrom(44.4270, 26.1030, Instant.parse("2025-03-24T08:00:00Z")));
+        nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10);
+        // about 26 km north of the cell's center, still within the candidate radius
+        nearbyRideCache.rideChanged(rideFrom(44.6400, 26.0815, Instant.parse("2025-03-24T08:00:00Z")));
+        nearbyRideCache.findNearby(LATITUDE, LONGITUDE, 2_000, FROM, TO, 10);
+
+        verify(rideRepository, times(3)).findBookableNear(anyDouble(), anyDouble(), anyDouble(), any(), any(), anyInt());
+    }
+}
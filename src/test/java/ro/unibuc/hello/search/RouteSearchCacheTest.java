@@ -0,0 +1,98 @@
+package ro.unibuc.hello.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.repository.RideRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class RouteSearchCacheTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2025-03-24");
+    private static final Instant START_OF_DAY = Instant.parse("2025-03-24T00:00:00Z");
+    private static final Instant END_OF_DAY = Instant.parse("2025-03-25T00:00:00Z");
+
+    @Mock
+    private RideRepository rideRepository;
+
+    private RouteSearchCache routeSearchCache(boolean enabled) {
+        return new RouteSearchCache(rideRepository, new SimpleMeterRegistry(), enabled, 100, Duration.ofMinutes(1));
+    }
+
+    private Ride ride(String startLocation, String endLocation, Instant departureTime) {
+        return new Ride("driver1", startLocation, endLocation, departureTime, departureTime.plusSeconds(3600), 50, 3, "B45NNN");
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("bucuresti", RouteKeys.normalize("  Bucureşti "));
+        assertEquals("bucuresti", RouteKeys.normalize("BUCUREȘTI"));
+        assertEquals("cluj napoca", RouteKeys.normalize("Cluj-Napoca"));
+        assertEquals("targu mures", RouteKeys.normalize("Târgu   Mureș"));
+        assertNull(RouteKeys.normalize(null));
+    }
+
+    @Test
+    void testRideCarriesRouteKeys() {
+        Ride ride = ride("Bucureşti", "Cluj-Napoca", START_OF_DAY);
+
+        assertEquals("bucuresti", ride.getStartLocationKey());
+        assertEquals("cluj napoca", ride.getEndLocationKey());
+    }
+
+    @Test
+    void testHotRouteIsReadFromMongoOnce() {
+        RouteSearchCache routeSearchCache = routeSearchCache(true);
+        Ride ride = ride("Bucuresti", "Cluj", START_OF_DAY.plusSeconds(3600));
+        when(rideRepository.findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY)).thenReturn(List.of(ride));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(List.of(ride), routeSearchCache.bookableRides("bucuresti", "cluj", DAY));
+        }
+
+        verify(rideRepository, times(1)).findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY);
+    }
+
+    @Test
+    void testRideChangeDropsItsRouteDay() {
+        RouteSearchCache routeSearchCache = routeSearchCache(true);
+        when(rideRepository.findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY)).thenReturn(List.of());
+
+        routeSearchCache.bookableRides("bucuresti", "cluj", DAY);
+        // another route and another day of the same route stay cached
+        routeSearchCache.rideChanged(ride("Bucuresti", "Iasi", START_OF_DAY.plusSeconds(3600)));
+        routeSearchCache.rideChanged(ride("Bucuresti", "Cluj", END_OF_DAY.plusSeconds(3600)));
+        routeSearchCache.bookableRides("bucuresti", "cluj", DAY);
+
+        routeSearchCache.rideChanged(ride("BUCUREȘTI", "cluj", START_OF_DAY.plusSeconds(7200)));
+        routeSearchCache.bookableRides("bucuresti", "cluj", DAY);
+
+        verify(rideRepository, times(2)).findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY);
+    }
+
+    @Test
+    void testDisabledAlwaysAsksMongo() {
+        RouteSearchCache routeSearchCache = routeSearchCache(false);
+        when(rideRepository.findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY)).thenReturn(List.of());
+
+        routeSearchCache.bookableRides("bucuresti", "cluj", DAY);
+        routeSearchCache.bookableRides("bucuresti", "cluj", DAY);
+
+        verify(rideRepository, times(2)).findBookableOnRoute("bucuresti", "cluj", START_OF_DAY, END_OF_DAY);
+    }
+}
@@ -0,0 +1,115 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+
+import com.mongodb.MongoException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
+
+public class BookingTransactionsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionManager = mock(MongoTransactionManager.class);
+    }
+
+    private static RuntimeException labelled(String label) {
+        MongoException mongoException = new MongoException("WriteConflict");
+        mongoException.addLabel(label);
+        // what the repositories throw after Spring translates the driver error
+        return new UncategorizedMongoDbException(mongoException.getMessage(), mongoException);
+    }
+
+    @Test
+    void testAtomicModeRunsWritesDirectly() {
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.empty(), 3, meterRegistry);
+
+        assertEquals("booked", bookingTransactions.execute(() -> "booked"));
+    }
+
+    @Test
+    void testTransientTransactionErrorIsRetried() {
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.of(transactionManager), 3, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = bookingTransactions.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw labelled(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+            }
+            return "booked";
+        });
+
+        assertEquals("booked", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.counter("booking_transaction_retries_total",
+            "label", MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL).count());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testRetriesAreBounded() {
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.of(transactionManager), 3, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(UncategorizedMongoDbException.class, () -> bookingTransactions.execute(() -> {
+            attempts.incrementAndGet();
+            throw labelled(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        }));
+
+        assertEquals(3, attempts.get());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void testUnknownCommitResultDoesNotRunTheWritesAgain() {
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.of(transactionManager), 3, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+        // the commit may have gone through, a second run would find its own booking and reject it
+        doThrow(labelled(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)).when(transactionManager).commit(any());
+
+        assertThrows(UncategorizedMongoDbException.class, () -> bookingTransactions.execute(() -> {
+            attempts.incrementAndGet();
+            return "booked";
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, meterRegistry.counter("booking_transaction_retries_total",
+            "label", MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL).count());
+    }
+
+    @Test
+    void testValidationErrorsAreNotRetried() {
+        BookingTransactions bookingTransactions = new BookingTransactions(Optional.of(transactionManager), 3, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(InvalidRideBookingException.class, () -> bookingTransactions.execute(() -> {
+            attempts.incrementAndGet();
+            throw new InvalidRideBookingException("No more seats available");
+        }));
+
+        assertEquals(1, attempts.get());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+}
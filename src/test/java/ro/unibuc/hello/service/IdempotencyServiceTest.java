@@ -0,0 +1,338 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
+import ro.unibuc.hello.model.IdempotencyRecord;
+import ro.unibuc.hello.repository.IdempotencyRecordRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-03-24T10:00:00Z"), ZoneId.of("UTC"));
+
+    private final Map<String, IdempotencyRecord> store = new ConcurrentHashMap<>();
+    private IdempotencyService idempotencyService;
+
+    // the repository behaves like the collection: insert fails on an existing key
+    @BeforeEach
+    void setUp() {
+        lenient().when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord idempotencyRecord = invocation.getArgument(0);
+            if (store.putIfAbsent(idempotencyRecord.getId(), idempotencyRecord) != null) {
+                throw new DuplicateKeyException("duplicate key " + idempotencyRecord.getId());
+            }
+            return idempotencyRecord;
+        });
+        // complete, release and take over only touch a pending claim, complete and release only their own
+        lenient().when(idempotencyRecordRepository.complete(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord completed = invocation.getArgument(0);
+            IdempotencyRecord claim = store.get(completed.getId());
+            if (claim == null || claim.isCompleted() || !completed.getClaimToken().equals(claim.getClaimToken())) {
+                return false;
+            }
+            store.put(completed.getId(), completed);
+            return true;
+        });
+        lenient().doAnswer(invocation -> store.computeIfPresent(invocation.<String>getArgument(0),
+                (id, claim) -> !claim.isCompleted() && invocation.<String>getArgument(1).equals(claim.getClaimToken()) ? null : claim))
+            .when(idempotencyRecordRepository).release(anyString(), anyString());
+        lenient().when(idempotencyRecordRepository.takeOverExpiredClaim(anyString(), anyString(), any(Instant.class), anyString(), any(Instant.class)))
+            .thenAnswer(invocation -> {
+                IdempotencyRecord claim = store.get(invocation.<String>getArgument(0));
+                if (claim == null || claim.isCompleted() || !invocation.<String>getArgument(1).equals(claim.getRequestHash())
+                        || !claim.getClaimedAt().isBefore(invocation.getArgument(2))) {
+                    return false;
+                }
+                claim.setClaimToken(invocation.getArgument(3));
+                claim.setClaimedAt(invocation.getArgument(4));
+                return true;
+            });
+        lenient().when(idempotencyRecordRepository.findById(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(store.get(invocation.<String>getArgument(0))));
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, objectMapper, CLOCK,
+            new SimpleMeterRegistry(), Duration.ofMinutes(1));
+    }
+
+    private RideBookingRequestDTO request(String rideId, String passengerId) {
+        RideBookingRequestDTO request = new RideBookingRequestDTO();
+        request.setRideId(rideId);
+        request.setPassengerId(passengerId);
+        return request;
+    }
+
+    @Test
+    void testWithoutKeyEveryRequestRuns() {
+        AtomicInteger executions = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            idempotencyService.execute("bookings", null, request("r1", "p1"), () -> {
+                executions.incrementAndGet();
+                return ResponseEntity.status(HttpStatus.CREATED).body(null);
+            });
+        }
+
+        assertEquals(3, executions.get());
+        verify(idempotencyRecordRepository, never()).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void testRetryReplaysStoredResponse() {
+        AtomicInteger executions = new AtomicInteger();
+
+        ResponseEntity<?> first = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No more seats available");
+        });
+        ResponseEntity<?> retry = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.BAD_REQUEST, first.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, retry.getStatusCode());
+        assertEquals("No more seats available", retry.getBody());
+        assertEquals(MediaType.TEXT_PLAIN, retry.getHeaders().getContentType());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testJsonBodyIsReplayedAsJson() {
+        idempotencyService.execute("rides", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(request("r1", "p1")));
+
+        ResponseEntity<?> retry = idempotencyService.execute("rides", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, retry.getHeaders().getContentType());
+        assertEquals("{\"rideId\":\"r1\",\"passengerId\":\"p1\",\"createdAt\":null}", retry.getBody());
+    }
+
+    @Test
+    void testSameKeyInAnotherScopeRunsAgain() {
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+        idempotencyService.execute("rides", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testKeyReusedForDifferentRequestIsRejected() {
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r2", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+    }
+
+    @Test
+    void testKeyClaimedByAnotherNodeIsConflict() {
+        // another node inserted the claim and has not stored its response yet
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+        store.get("bookings:key-1").setStatus(null);
+
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void testExpiredClaimIsTakenOver() {
+        // the node that claimed the key died five minutes ago without storing a response
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+        IdempotencyRecord abandoned = store.get("bookings:key-1");
+        abandoned.setStatus(null);
+        abandoned.setClaimToken("dead-node");
+        abandoned.setClaimedAt(CLOCK.instant().minus(Duration.ofMinutes(5)));
+        AtomicInteger executions = new AtomicInteger();
+
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(201, store.get("bookings:key-1").getStatus());
+    }
+
+    @Test
+    void testExpiredClaimIsNotTakenOverForDifferentRequest() {
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+        IdempotencyRecord abandoned = store.get("bookings:key-1");
+        abandoned.setStatus(null);
+        abandoned.setClaimedAt(CLOCK.instant().minus(Duration.ofMinutes(5)));
+
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r2", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+    }
+
+    @Test
+    void testResponseThatCannotBeStoredKeepsClaimPending() {
+        AtomicInteger executions = new AtomicInteger();
+        doThrow(new DataAccessResourceFailureException("primary stepped down"))
+            .when(idempotencyRecordRepository).complete(any(IdempotencyRecord.class));
+
+        ResponseEntity<?> first = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+        ResponseEntity<?> retry = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, retry.getStatusCode());
+        assertFalse(store.get("bookings:key-1").isCompleted());
+        verify(idempotencyRecordRepository, times(3)).complete(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    void testConcurrentDuplicateWithDifferentRequestIsRejected() throws Exception {
+        CountDownLatch leaderRunning = new CountDownLatch(1);
+        CountDownLatch releaseLeader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<ResponseEntity<?>> leader = executor.submit(() ->
+            idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+                leaderRunning.countDown();
+                try {
+                    releaseLeader.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ResponseEntity.status(HttpStatus.CREATED).body(null);
+            }));
+        leaderRunning.await(10, TimeUnit.SECONDS);
+
+        // answered while the leader is still running, not with the leader's response
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r2", "p1"),
+            () -> ResponseEntity.status(HttpStatus.CREATED).body(null));
+        releaseLeader.countDown();
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(HttpStatus.CREATED, leader.get(10, TimeUnit.SECONDS).getStatusCode());
+        executor.shutdown();
+    }
+
+    @Test
+    void testServerErrorsAndExceptionsAreNotStored() {
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error creating ride: timeout");
+        });
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }));
+        ResponseEntity<?> response = idempotencyService.execute("bookings", "key-1", request("r1", "p1"), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        });
+
+        assertEquals(3, executions.get());
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testConcurrentDuplicatesRunOnce() throws Exception {
+        final int retries = 50;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<ResponseEntity<?>>> futures = new ArrayList<>();
+
+        for (int i = 0; i < retries; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return idempotencyService.execute("bookings", "storm", request("r1", "p1"), () -> {
+                    executions.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return ResponseEntity.status(HttpStatus.CREATED).body(null);
+                });
+            }));
+        }
+
+        start.countDown();
+        for (Future<ResponseEntity<?>> future : futures) {
+            assertEquals(HttpStatus.CREATED, future.get(30, TimeUnit.SECONDS).getStatusCode());
+        }
+        executor.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+}
@@ -0,0 +1,39 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import ro.unibuc.hello.exceptions.ride.InvalidRideException;
+
+public class KeysetCursorTest {
+
+    private static final String ID = "67d767dca086f159e0e3ad65";
+
+    @Test
+    void testFormattedCursorParsesBack() {
+        Instant at = Instant.parse("2025-03-24T15:52:00Z");
+
+        String after = KeysetCursor.format(at, ID);
+
+        assertEquals("1742831520000_" + ID, after);
+        assertEquals(new KeysetCursor(at, ID), KeysetCursor.parse(after, InvalidRideException::new));
+    }
+
+    @Test
+    void testNoCursorStartsFromTheBeginning() {
+        assertSame(KeysetCursor.START, KeysetCursor.parse(null, InvalidRideException::new));
+    }
+
+    @Test
+    void testInvalidCursorThrowsTheListingsException() {
+        assertThrows(InvalidRideException.class, () -> KeysetCursor.parse(ID, InvalidRideException::new));
+        assertThrows(InvalidRideException.class, () -> KeysetCursor.parse("_" + ID, InvalidRideException::new));
+        assertThrows(InvalidRideException.class, () -> KeysetCursor.parse("x_" + ID, InvalidRideException::new));
+        assertThrows(InvalidRideException.class, () -> KeysetCursor.parse("1742831520000_x", InvalidRideException::new));
+    }
+}
@@ -0,0 +1,78 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ro.unibuc.hello.exceptions.ride.InvalidRideException;
+
+public class OptimisticLockRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetry = new OptimisticLockRetry(meterRegistry, 3, 1);
+    }
+
+    private double conflicts(String entity) {
+        return meterRegistry.counter("optimistic_lock_conflicts_total", "entity", entity).count();
+    }
+
+    @Test
+    void testReturnsResultWithoutConflict() {
+        assertEquals("done", optimisticLockRetry.execute("ride", () -> "done"));
+        assertEquals(0.0, conflicts("ride"));
+    }
+
+    @Test
+    void testRetriesUntilSaveSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute("ride", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, conflicts("ride"));
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> optimisticLockRetry.execute("user", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(3.0, conflicts("user"));
+        assertEquals(0.0, conflicts("ride"));
+    }
+
+    @Test
+    void testDoesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(InvalidRideException.class, () -> optimisticLockRetry.execute("ride", () -> {
+            attempts.incrementAndGet();
+            throw new InvalidRideException("Ride not found.");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, conflicts("ride"));
+    }
+}
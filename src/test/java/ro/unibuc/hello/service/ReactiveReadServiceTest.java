@@ -0,0 +1,105 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import ro.unibuc.hello.enums.Role;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exceptions.review.InvalidReviewException;
+import ro.unibuc.hello.exceptions.ride.InvalidRideException;
+import ro.unibuc.hello.model.RideBooking;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.reactive.ReactiveReviewRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveRideBookingRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveRideRepository;
+import ro.unibuc.hello.repository.reactive.ReactiveUserRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveReadServiceTest {
+
+    private static final String RIDE_ID = "67d60c0f12400d215806d06c";
+
+    @Mock
+    private ReactiveRideRepository reactiveRideRepository;
+
+    @Mock
+    private ReactiveReviewRepository reactiveReviewRepository;
+
+    @Mock
+    private ReactiveRideBookingRepository reactiveRideBookingRepository;
+
+    @Mock
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @InjectMocks
+    private ReactiveReadService reactiveReadService;
+
+    @Test
+    public void testStreamRides_InvalidCursorThrowsBeforeReading() {
+        assertThrows(InvalidRideException.class, () -> reactiveReadService.streamRides("not-an-id"));
+        verify(reactiveRideRepository, never()).streamAfter(any());
+    }
+
+    @Test
+    public void testStreamScheduledRidesByDate_ContinuesFromThePagedCursor() {
+        when(reactiveRideRepository.streamScheduledDeparting(any(), any(), isNull(), isNull(), any(), anyString()))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(reactiveReadService.streamScheduledRidesByDate(Instant.parse("2025-03-24T00:00:00Z"),
+                        null, null, "1742831520000_" + RIDE_ID))
+                .verifyComplete();
+
+        verify(reactiveRideRepository).streamScheduledDeparting(Instant.parse("2025-03-24T00:00:00Z"),
+                Instant.parse("2025-03-25T00:00:00Z"), null, null, Instant.ofEpochMilli(1742831520000L), RIDE_ID);
+    }
+
+    @Test
+    public void testStreamReviewsByDriver_InvalidCursor() {
+        assertThrows(InvalidReviewException.class, () -> reactiveReadService.streamReviewsByDriver("d1", "123_bad"));
+        assertThrows(InvalidReviewException.class, () -> reactiveReadService.streamReviewsByDriver("d1", "x_" + RIDE_ID));
+    }
+
+    @Test
+    public void testStreamPassengers_LooksUpOnlyTheNamesNotStoredOnBookings() {
+        RideBooking stored = new RideBooking(RIDE_ID, "67d767dca086f159e0e3ad65", Instant.parse("2025-03-24T15:52:00Z"));
+        stored.setPassengerFullName("diaconescu alexandra");
+        RideBooking legacy = new RideBooking(RIDE_ID, "67d767dca086f159e0e3ad66", Instant.parse("2025-03-24T15:55:00Z"));
+        when(reactiveRideBookingRepository.findByRideId(RIDE_ID)).thenReturn(Flux.just(stored, legacy));
+
+        User passenger = new User("popescu", "mihai", "mihai@gmail.com", "0721226544", Arrays.asList(Role.PASSENGER));
+        passenger.setId("67d767dca086f159e0e3ad66");
+        when(reactiveUserRepository.findAllById(Set.of("67d767dca086f159e0e3ad66"))).thenReturn(Flux.just(passenger));
+
+        StepVerifier.create(reactiveReadService.streamPassengersByRideId(RIDE_ID))
+                .expectNextMatches(booking -> booking.getPassengerFullName().equals("diaconescu alexandra"))
+                .expectNextMatches(booking -> booking.getPassengerFullName().equals("popescu mihai"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamPassengers_UnknownPassengerFailsTheStream() {
+        RideBooking legacy = new RideBooking(RIDE_ID, "67d767dca086f159e0e3ad66", Instant.parse("2025-03-24T15:55:00Z"));
+        when(reactiveRideBookingRepository.findByRideId(RIDE_ID)).thenReturn(Flux.just(legacy));
+        when(reactiveUserRepository.findAllById(Set.of("67d767dca086f159e0e3ad66"))).thenReturn(Flux.empty());
+
+        StepVerifier.create(reactiveReadService.streamPassengersByRideId(RIDE_ID))
+                .verifyError(EntityNotFoundException.class);
+    }
+}
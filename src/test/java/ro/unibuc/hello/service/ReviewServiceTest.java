@@ -3,30 +3,50 @@ package ro.unibuc.hello.service;
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.dao.DuplicateKeyException;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import ro.unibuc.hello.dto.review.DriverRatingSummaryDTO;
+import ro.unibuc.hello.dto.review.ReviewPage;
 import ro.unibuc.hello.dto.review.ReviewRequestDTO;
 import ro.unibuc.hello.dto.review.ReviewResponseDTO;
 import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.enums.RideBookingStatus;
 import ro.unibuc.hello.enums.Role;
+import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.exceptions.review.InvalidReviewException;
+import ro.unibuc.hello.cache.UserCache;
+import ro.unibuc.hello.config.UniqueIndexes;
+import ro.unibuc.hello.model.DriverRatingSummary;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.model.Review;
 import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.DriverRatingSummaryRepository;
 import ro.unibuc.hello.repository.RideBookingRepository;
 import ro.unibuc.hello.repository.RideRepository;
 import ro.unibuc.hello.repository.ReviewRepository;
@@ -47,10 +67,23 @@ public class ReviewServiceTest {
     
     @Mock
     private UserRepository userRepository;
+
+    @Mock
+    private UserCache userCache;
     
     @Mock
     private RideBookingRepository rideBookingRepository;
+
+    @Mock
+    private DriverRatingSummaryRepository driverRatingSummaryRepository;
     
+    // built, so duplicates are left to the insert as in production
+    @Spy
+    private UniqueIndexes uniqueIndexes = builtUniqueIndexes();
+
+    @Spy
+    private BookingTransactions bookingTransactions = new BookingTransactions(Optional.empty(), 3, new SimpleMeterRegistry());
+
     @InjectMocks
     private ReviewService reviewService;
     
@@ -60,6 +93,12 @@ public class ReviewServiceTest {
     private User reviewed;
     private RideBooking rideBooking;
     
+    private static UniqueIndexes builtUniqueIndexes() {
+        UniqueIndexes uniqueIndexes = new UniqueIndexes();
+        uniqueIndexes.markBuilt(Review.RIDE_REVIEWER_INDEX);
+        return uniqueIndexes;
+    }
+
     @BeforeEach
     void setUp() {
         validReviewRequest = new ReviewRequestDTO();
@@ -85,15 +124,13 @@ public class ReviewServiceTest {
     @Test
     void testCreateReview_validReview() {
        
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
         when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
         when(rideBookingRepository.findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
                 .thenReturn(Optional.of(rideBooking));
-        when(reviewRepository.findByRideIdAndReviewerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
-                .thenReturn(Optional.empty());
-        when(userRepository.findById(validReviewRequest.getReviewedId())).thenReturn(Optional.of(reviewed));
-
+        when(driverRatingSummaryRepository.addRating(validReviewRequest.getReviewedId(), validReviewRequest.getRating()))
+                .thenReturn(true);
  
         ReviewResponseDTO response = reviewService.createReview(validReviewRequest);
 
@@ -107,18 +144,43 @@ public class ReviewServiceTest {
         assertNotNull(response.getCreatedAt());
 
   
-        verify(userRepository, times(1)).existsById(validReviewRequest.getReviewerId());
-        verify(userRepository, times(1)).existsById(validReviewRequest.getReviewedId());
+        verify(userCache, times(1)).exists(validReviewRequest.getReviewerId());
+        verify(userCache, times(1)).exists(validReviewRequest.getReviewedId());
         verify(rideRepository, times(1)).findById(validReviewRequest.getRideId());
         verify(rideBookingRepository, times(1)).findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId());
-        verify(reviewRepository, times(1)).findByRideIdAndReviewerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId());
-        verify(userRepository, times(1)).findById(validReviewRequest.getReviewedId());
+        // duplicates are left to the unique index, no lookup beforehand
+        verify(reviewRepository, never()).findByRideIdAndReviewerId(any(), any());
+        // the rating is added in place, the driver is never read and saved back
+        verify(userRepository, times(1)).addRating(validReviewRequest.getReviewedId(), validReviewRequest.getRating());
+        verify(driverRatingSummaryRepository, times(1)).addRating(validReviewRequest.getReviewedId(), validReviewRequest.getRating());
+        verify(driverRatingSummaryRepository, never()).buildForDriver(any());
+        verify(userRepository, never()).save(any(User.class));
+        // the new rating must not be hidden behind a cached copy of the driver
+        verify(userCache).evict(validReviewRequest.getReviewedId());
         verify(reviewRepository, times(1)).save(any(Review.class));
     }
 
+    @Test
+    void testCreateReview_driverWithoutSummaryHasItBuilt() {
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
+        when(rideBookingRepository.findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
+                .thenReturn(Optional.of(rideBooking));
+        when(driverRatingSummaryRepository.addRating(validReviewRequest.getReviewedId(), validReviewRequest.getRating()))
+                .thenReturn(false);
+
+        reviewService.createReview(validReviewRequest);
+
+        // built after the review is saved, from all of the driver's reviews including this one
+        InOrder inOrder = inOrder(reviewRepository, driverRatingSummaryRepository);
+        inOrder.verify(reviewRepository).save(any(Review.class));
+        inOrder.verify(driverRatingSummaryRepository).buildForDriver(validReviewRequest.getReviewedId());
+    }
+
     @Test
     void testCreateReview_reviewerDoesNotExist() {
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(false);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(false);
 
     
         InvalidReviewException exception = assertThrows(InvalidReviewException.class, () -> reviewService.createReview(validReviewRequest));
@@ -127,8 +189,8 @@ public class ReviewServiceTest {
 
     @Test
     void testCreateReview_reviewedDoesNotExist() {
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(false);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(false);
 
 
         InvalidReviewException exception = assertThrows(InvalidReviewException.class, () -> reviewService.createReview(validReviewRequest));
@@ -137,8 +199,8 @@ public class ReviewServiceTest {
 
     @Test
     void testCreateReview_rideDoesNotExist() {
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
         when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.empty());
 
      
@@ -150,8 +212,8 @@ public class ReviewServiceTest {
     void testCreateReview_rideNotCompleted() {
         ride.setStatus(RideStatus.SCHEDULED);
 
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
         when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
 
     
@@ -161,8 +223,8 @@ public class ReviewServiceTest {
 
     @Test
     void testCreateReview_reviewerNotPassenger() {
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
         when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
         when(rideBookingRepository.findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
                 .thenReturn(Optional.empty());
@@ -174,17 +236,138 @@ public class ReviewServiceTest {
 
     @Test
     void testCreateReview_reviewerAlreadyReviewed() {
-        when(userRepository.existsById(validReviewRequest.getReviewerId())).thenReturn(true);
-        when(userRepository.existsById(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
         when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
         when(rideBookingRepository.findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
                 .thenReturn(Optional.of(rideBooking));
-        when(reviewRepository.findByRideIdAndReviewerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
-                .thenReturn(Optional.of(new Review(validReviewRequest.getReviewerId(), validReviewRequest.getReviewedId(), 
-                validReviewRequest.getRideId(), validReviewRequest.getRating(), validReviewRequest.getComment() )));
+        when(reviewRepository.save(any(Review.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error collection: reviews index: ride_reviewer_idx"));
 
 
         InvalidReviewException exception = assertThrows(InvalidReviewException.class, () -> reviewService.createReview(validReviewRequest));
         assertEquals("Reviewer already made a review for this ride", exception.getMessage());
+        // the rejected review doesn't count towards the driver's rating
+        verify(userRepository, never()).addRating(any(), anyInt());
+        verify(driverRatingSummaryRepository, never()).addRating(any(), anyInt());
+    }
+
+    @Test
+    void testCreateReview_alreadyReviewedLookedUpUntilUniqueIndexIsBuilt() {
+        // ride_reviewer_idx couldn't be built over old duplicates
+        ReviewService reviewService = new ReviewService(reviewRepository, rideRepository, userRepository, userCache,
+                rideBookingRepository, driverRatingSummaryRepository, new UniqueIndexes(), bookingTransactions);
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
+        when(rideRepository.findById(validReviewRequest.getRideId())).thenReturn(Optional.of(ride));
+        when(rideBookingRepository.findByRideIdAndPassengerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
+                .thenReturn(Optional.of(rideBooking));
+        when(reviewRepository.findByRideIdAndReviewerId(validReviewRequest.getRideId(), validReviewRequest.getReviewerId()))
+                .thenReturn(Optional.of(new Review()));
+
+        InvalidReviewException exception = assertThrows(InvalidReviewException.class, () -> reviewService.createReview(validReviewRequest));
+        assertEquals("Reviewer already made a review for this ride", exception.getMessage());
+        verify(reviewRepository, never()).save(any(Review.class));
+    }
+
+    @Test
+    void testCreateReview_ratingOutOfRange() {
+        when(userCache.exists(validReviewRequest.getReviewerId())).thenReturn(true);
+        when(userCache.exists(validReviewRequest.getReviewedId())).thenReturn(true);
+        validReviewRequest.setRating(6);
+
+        InvalidReviewException exception = assertThrows(InvalidReviewException.class, () -> reviewService.createReview(validReviewRequest));
+        assertEquals("Rating must be between 1 and 5.", exception.getMessage());
+        verify(reviewRepository, never()).save(any(Review.class));
+    }
+
+    @Test
+    void testGetDriverRatingSummary() {
+        DriverRatingSummary summary = new DriverRatingSummary("driver1");
+        summary.setCount(3);
+        summary.setSum(13);
+        summary.setStars(Map.of("4", 1L, "5", 2L));
+        when(driverRatingSummaryRepository.findById("driver1")).thenReturn(Optional.of(summary));
+
+        DriverRatingSummaryDTO result = reviewService.getDriverRatingSummary("driver1");
+
+        assertEquals(3, result.getReviewsNumber());
+        assertEquals(13.0 / 3, result.getAvgRating());
+        // every star is listed, in order, the ones nobody gave with 0
+        assertEquals(List.of(1, 2, 3, 4, 5), List.copyOf(result.getStars().keySet()));
+        assertEquals(List.of(0L, 0L, 0L, 1L, 2L), List.copyOf(result.getStars().values()));
+        verify(reviewRepository, never()).findByReviewedIdBefore(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testGetDriverRatingSummary_notReviewedYet() {
+        when(driverRatingSummaryRepository.findById("driver1")).thenReturn(Optional.empty());
+        when(userCache.exists("driver1")).thenReturn(true);
+        when(driverRatingSummaryRepository.buildForDriver("driver1")).thenReturn(new DriverRatingSummary("driver1"));
+
+        DriverRatingSummaryDTO result = reviewService.getDriverRatingSummary("driver1");
+
+        assertEquals(0, result.getReviewsNumber());
+        assertEquals(0.0, result.getAvgRating());
+    }
+
+    @Test
+    void testGetDriverRatingSummary_builtFromReviewsStoredBeforeIt() {
+        DriverRatingSummary built = new DriverRatingSummary("driver1");
+        built.setCount(2);
+        built.setSum(9);
+        built.setStars(Map.of("4", 1L, "5", 1L));
+        when(driverRatingSummaryRepository.findById("driver1")).thenReturn(Optional.empty());
+        when(userCache.exists("driver1")).thenReturn(true);
+        when(driverRatingSummaryRepository.buildForDriver("driver1")).thenReturn(built);
+
+        DriverRatingSummaryDTO result = reviewService.getDriverRatingSummary("driver1");
+
+        assertEquals(2, result.getReviewsNumber());
+        assertEquals(4.5, result.getAvgRating());
+    }
+
+    @Test
+    void testGetDriverRatingSummary_unknownUser() {
+        when(driverRatingSummaryRepository.findById("missing")).thenReturn(Optional.empty());
+        when(userCache.exists("missing")).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> reviewService.getDriverRatingSummary("missing"));
+        verify(driverRatingSummaryRepository, never()).buildForDriver(any());
+    }
+
+    @Test
+    void testGetReviewsByDriver_pagedNewestFirst() {
+        Review newest = new Review("reviewer1", "driver1", "ride2", 5, "Great");
+        newest.setId("67d767dca086f159e0e3ad66");
+        Review older = new Review("reviewer2", "driver1", "ride1", 4, "Good");
+        older.setId("67d767dca086f159e0e3ad65");
+        older.setCreatedAt(Instant.parse("2025-03-24T15:52:00Z"));
+        Review oldest = new Review("reviewer3", "driver1", "ride0", 3, "Ok");
+        when(reviewRepository.findByReviewedIdBefore(eq("driver1"), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(newest, older, oldest));
+
+        ReviewPage page = reviewService.getReviewsByDriver("driver1", null, 2);
+
+        assertEquals(List.of(newest, older), page.getReviews());
+        assertEquals(older.getCreatedAt().toEpochMilli() + "_" + older.getId(), page.getNextCursor());
+
+        // the cursor continues right after the last review of the page
+        when(reviewRepository.findByReviewedIdBefore("driver1", older.getCreatedAt(), older.getId(), 3))
+                .thenReturn(List.of(oldest));
+
+        ReviewPage next = reviewService.getReviewsByDriver("driver1", page.getNextCursor(), 2);
+
+        assertEquals(List.of(oldest), next.getReviews());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void testGetReviewsByDriver_invalidCursor() {
+        assertThrows(InvalidReviewException.class, () -> reviewService.getReviewsByDriver("driver1", "not-a-cursor", 10));
+        assertThrows(InvalidReviewException.class,
+                () -> reviewService.getReviewsByDriver("driver1", "abc_67d767dca086f159e0e3ad65", 10));
+
+        verify(reviewRepository, never()).findByReviewedIdBefore(any(), any(), any(), anyInt());
     }
 }
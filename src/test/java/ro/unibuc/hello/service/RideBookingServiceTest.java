@@ -3,35 +3,49 @@ package ro.unibuc.hello.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
 import ro.unibuc.hello.dto.rideBooking.RideBookingResponseDTO;
+import ro.unibuc.hello.cache.UserCache;
+import ro.unibuc.hello.config.UniqueIndexes;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.model.User;
 import ro.unibuc.hello.repository.RideBookingRepository;
-import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.RideRepository;
+import ro.unibuc.hello.schedule.ScheduleIndex;
+import ro.unibuc.hello.search.NearbyRideCache;
+import ro.unibuc.hello.search.RouteSearchCache;
 import ro.unibuc.hello.enums.RideBookingStatus;
+import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.enums.Role;
 import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
 
+import org.springframework.dao.DuplicateKeyException;
+
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.time.Clock;
 
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -48,7 +62,26 @@ public class RideBookingServiceTest {
     private RideRepository rideRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
+
+    @Mock
+    private ScheduleIndex scheduleIndex;
+
+    @Mock
+    private RouteSearchCache routeSearchCache;
+
+    @Mock
+    private NearbyRideCache nearbyRideCache;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), 3, 0);
+
+    @Spy
+    private BookingTransactions bookingTransactions = new BookingTransactions(Optional.empty(), 3, new SimpleMeterRegistry());
+
+    // built, so duplicates are left to the insert as in production
+    @Spy
+    private UniqueIndexes uniqueIndexes = builtUniqueIndexes();
 
     @InjectMocks
     private RideBookingService rideBookingService;
@@ -56,6 +89,38 @@ public class RideBookingServiceTest {
     @InjectMocks
     private UserService userService;
 
+    private static UniqueIndexes builtUniqueIndexes() {
+        UniqueIndexes uniqueIndexes = new UniqueIndexes();
+        uniqueIndexes.markBuilt(RideBooking.RIDE_PASSENGER_INDEX);
+        return uniqueIndexes;
+    }
+
+    private User passenger() {
+        User passenger = new User("diaconescu", "alexandra", "alexandra@gmail.com", "0721226744", Arrays.asList(Role.PASSENGER));
+        passenger.setId("p1");
+        return passenger;
+    }
+
+    @Test
+    public void testGetPassengerByRideId_UsesNamesStoredOnBookings() {
+        String rideId = "67d60c0f12400d215806d06c";
+        RideBooking stored = new RideBooking(rideId, "67d767dca086f159e0e3ad65", Instant.parse("2025-03-24T15:52:00Z"));
+        stored.setPassengerFullName("diaconescu alexandra");
+        RideBooking legacy = new RideBooking(rideId, "67d767dca086f159e0e3ad66", Instant.parse("2025-03-24T15:55:00Z"));
+        when(rideBookingRepository.findByRideId(rideId)).thenReturn(Arrays.asList(stored, legacy));
+
+        User user2 = new User("popescu", "mihai", "mihai@gmail.com", "0721226544", Arrays.asList(Role.PASSENGER));
+        user2.setId("67d767dca086f159e0e3ad66");
+        when(userCache.findAllById(anyCollection())).thenReturn(Map.of(user2.getId(), user2));
+
+        List<RideBookingResponseDTO> rideBookings = rideBookingService.getPassengersByRideId(rideId);
+
+        assertEquals("diaconescu alexandra", rideBookings.get(0).getPassengerFullName());
+        assertEquals("popescu mihai", rideBookings.get(1).getPassengerFullName());
+        // only the booking stored without a name needs its passenger looked up
+        verify(userCache).findAllById(Set.of("67d767dca086f159e0e3ad66"));
+    }
+
     @Test
     public void testGetPassengerByRideId() {
         // Arrange
@@ -75,10 +140,11 @@ public class RideBookingServiceTest {
         // Create mock User objects for passengers
         User user1 = new User("diaconescu", "alexandra", "alexandra@gmail.com", "0721226744", Arrays.asList(Role.PASSENGER));
         User user2 = new User("popescu", "mihai", "mihai@gmail.com", "0721226544", Arrays.asList(Role.PASSENGER));
+        user1.setId("67d767dca086f159e0e3ad65");
+        user2.setId("67d767dca086f159e0e3ad66");
 
-        // Mock user repository
-        when(userRepository.findById("67d767dca086f159e0e3ad65")).thenReturn(Optional.of(user1));
-        when(userRepository.findById("67d767dca086f159e0e3ad66")).thenReturn(Optional.of(user2));
+        // Mock user cache, passengers are looked up in a single batch
+        when(userCache.findAllById(anyCollection())).thenReturn(Map.of(user1.getId(), user1, user2.getId(), user2));
 
         // Act
         List<RideBookingResponseDTO> rideBookings = rideBookingService.getPassengersByRideId(rideId);
@@ -88,7 +154,8 @@ public class RideBookingServiceTest {
         assertEquals(2, rideBookings.size());
         
         verify(rideBookingRepository).findByRideId(rideId);
-        verify(userRepository, times(2)).findById(anyString());
+        verify(userCache, times(1)).findAllById(anyCollection());
+        verify(userCache, never()).findById(anyString());
 
         RideBookingResponseDTO responseDTO1 = rideBookings.get(0);
         assertEquals("67d60c0f12400d215806d06c", responseDTO1.getRideId());
@@ -114,7 +181,7 @@ public class RideBookingServiceTest {
             
             User user = new User("diaconescu", "alexandra", "alexandra@gmail.com", "0721226744", null);
             
-            when(userRepository.existsById("p1")).thenReturn(true);
+            when(userCache.findById("p1")).thenReturn(Optional.of(user));
             
           
             Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
@@ -123,18 +190,152 @@ public class RideBookingServiceTest {
                                 100, 10, "B45NNN");
             when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
             
-            when(rideBookingRepository.findByRideIdAndPassengerId("r1", "p1")).thenReturn(Optional.empty());
             
-            when(rideBookingRepository.findByPassengerId("p1")).thenReturn(java.util.Collections.emptyList());
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(false);
+
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(ride));
             
             RideBookingResponseDTO responseDTO = rideBookingService.createRideBooking(rideBookingRequestDTO);
 
             assertNotNull(responseDTO);
             assertEquals("r1", responseDTO.getRideId());
-            assertEquals(9, ride.getSeatsAvailable()); 
             
-            verify(rideBookingRepository).save(any(RideBooking.class));
-            verify(rideRepository).save(ride);
+            // the booking carries the ride's driver and interval
+            ArgumentCaptor<RideBooking> savedBooking = ArgumentCaptor.forClass(RideBooking.class);
+            verify(rideBookingRepository).save(savedBooking.capture());
+            assertEquals("driver123", savedBooking.getValue().getDriverId());
+            assertEquals(departureTime, savedBooking.getValue().getDepartureTime());
+            assertEquals(arrivalTime, savedBooking.getValue().getArrivalTime());
+            // and the passenger's name
+            assertEquals("diaconescu alexandra", savedBooking.getValue().getPassengerFullName());
+
+            verify(rideRepository).reserveSeat("r1");
+            verify(rideRepository, never()).save(any(Ride.class));
+
+            // the passenger's cached schedule sees the new booking
+            verify(scheduleIndex).rideBooked(savedBooking.getValue());
+            // seats are left, route search keeps the ride
+            verify(routeSearchCache, never()).rideChanged(any());
+        }
+
+    @Test
+        void testCreateRideBooking_LastSeatDropsRideFromRouteSearch() {
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 1, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(false);
+
+            Ride full = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 0, "B45NNN");
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(full));
+
+            rideBookingService.createRideBooking(rideBookingRequestDTO);
+
+            verify(routeSearchCache).rideChanged(full);
+            verify(nearbyRideCache).rideChanged(full);
+        }
+
+    @Test
+        void testCreateRideBooking_RideCancelledBeforeInsertCancelsTheBooking() {
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 3, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(false);
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(ride));
+            // the ride was cancelled after the seat was reserved, its cancellation didn't see the booking yet
+            when(rideRepository.existsByIdAndStatus("r1", RideStatus.CANCELLED)).thenReturn(true);
+            when(rideBookingRepository.cancelBookedByRideIdAndPassengerId("r1", "p1")).thenReturn(1L);
+
+            InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class,
+                () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            assertEquals("Ride is not scheduled", exception.getMessage());
+            verify(rideRepository).releaseSeat("r1");
+            verify(scheduleIndex, never()).rideBooked(any());
+        }
+
+    @Test
+        void testCreateRideBooking_RideCancellationAlreadyCancelledTheBooking() {
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 3, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(false);
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(ride));
+            when(rideRepository.existsByIdAndStatus("r1", RideStatus.CANCELLED)).thenReturn(true);
+            when(rideBookingRepository.cancelBookedByRideIdAndPassengerId("r1", "p1")).thenReturn(0L);
+
+            assertThrows(InvalidRideBookingException.class, () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            // the ride's cancellation gave the seat back along with the booking
+            verify(rideRepository, never()).releaseSeat(anyString());
+        }
+
+    @Test
+        void testCreateRideBooking_SeatTakenConcurrently() {
+
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            // the ride we read still shows a free seat
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime,
+                                100, 1, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+
+            // but another booking took it before the conditional update ran
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.empty());
+
+            InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class,
+                () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            assertEquals("No more seats available", exception.getMessage());
+            verify(rideBookingRepository, never()).save(any(RideBooking.class));
+        }
+
+    @Test
+        void testCreateRideBooking_ReleasesSeatWhenBookingNotSaved() {
+
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime,
+                                100, 10, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(ride));
+            when(rideBookingRepository.save(any(RideBooking.class))).thenThrow(new RuntimeException("write failed"));
+
+            assertThrows(RuntimeException.class, () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            verify(rideRepository).releaseSeat("r1");
         }
 
     @Test
@@ -145,7 +346,7 @@ public class RideBookingServiceTest {
         rideBookingRequestDTO.setPassengerId("p1");
 
         //passenger ID does not exist
-        when(userRepository.existsById("p1")).thenReturn(false);
+        when(userCache.findById("p1")).thenReturn(Optional.empty());
 
         // Act , Assert
         assertThrows(InvalidRideBookingException.class, 
@@ -165,7 +366,7 @@ public class RideBookingServiceTest {
             rideBookingRequestDTO.setPassengerId("p1");
         
             // passenger exists
-            when(userRepository.existsById("p1")).thenReturn(true);
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
         
             // Create a ride that the passenger wants to book
             Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
@@ -175,14 +376,8 @@ public class RideBookingServiceTest {
         
             when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
         
-            // existing ride booking that overlaps with the new ride
-            Instant existingBookingTime = Instant.parse("2025-03-24T16:00:00Z"); 
-            RideBooking existingBooking = new RideBooking("existingRideId", "p1", existingBookingTime);
-            when(rideBookingRepository.findByPassengerId("p1")).thenReturn(List.of(existingBooking));
-        
-            // findByIdAndTimeOverlap() to return : conflict exists
-            when(rideRepository.findByIdAndTimeOverlap("r1", departureTime, arrivalTime))
-                .thenReturn(List.of(new Ride()));
+            // passenger's schedule has a ride that overlaps with the new ride : conflict exists
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(true);
         
             // Act, assert
             InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class, 
@@ -190,10 +385,93 @@ public class RideBookingServiceTest {
         
             assertEquals("User involved in another ride at the same time.", exception.getMessage());
         
-            // Verify that rideBookingRepository.save() was never called
+            // Verify that the overlap was resolved by the schedule index and nothing was saved
+            verify(rideBookingRepository, never()).findByPassengerId(anyString());
+            verify(rideBookingRepository, never()).findOverlappingRidesForPassenger(anyString(), any(), any());
             verify(rideBookingRepository, never()).save(any(RideBooking.class));
             verify(rideRepository, never()).save(any(Ride.class));
         }
+
+        @Test
+        void testCreateRideBooking_AlreadyBookedThisRide() {
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 10, "B45NNN");
+            ride.setId("r1");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+
+            // the ride keeping the passenger busy is this very one
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(true);
+            when(rideBookingRepository.findByRideIdAndPassengerId("r1", "p1"))
+                    .thenReturn(Optional.of(new RideBooking("r1", "p1", departureTime.minusSeconds(3600))));
+
+            InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class,
+                () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            assertEquals("Passenger already booked for this ride.", exception.getMessage());
+            verify(rideRepository, never()).reserveSeat(anyString());
+        }
+
+        @Test
+        void testCreateRideBooking_DuplicateKeyGivesTheSeatBack() {
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Instant arrivalTime = Instant.parse("2025-03-24T16:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 10, "B45NNN");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(scheduleIndex.isPassengerBusy("p1", departureTime, arrivalTime)).thenReturn(false);
+            when(rideRepository.reserveSeat("r1")).thenReturn(Optional.of(ride));
+            // a concurrent request for the same passenger and ride stored its booking first
+            when(rideBookingRepository.save(any(RideBooking.class)))
+                    .thenThrow(new DuplicateKeyException("E11000 duplicate key error collection: ride_passengers index: ride_passenger_idx"));
+
+            InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class,
+                () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            assertEquals("Passenger already booked for this ride.", exception.getMessage());
+            verify(rideRepository).releaseSeat("r1");
+            // duplicates are left to the unique index, no lookup beforehand
+            verify(rideBookingRepository, never()).findByRideIdAndPassengerId(anyString(), anyString());
+        }
+
+        @Test
+        void testCreateRideBooking_AlreadyBookedLookedUpUntilUniqueIndexIsBuilt() {
+            // ride_passenger_idx couldn't be built over old duplicates
+            RideBookingService rideBookingService = new RideBookingService(rideBookingRepository, userCache, rideRepository,
+                userService, clock, scheduleIndex, optimisticLockRetry, bookingTransactions, routeSearchCache,
+                nearbyRideCache, new UniqueIndexes());
+            RideBookingRequestDTO rideBookingRequestDTO = new RideBookingRequestDTO();
+            rideBookingRequestDTO.setRideId("r1");
+            rideBookingRequestDTO.setPassengerId("p1");
+
+            when(userCache.findById("p1")).thenReturn(Optional.of(passenger()));
+
+            Instant departureTime = Instant.parse("2025-03-24T15:52:00Z");
+            Ride ride = new Ride("driver123", "City A", "City B", departureTime, departureTime.plusSeconds(3600),
+                                 100, 10, "B45NNN");
+            ride.setId("r1");
+            when(rideRepository.findById("r1")).thenReturn(Optional.of(ride));
+            when(rideBookingRepository.findByRideIdAndPassengerId("r1", "p1"))
+                    .thenReturn(Optional.of(new RideBooking("r1", "p1", departureTime.minusSeconds(3600))));
+
+            InvalidRideBookingException exception = assertThrows(InvalidRideBookingException.class,
+                () -> rideBookingService.createRideBooking(rideBookingRequestDTO));
+
+            assertEquals("Passenger already booked for this ride.", exception.getMessage());
+            verify(rideRepository, never()).reserveSeat(anyString());
+            verify(rideBookingRepository, never()).save(any(RideBooking.class));
+        }
         
         @Test
         void testUpdateRideBookingStatusToCancelled_Success() {
@@ -208,7 +486,7 @@ public class RideBookingServiceTest {
             Clock fixedClock = Clock.fixed(fixedNow, ZoneId.of("UTC"));
 
             // Create the service using the mocked Clock
-            RideBookingService rideBookingService = new RideBookingService(rideBookingRepository, userRepository, rideRepository, userService, fixedClock);
+            RideBookingService rideBookingService = new RideBookingService(rideBookingRepository, userCache, rideRepository, userService, fixedClock, scheduleIndex, optimisticLockRetry, bookingTransactions, routeSearchCache, nearbyRideCache, uniqueIndexes);
 
             // mock Ride
             Ride ride = new Ride("driver123", "City A", "City B", departureTime, arrivalTime, 100, 5, "B45NNN");
@@ -223,7 +501,6 @@ public class RideBookingServiceTest {
 
             // save operation to return the updated rideBooking
             when(rideBookingRepository.save(any(RideBooking.class))).thenReturn(rideBooking);
-            when(rideRepository.save(any(Ride.class))).thenReturn(ride);
 
             // Act
             RideBookingResponseDTO responseDTO = rideBookingService.updateRideBookingStatusToCancelled(rideId, passengerId);
@@ -231,12 +508,31 @@ public class RideBookingServiceTest {
             // Assert
             assertNotNull(responseDTO);
             assertEquals(RideBookingStatus.CANCELLED, rideBooking.getRideBookingStatus());  
-            assertEquals(6, ride.getSeatsAvailable());  
 
-            // Verify repository save calls
+            // Verify repository calls
             verify(rideBookingRepository).save(rideBooking);
-            verify(rideRepository).save(ride);
+            verify(rideRepository).releaseSeat(rideId);
+            verify(scheduleIndex).bookingCancelled(passengerId, rideId);
+            verify(routeSearchCache).rideChanged(ride);
         }
-        
 
-}
\ No newline at end of file
+        @Test
+        void testCancelAllBookingsForRide_SingleUpdateAndAggregateMetrics() {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            RideBookingService rideBookingService = new RideBookingService(rideBookingRepository, userCache, rideRepository,
+                userService, clock, scheduleIndex, optimisticLockRetry, bookingTransactions, routeSearchCache, nearbyRideCache, uniqueIndexes, null, null, null, null, null, null, meterRegistry);
+
+            when(rideBookingRepository.cancelBookedByRideId("r1")).thenReturn(50L);
+
+            long cancelled = rideBookingService.cancelAllBookingsForRide("r1");
+
+            assertEquals(50L, cancelled);
+            assertEquals(50.0, meterRegistry.counter("ride_bookings_cancelled_total").count());
+
+            // one updateMany, no per-booking reads or saves
+            verify(rideBookingRepository, times(1)).cancelBookedByRideId("r1");
+            verify(rideBookingRepository, never()).findByRideId(anyString());
+            verify(rideBookingRepository, never()).save(any(RideBooking.class));
+            verify(rideRepository, never()).releaseSeat(anyString());
+        }
+}
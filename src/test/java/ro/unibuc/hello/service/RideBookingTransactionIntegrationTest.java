@@ -0,0 +1,160 @@
+package ro.unibuc.hello.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import ro.unibuc.hello.dto.rideBooking.RideBookingRequestDTO;
+import ro.unibuc.hello.enums.RideBookingStatus;
+import ro.unibuc.hello.model.Ride;
+import ro.unibuc.hello.model.User;
+import ro.unibuc.hello.repository.RideBookingRepository;
+import ro.unibuc.hello.repository.RideRepository;
+import ro.unibuc.hello.repository.UserRepository;
+
+// Booking create and cancel with booking.write-mode=transactional, on the single node replica set Testcontainers starts
+@SpringBootTest(properties = "booking.write-mode=transactional")
+@Testcontainers
+@Tag("IntegrationTest")
+public class RideBookingTransactionIntegrationTest {
+
+    @Container
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0.20")
+            .withExposedPorts(27017);
+
+    @BeforeAll
+    public static void setUp() {
+        mongoDBContainer.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        mongoDBContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("mongodb.connection.url", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private RideBookingService rideBookingService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideBookingRepository rideBookingRepository;
+
+    @Autowired(required = false)
+    private MongoTransactionManager transactionManager;
+
+    @BeforeEach
+    public void cleanUp() {
+        rideBookingRepository.deleteAll();
+        userRepository.deleteAll();
+        rideRepository.deleteAll();
+    }
+
+    @Test
+    public void testTransactionManagerIsConfigured() {
+        assertTrue(transactionManager != null, "booking.write-mode=transactional should register a MongoTransactionManager");
+    }
+
+    @Test
+    public void testCreateAndCancelBooking() {
+        Ride ride = rideRepository.save(new Ride("driver1", "Start", "End", Instant.now().plusSeconds(3600),
+                Instant.now().plusSeconds(7200), 20, 3, "XYZ123"));
+        User passenger = userRepository.save(new User("tx", "user", "tx@example.com", "0700000001", null));
+
+        RideBookingRequestDTO request = new RideBookingRequestDTO();
+        request.setRideId(ride.getId());
+        request.setPassengerId(passenger.getId());
+        rideBookingService.createRideBooking(request);
+
+        assertEquals(2, rideRepository.findById(ride.getId()).get().getSeatsAvailable());
+
+        rideBookingService.updateRideBookingStatusToCancelled(ride.getId(), passenger.getId());
+
+        assertEquals(3, rideRepository.findById(ride.getId()).get().getSeatsAvailable());
+        assertEquals(RideBookingStatus.CANCELLED,
+                rideBookingRepository.findByRideIdAndPassengerId(ride.getId(), passenger.getId()).get().getRideBookingStatus());
+    }
+
+    // Competing transactions on the same ride abort with write conflicts, some bookings may give up after their retries.
+    // Whatever happens, the seat count and the stored bookings must never diverge.
+    @Test
+    public void testConcurrentBookingsKeepSeatsAndBookingsInSync() throws Exception {
+        final int seats = 10;
+        final int passengers = 200;
+
+        Ride ride = rideRepository.save(new Ride("driver1", "Popular", "Destination", Instant.now().plusSeconds(3600),
+                Instant.now().plusSeconds(7200), 20, seats, "XYZ123"));
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < passengers; i++) {
+            users.add(new User("tx", "user" + i, "tx" + i + "@example.com", String.format("08%08d", i), null));
+        }
+        userRepository.saveAll(users);
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                RideBookingRequestDTO request = new RideBookingRequestDTO();
+                request.setRideId(ride.getId());
+                request.setPassengerId(user.getId());
+                try {
+                    rideBookingService.createRideBooking(request);
+                    booked.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // no seat left, or the transaction kept conflicting
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int seatsLeft = rideRepository.findById(ride.getId()).get().getSeatsAvailable();
+        int storedBookings = rideBookingRepository.findByRideId(ride.getId()).size();
+
+        assertTrue(seatsLeft >= 0);
+        assertEquals(booked.get(), storedBookings);
+        assertEquals(seats, seatsLeft + storedBookings);
+    }
+}
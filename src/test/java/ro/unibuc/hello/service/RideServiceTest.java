@@ -2,8 +2,11 @@ package ro.unibuc.hello.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -11,6 +14,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -19,8 +23,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import ro.unibuc.hello.dto.ride.RidePage;
 import ro.unibuc.hello.dto.ride.RideRequestDTO;
 import ro.unibuc.hello.dto.ride.RideResponseDTO;
 import ro.unibuc.hello.dto.user.UserResponseDTO;
@@ -28,12 +39,15 @@ import ro.unibuc.hello.enums.RideStatus;
 import ro.unibuc.hello.exceptions.ride.InvalidRideException;
 import ro.unibuc.hello.exceptions.ride.RideConflictException;
 import ro.unibuc.hello.exceptions.rideBooking.InvalidRideBookingException;
+import ro.unibuc.hello.cache.UserCache;
 import ro.unibuc.hello.model.Ride;
 import ro.unibuc.hello.model.RideBooking;
 import ro.unibuc.hello.repository.RideBookingRepository;
 import ro.unibuc.hello.repository.RideRepository;
-import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.VehicleRepository;
+import ro.unibuc.hello.schedule.ScheduleIndex;
+import ro.unibuc.hello.search.NearbyRideCache;
+import ro.unibuc.hello.search.RouteSearchCache;
 
 @ExtendWith(MockitoExtension.class)
 public class RideServiceTest {
@@ -44,7 +58,7 @@ public class RideServiceTest {
     private RideBookingRepository rideBookingRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
 
     @Mock 
     private VehicleRepository vehicleRepository;
@@ -52,6 +66,18 @@ public class RideServiceTest {
     @Mock 
     private RideBookingService rideBookingService;
 
+    @Mock
+    private ScheduleIndex scheduleIndex;
+
+    @Mock
+    private RouteSearchCache routeSearchCache;
+
+    @Mock
+    private NearbyRideCache nearbyRideCache;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), 3, 0);
+
     @InjectMocks
     private RideService rideService;
 
@@ -72,14 +98,14 @@ public class RideServiceTest {
     void testCreateRide_DriverNotFound() {
        
         RideRequestDTO request = createValidRideRequest();
-        when(userRepository.existsById(request.getDriverId())).thenReturn(false);
+        when(userCache.exists(request.getDriverId())).thenReturn(false);
 
    
         assertThrows(InvalidRideException.class, () -> {
             rideService.createRide(request);
         });
         
-        verify(userRepository, times(1)).existsById(request.getDriverId());
+        verify(userCache, times(1)).exists(request.getDriverId());
         verify(rideRepository, never()).save(any());
     }
 
@@ -89,7 +115,7 @@ public class RideServiceTest {
         RideRequestDTO request = createValidRideRequest();
         request.setDepartureTime(Instant.now().minusSeconds(3600)); // 1 hour in the past
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         assertThrows(InvalidRideException.class, () -> {
             rideService.createRide(request);
@@ -102,7 +128,7 @@ public class RideServiceTest {
         RideRequestDTO request = createValidRideRequest();
         request.setEndLocation(request.getStartLocation());
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         assertThrows(InvalidRideException.class, () -> {
             rideService.createRide(request);
@@ -115,7 +141,7 @@ public class RideServiceTest {
         RideRequestDTO request = createValidRideRequest();
         request.setSeatsAvailable(0);
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         assertThrows(InvalidRideException.class, () -> {
             rideService.createRide(request);
@@ -128,7 +154,7 @@ public class RideServiceTest {
         RideRequestDTO request = createValidRideRequest();
         request.setSeatPrice(-10);
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         assertThrows(InvalidRideException.class, () -> {
             rideService.createRide(request);
@@ -140,7 +166,7 @@ public class RideServiceTest {
 
         RideRequestDTO request = createValidRideRequest();
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
         when(vehicleRepository.existsByLicensePlate(request.getCarLicensePlate())).thenReturn(false);
 
         assertThrows(InvalidRideException.class, () -> {
@@ -153,15 +179,15 @@ public class RideServiceTest {
 
         RideRequestDTO request = createValidRideRequest();
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         when(vehicleRepository.existsByLicensePlate(request.getCarLicensePlate())).thenReturn(true);
 
-        when(rideRepository.findByDriverIdAndTimeOverlap(
+        when(scheduleIndex.isDriverBusy(
             request.getDriverId(),
             request.getDepartureTime(),
             request.getArrivalTime()
-        )).thenReturn(List.of(new Ride())); 
+        )).thenReturn(true); 
 
         assertThrows(RideConflictException.class, () -> {
             rideService.createRide(request);
@@ -175,13 +201,17 @@ public class RideServiceTest {
         RideRequestDTO request = createValidRideRequest();
         Ride expectedRide = request.toEntity();
         
-        when(userRepository.existsById(request.getDriverId())).thenReturn(true);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
 
         when(vehicleRepository.existsByLicensePlate(request.getCarLicensePlate())).thenReturn(true);
 
-        when(rideRepository.findByDriverIdAndTimeOverlap(any(), any(), any())).thenReturn(List.of());
+        when(scheduleIndex.isDriverBusy(any(), any(), any())).thenReturn(false);
 
-        when(rideBookingRepository.findByPassengerId(request.getDriverId())).thenReturn(List.of());
+        when(scheduleIndex.isPassengerBusy(
+            request.getDriverId(),
+            request.getDepartureTime(),
+            request.getArrivalTime()
+        )).thenReturn(false);
         
         when(rideRepository.save(any(Ride.class))).thenReturn(expectedRide);
 
@@ -192,21 +222,85 @@ public class RideServiceTest {
         assertEquals(request.getEndLocation(), result.getEndLocation());
         
         verify(rideRepository, times(1)).save(any(Ride.class));
+        verify(scheduleIndex, times(1)).rideScheduled(any(Ride.class));
+        verify(routeSearchCache, times(1)).rideChanged(any(Ride.class));
     }
 
     @Test
-    public void testGetAllRides() {
+    void testCreateRide_DriverOverlapAsPassenger() {
+
+        RideRequestDTO request = createValidRideRequest();
+
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
+
+        when(vehicleRepository.existsByLicensePlate(request.getCarLicensePlate())).thenReturn(true);
+
+        when(scheduleIndex.isDriverBusy(any(), any(), any())).thenReturn(false);
 
+        when(scheduleIndex.isPassengerBusy(
+            request.getDriverId(),
+            request.getDepartureTime(),
+            request.getArrivalTime()
+        )).thenReturn(true);
+
+        assertThrows(InvalidRideBookingException.class, () -> {
+            rideService.createRide(request);
+        });
+
+        verify(rideRepository, never()).save(any());
+    }
+
+    private Ride rideWithId(String id) {
+        Ride ride = new Ride("driver1", "Bucuresti", "Cluj", Instant.now(), Instant.now().plusSeconds(3600), 50, 3, "B-123-ABC");
+        ride.setId(id);
+        return ride;
+    }
+
+    @Test
+    public void testGetRidesPage_LastPageHasNoCursor() {
         List<Ride> mockRides = Arrays.asList(
-            new Ride("driver1", "Bucuresti", "Cluj", Instant.now(), Instant.now().plusSeconds(3600), 50, 3, "B-123-ABC"),
-            new Ride("driver2", "Iasi", "Brasov", Instant.now(), Instant.now().plusSeconds(7200), 60, 4, "IS-456-DEF")
+            rideWithId("65f000000000000000000001"),
+            rideWithId("65f000000000000000000002")
         );
-        when(rideRepository.findAll()).thenReturn(mockRides);
+        when(rideRepository.findPageAfter(null, 3)).thenReturn(mockRides);
 
-        List<Ride> result = rideService.getAllRides();
+        RidePage result = rideService.getRidesPage(null, 2);
 
-        assertEquals(2, result.size());
-        verify(rideRepository, times(1)).findAll();
+        assertEquals(2, result.getRides().size());
+        assertNull(result.getNextCursor());
+        verify(rideRepository, never()).findAll();
+    }
+
+    @Test
+    public void testGetRidesPage_FullPageReturnsCursorOfLastRide() {
+        List<Ride> mockRides = Arrays.asList(
+            rideWithId("65f000000000000000000002"),
+            rideWithId("65f000000000000000000003"),
+            rideWithId("65f000000000000000000004")
+        );
+        when(rideRepository.findPageAfter("65f000000000000000000001", 3)).thenReturn(mockRides);
+
+        RidePage result = rideService.getRidesPage("65f000000000000000000001", 2);
+
+        assertEquals(2, result.getRides().size());
+        assertEquals("65f000000000000000000003", result.getNextCursor());
+    }
+
+    @Test
+    public void testGetRidesPage_LimitIsCapped() {
+        when(rideRepository.findPageAfter(null, RideService.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
+
+        RidePage result = rideService.getRidesPage(null, 1_000_000);
+
+        assertEquals(0, result.getRides().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void testGetRidesPage_InvalidCursor() {
+        assertThrows(InvalidRideException.class, () -> rideService.getRidesPage("not-an-id", 10));
+
+        verify(rideRepository, never()).findPageAfter(any(), anyInt());
     }
 
     @Test
@@ -217,13 +311,138 @@ public class RideServiceTest {
             new Ride("1", "Bucuresti", "Cluj", testDate.plusSeconds(3600), testDate.plusSeconds(7200), 50, 3, "B-123-ABC")
         );
         
-        when(rideRepository.findAllByDepartureDate(any(Instant.class), any(Instant.class)))
+        when(rideRepository.findScheduledDeparting(testDate, testDate.plusSeconds(86400), "Bucuresti", null, null, null, 101))
             .thenReturn(mockRides);
 
-        List<Ride> result = rideService.getRidesByDate(testDate);
+        RidePage result = rideService.getScheduledRidesByDate(testDate.plusSeconds(600), "Bucuresti", null, null, 100);
+
+        assertEquals(1, result.getRides().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testGetRidesByDate_CursorCarriesDepartureAndId() {
+
+        Instant testDate = Instant.parse("2023-01-01T00:00:00Z");
+        Instant departure = testDate.plusSeconds(3600);
+        List<Ride> mockRides = Arrays.asList(
+            rideAt("65f000000000000000000001", departure),
+            rideAt("65f000000000000000000002", departure)
+        );
+        when(rideRepository.findScheduledDeparting(testDate, testDate.plusSeconds(86400), null, null, null, null, 2))
+            .thenReturn(mockRides);
+
+        RidePage first = rideService.getScheduledRidesByDate(testDate, null, null, null, 1);
+
+        assertEquals(departure.toEpochMilli() + "_65f000000000000000000001", first.getNextCursor());
+
+        when(rideRepository.findScheduledDeparting(testDate, testDate.plusSeconds(86400), null, null,
+                departure, "65f000000000000000000001", 2))
+            .thenReturn(mockRides.subList(1, 2));
+
+        RidePage second = rideService.getScheduledRidesByDate(testDate, null, null, first.getNextCursor(), 1);
+
+        assertEquals(1, second.getRides().size());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetRidesByDate_InvalidCursor() {
+        Instant testDate = Instant.parse("2023-01-01T00:00:00Z");
+
+        assertThrows(InvalidRideException.class, () -> rideService.getScheduledRidesByDate(testDate, null, null, "abc", 10));
+        assertThrows(InvalidRideException.class,
+            () -> rideService.getScheduledRidesByDate(testDate, null, null, "abc_65f000000000000000000001", 10));
+    }
+
+    @Test
+    void testSearchRides_MatchesNormalizedRouteAcrossDays() {
+        Instant from = Instant.parse("2025-03-24T18:00:00Z");
+        Instant to = Instant.parse("2025-03-25T09:00:00Z");
+
+        Ride tooEarly = rideAt("65f000000000000000000001", Instant.parse("2025-03-24T08:00:00Z"));
+        Ride evening = rideAt("65f000000000000000000002", Instant.parse("2025-03-24T20:00:00Z"));
+        Ride morning = rideAt("65f000000000000000000003", Instant.parse("2025-03-25T07:00:00Z"));
+        Ride tooLate = rideAt("65f000000000000000000004", Instant.parse("2025-03-25T12:00:00Z"));
+        when(routeSearchCache.bookableRides("bucuresti", "cluj napoca", LocalDate.parse("2025-03-24")))
+            .thenReturn(List.of(tooEarly, evening));
+        when(routeSearchCache.bookableRides("bucuresti", "cluj napoca", LocalDate.parse("2025-03-25")))
+            .thenReturn(List.of(morning, tooLate));
+
+        List<Ride> result = rideService.searchRides(" București ", "Cluj-Napoca", from, to, 10);
+
+        assertEquals(List.of(evening, morning), result);
+    }
+
+    @Test
+    void testSearchRides_StopsAtLimit() {
+        Instant from = Instant.parse("2025-03-24T00:00:00Z");
+        Instant to = Instant.parse("2025-03-27T00:00:00Z");
+
+        Ride first = rideAt("65f000000000000000000001", Instant.parse("2025-03-24T08:00:00Z"));
+        Ride second = rideAt("65f000000000000000000002", Instant.parse("2025-03-24T20:00:00Z"));
+        when(routeSearchCache.bookableRides("bucuresti", "cluj", LocalDate.parse("2025-03-24")))
+            .thenReturn(List.of(first, second));
+
+        List<Ride> result = rideService.searchRides("Bucuresti", "Cluj", from, to, 1);
+
+        assertEquals(List.of(first), result);
+        // the remaining days of the window are never looked at
+        verify(routeSearchCache, times(1)).bookableRides(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testSearchRides_InvalidWindow() {
+        Instant from = Instant.parse("2025-03-24T00:00:00Z");
+
+        assertThrows(InvalidRideException.class, () -> rideService.searchRides("Bucuresti", "Cluj", from, from, 10));
+        assertThrows(InvalidRideException.class,
+            () -> rideService.searchRides("Bucuresti", "Cluj", from, from.plus(RideService.MAX_SEARCH_WINDOW).plusSeconds(1), 10));
+        assertThrows(InvalidRideException.class, () -> rideService.searchRides(" ", "Cluj", from, from.plusSeconds(3600), 10));
+
+        verify(routeSearchCache, never()).bookableRides(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testFindNearbyRides_DelegatesToCache() {
+        Instant from = Instant.parse("2025-03-24T06:00:00Z");
+        Instant to = Instant.parse("2025-03-24T12:00:00Z");
+        Ride ride = rideAt("65f000000000000000000001", Instant.parse("2025-03-24T08:00:00Z"));
+        List<GeoResult<Ride>> nearby = List.of(new GeoResult<>(ride, new Distance(850)));
+        when(nearbyRideCache.findNearby(44.43, 26.10, 2000, from, to, 20)).thenReturn(nearby);
+
+        assertEquals(nearby, rideService.findNearbyRides(44.43, 26.10, 2000, from, to, 20));
+    }
+
+    @Test
+    void testFindNearbyRides_InvalidRequest() {
+        Instant from = Instant.parse("2025-03-24T06:00:00Z");
+        Instant to = Instant.parse("2025-03-24T12:00:00Z");
+
+        assertThrows(InvalidRideException.class, () -> rideService.findNearbyRides(91, 26.10, 2000, from, to, 20));
+        assertThrows(InvalidRideException.class, () -> rideService.findNearbyRides(44.43, 26.10, 0, from, to, 20));
+        assertThrows(InvalidRideException.class,
+            () -> rideService.findNearbyRides(44.43, 26.10, NearbyRideCache.MAX_RADIUS_METERS + 1, from, to, 20));
+        assertThrows(InvalidRideException.class, () -> rideService.findNearbyRides(44.43, 26.10, 2000, to, from, 20));
 
-        assertEquals(1, result.size());
-        verify(rideRepository, times(1)).findAllByDepartureDate(any(), any());
+        verify(nearbyRideCache, never()).findNearby(anyDouble(), anyDouble(), anyDouble(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testCreateRide_HalfACoordinatePairIsRejected() {
+        RideRequestDTO request = createValidRideRequest();
+        request.setStartLatitude(44.43);
+        when(userCache.exists(request.getDriverId())).thenReturn(true);
+
+        assertThrows(InvalidRideException.class, () -> rideService.createRide(request));
+
+        verify(rideRepository, never()).save(any());
+    }
+
+    private Ride rideAt(String id, Instant departure) {
+        Ride ride = new Ride("driver1", "Bucuresti", "Cluj", departure, departure.plusSeconds(3600), 50, 3, "B-123-ABC");
+        ride.setId(id);
+        return ride;
     }
 
     @Test
@@ -244,6 +463,55 @@ public class RideServiceTest {
         verify(rideRepository, times(1)).save(mockRide);
     }
 
+    @Test
+    void testUpdateRideStatusToInProgress_RetriesOnConcurrentUpdate() {
+
+        String rideId = "ride123";
+        Ride staleRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now(), Instant.now().plusSeconds(7200), 50, 3, "B-123-ABC");
+        staleRide.setStatus(RideStatus.SCHEDULED);
+        Ride freshRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now(), Instant.now().plusSeconds(7200), 50, 2, "B-123-ABC");
+        freshRide.setStatus(RideStatus.SCHEDULED);
+
+        // a booking took a seat between our read and our save
+        when(rideRepository.findById(rideId)).thenReturn(Optional.of(staleRide), Optional.of(freshRide));
+        when(rideRepository.save(staleRide)).thenThrow(new OptimisticLockingFailureException("stale ride"));
+        when(rideRepository.save(freshRide)).thenAnswer(invocation -> invocation.getArgument(0));
+
+        RideResponseDTO result = rideService.updateRideStatusToInProgress(rideId);
+
+        // the retry started the ride from the fresh copy, keeping the seat the booking took
+        assertNotNull(result);
+        assertEquals(RideStatus.IN_PROGRESS, freshRide.getStatus());
+        assertEquals(2, freshRide.getSeatsAvailable());
+        verify(rideRepository, times(2)).findById(rideId);
+        verify(rideRepository, times(1)).save(freshRide);
+    }
+
+    @Test
+    void testUpdateRideStatusToInProgress_ConflictingStatusChangeIsNotOverwritten() {
+
+        String rideId = "ride123";
+        Ride staleRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now(), Instant.now().plusSeconds(7200), 50, 3, "B-123-ABC");
+        staleRide.setStatus(RideStatus.SCHEDULED);
+        Ride cancelledRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now(), Instant.now().plusSeconds(7200), 50, 3, "B-123-ABC");
+        cancelledRide.setStatus(RideStatus.CANCELLED);
+
+        // the ride was cancelled between our read and our save
+        when(rideRepository.findById(rideId)).thenReturn(Optional.of(staleRide), Optional.of(cancelledRide));
+        when(rideRepository.save(staleRide)).thenThrow(new OptimisticLockingFailureException("stale ride"));
+
+        assertThrows(InvalidRideException.class, () -> {
+            rideService.updateRideStatusToInProgress(rideId);
+        });
+
+        assertEquals(RideStatus.CANCELLED, cancelledRide.getStatus());
+        verify(rideRepository, never()).save(cancelledRide);
+    }
+
     @Test
     void testUpdateRideStatusToInProgress_InvalidStatus() {
 
@@ -276,6 +544,7 @@ public class RideServiceTest {
         assertEquals(RideStatus.COMPLETED, mockRide.getStatus());
         verify(rideRepository, times(1)).findById(rideId);
         verify(rideRepository, times(1)).save(mockRide);
+        verify(scheduleIndex, times(1)).rideEnded(mockRide);
     }
 
     @Test
@@ -323,21 +592,48 @@ public class RideServiceTest {
         Ride mockRide = new Ride("driver1", "Bucuresti", "Cluj", 
             Instant.now().plusSeconds(3600), Instant.now().plusSeconds(7200), 50, 3, "B-123-ABC");
         mockRide.setStatus(RideStatus.SCHEDULED);
-        
-        RideBooking booking1 = new RideBooking("1", "67d767dca086f159e0e3ad65", Instant.now());
-        RideBooking booking2 = new RideBooking("2", "67d767dca086f159e0e3ad65", Instant.now());
-        List<RideBooking> mockBookings = Arrays.asList(booking1, booking2);
+
+        Ride releasedRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now().plusSeconds(3600), Instant.now().plusSeconds(7200), 50, 5, "B-123-ABC");
+        releasedRide.setStatus(RideStatus.CANCELLED);
         
         when(rideRepository.findById(rideId)).thenReturn(Optional.of(mockRide));
-        when(rideBookingRepository.findByRideId(rideId)).thenReturn(mockBookings);
         when(rideRepository.save(any(Ride.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // both bookings are cancelled by one update, their seats come back in one increment
+        when(rideBookingService.cancelAllBookingsForRide(rideId)).thenReturn(2L);
+        when(rideRepository.releaseSeats(rideId, 2)).thenReturn(Optional.of(releasedRide));
 
         RideResponseDTO result = rideService.updateRideStatusToCancelled(rideId);
 
+        assertNotNull(result);
         assertEquals(RideStatus.CANCELLED, mockRide.getStatus());
-        verify(rideBookingRepository, times(1)).findByRideId(rideId);
-        verify(rideBookingService, times(2)).updateRideBookingStatusToCancelled(anyString(), anyString());
+        verify(rideBookingService, times(1)).cancelAllBookingsForRide(rideId);
+        verify(rideRepository, times(1)).releaseSeats(rideId, 2);
+        verify(rideBookingService, never()).updateRideBookingStatusToCancelled(anyString(), anyString());
+        verify(rideBookingRepository, never()).findByRideId(anyString());
+        verify(rideBookingRepository, never()).saveAll(any());
         verify(rideRepository, times(1)).save(mockRide);
+        verify(scheduleIndex, times(1)).rideEnded(releasedRide);
+        // the cancelled ride leaves route search
+        verify(routeSearchCache, times(1)).rideChanged(releasedRide);
+    }
+
+    @Test
+    void testUpdateRideStatusToCancelled_NoBookings() {
+
+        String rideId = "ride123";
+        Ride mockRide = new Ride("driver1", "Bucuresti", "Cluj", 
+            Instant.now().plusSeconds(3600), Instant.now().plusSeconds(7200), 50, 3, "B-123-ABC");
+        mockRide.setStatus(RideStatus.SCHEDULED);
+
+        when(rideRepository.findById(rideId)).thenReturn(Optional.of(mockRide));
+        when(rideRepository.save(any(Ride.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(rideBookingService.cancelAllBookingsForRide(rideId)).thenReturn(0L);
+
+        rideService.updateRideStatusToCancelled(rideId);
+
+        assertEquals(RideStatus.CANCELLED, mockRide.getStatus());
+        verify(rideRepository, never()).releaseSeats(anyString(), anyInt());
     }
 
     @Test
@@ -357,6 +653,7 @@ public class RideServiceTest {
         verify(rideRepository, times(1)).findById(rideId);
         verify(rideBookingRepository, never()).findByRideId(anyString());
         verify(rideBookingService, never()).updateRideBookingStatusToCancelled(anyString(), anyString());
+        verify(rideBookingService, never()).cancelAllBookingsForRide(anyString());
         verify(rideRepository, never()).save(any());
     }
 
@@ -377,6 +674,7 @@ public class RideServiceTest {
         verify(rideRepository, times(1)).findById(rideId);
         verify(rideBookingRepository, never()).findByRideId(anyString());
         verify(rideBookingService, never()).updateRideBookingStatusToCancelled(anyString(), anyString());
+        verify(rideBookingService, never()).cancelAllBookingsForRide(anyString());
         verify(rideRepository, never()).save(any());
     }
 
@@ -2,7 +2,9 @@ package ro.unibuc.hello.service;
 
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
@@ -15,18 +17,25 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 
+import ro.unibuc.hello.dto.user.UserPage;
 import ro.unibuc.hello.dto.user.UserRequestDTO;
 import ro.unibuc.hello.dto.user.UserResponseDTO;
+import ro.unibuc.hello.events.UserUpdatedEvent;
 import ro.unibuc.hello.exceptions.user.InvalidUserException;
 import ro.unibuc.hello.model.User;
 import ro.unibuc.hello.repository.UserRepository;
@@ -40,6 +49,12 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), 3, 0);
+
     @InjectMocks
     private UserService userService;
 
@@ -49,12 +64,14 @@ public class UserServiceTest {
         new User("Andrei", "Popescu", "andrei@gmail.com", "0787828282", new ArrayList<>()),
         new User("Marius", "Ivan", "ivan@gmail.com", "0712354324", new ArrayList<>())
     );
-    when(userRepository.findAll()).thenReturn(users);
+    when(userRepository.findPublicPageAfter(null, 101)).thenReturn(users);
 
-    List<User> result = userService.getAllUsers();
+    UserPage page = userService.getUsersPage(null, 100);
+    List<UserResponseDTO> result = page.getUsers();
 
     // Assert size
     assertEquals(2, result.size());
+    assertNull(page.getNextCursor());
 
     // Assert name
     assertEquals("Andrei", result.get(0).getFirstName());
@@ -69,6 +86,28 @@ public class UserServiceTest {
     // Assert Rating = 0.0
     assertEquals(0.0, result.get(0).getAvgRating());
 
+    verify(userRepository, never()).findAll();
+   }
+
+   @Test
+   void testGetAll_FullPageReturnsCursor() {
+    User first = new User("Andrei", "Popescu", "andrei@gmail.com", "0787828282", new ArrayList<>());
+    first.setId("65f000000000000000000001");
+    User second = new User("Marius", "Ivan", "ivan@gmail.com", "0712354324", new ArrayList<>());
+    second.setId("65f000000000000000000002");
+    when(userRepository.findPublicPageAfter(null, 2)).thenReturn(Arrays.asList(first, second));
+
+    UserPage page = userService.getUsersPage(null, 1);
+
+    assertEquals(1, page.getUsers().size());
+    assertEquals("65f000000000000000000001", page.getNextCursor());
+   }
+
+   @Test
+   void testGetAll_InvalidCursor() {
+    assertThrows(InvalidUserException.class, () -> userService.getUsersPage("not-an-id", 10));
+
+    verify(userRepository, never()).findPublicPageAfter(any(), anyInt());
    }
 
    @Test
@@ -128,6 +167,11 @@ public class UserServiceTest {
 
     UserResponseDTO result = userService.updateUserName("1", "Andrei", "Popescu");
 
+    // cached copies of the user are dropped through the event
+    ArgumentCaptor<UserUpdatedEvent> event = ArgumentCaptor.forClass(UserUpdatedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertEquals("1", event.getValue().getUserId());
+
     // Assert name
     assertEquals("Razvan", result.getFirstName());
     assertEquals("Leclerc", result.getLastName());
@@ -156,6 +200,7 @@ public class UserServiceTest {
 
     verify(userRepository, times(1)).findById("1");
     verify(userRepository, times(0)).save(any());
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
 
    }
 
@@ -12,7 +12,6 @@ import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -23,11 +22,10 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import ro.unibuc.hello.cache.UserCache;
 import ro.unibuc.hello.dto.vehicle.VehicleDTO;
 import ro.unibuc.hello.exceptions.vehicle.VehicleConflictException;
-import ro.unibuc.hello.model.User;
 import ro.unibuc.hello.model.Vehicle;
-import ro.unibuc.hello.repository.UserRepository;
 import ro.unibuc.hello.repository.VehicleRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +35,7 @@ public class VehicleServiceTest {
     private VehicleRepository vehicleRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
 
     @InjectMocks
     private VehicleService vehicleService;
@@ -77,7 +75,7 @@ public class VehicleServiceTest {
         Vehicle vehicle = vehicleDTO.toEntity();
         
         when(vehicleRepository.existsByLicensePlate("B-123-XYZ")).thenReturn(false);
-        when(userRepository.findById("userId1")).thenReturn(Optional.of(new User()));
+        when(userCache.exists("userId1")).thenReturn(true);
         when(vehicleRepository.save(any(Vehicle.class))).thenReturn(vehicle);
 
         // When
@@ -86,7 +84,7 @@ public class VehicleServiceTest {
         // Then
         assertEquals("B-123-XYZ", result.getLicensePlate());
         verify(vehicleRepository, times(1)).existsByLicensePlate("B-123-XYZ");
-        verify(userRepository, times(1)).findById("userId1");
+        verify(userCache, times(1)).exists("userId1");
         verify(vehicleRepository, times(1)).save(any(Vehicle.class));
     }
 
@@ -103,7 +101,7 @@ public class VehicleServiceTest {
         });
         
         verify(vehicleRepository, times(1)).existsByLicensePlate("B-123-XYZ");
-        verify(userRepository, never()).findById(anyString());
+        verify(userCache, never()).exists(anyString());
         verify(vehicleRepository, never()).save(any());
     }
 
@@ -113,7 +111,7 @@ public class VehicleServiceTest {
         VehicleDTO vehicleDTO = new VehicleDTO("userId1", "Dacia", "Logan", "B-123-XYZ");
         
         when(vehicleRepository.existsByLicensePlate("B-123-XYZ")).thenReturn(false);
-        when(userRepository.findById("userId1")).thenReturn(Optional.empty());
+        when(userCache.exists("userId1")).thenReturn(false);
 
         // When/Then
         assertThrows(VehicleConflictException.class, () -> {
@@ -121,7 +119,7 @@ public class VehicleServiceTest {
         });
         
         verify(vehicleRepository, times(1)).existsByLicensePlate("B-123-XYZ");
-        verify(userRepository, times(1)).findById("userId1");
+        verify(userCache, times(1)).exists("userId1");
         verify(vehicleRepository, never()).save(any());
     }
 